@@ -0,0 +1,332 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+// one agent walking a maze, with its own place in it and the cells it has been to
+// each agent is only ever moved by one thread at a time, and only reads the maze it shares,
+// so a simulation can move all of its agents at once without locking
+abstract class AAgent {
+
+  // the maze being walked and the cell index the agents are trying to reach
+  protected final MazeTopology maze;
+  protected final int exit;
+
+  // the cells this agent has been to, by index
+  final BitSet visited;
+
+  // not final because they change as the agent moves
+  // the cell index the agent is on, how many moves it has made, and whether it made it out
+  int cell;
+  int moves;
+  boolean finished;
+
+  AAgent(MazeTopology maze, int start, int exit) {
+    if (start < 0 || start >= maze.cells() || exit < 0 || exit >= maze.cells()) {
+      throw new IllegalArgumentException("Illegal start/exit for agent");
+    }
+    this.maze = maze;
+    this.exit = exit;
+    this.visited = new BitSet();
+    this.cell = start;
+    this.moves = 0;
+    this.visit();
+  }
+
+  // EFFECT: moves one cell, unless this agent has already made it out
+  void step() {
+    if (this.finished) {
+      return;
+    }
+    int next = this.next();
+    if (next != this.cell) {
+      this.cell = next;
+      this.moves += 1;
+    }
+    this.visit();
+  }
+
+  // EFFECT: marks the cell this agent is on as visited, finishing it if it's the exit
+  private void visit() {
+    this.visited.set(this.cell);
+    if (this.cell == this.exit) {
+      this.finished = true;
+    }
+  }
+
+  // the cell this agent moves to next, or the cell it's on if it can't move
+  abstract int next();
+}
+
+// wanders the maze, going any open way at random each move
+class RandomWalker extends AAgent {
+  private final Random rand;
+
+  RandomWalker(MazeTopology maze, int start, int exit, Random rand) {
+    super(maze, start, exit);
+    this.rand = rand;
+  }
+
+  // a random neighbor of the cell this agent is on
+  int next() {
+    int degree = this.maze.degree(this.cell);
+    if (degree == 0) {
+      return this.cell;
+    }
+    int pick = this.rand.nextInt(degree);
+    for (int dir = MazeTopology.UP; dir <= MazeTopology.LEFT; dir += 1) {
+      if (this.maze.isOpen(this.cell, dir)) {
+        if (pick == 0) {
+          return this.maze.neighbor(this.cell, dir);
+        }
+        pick -= 1;
+      }
+    }
+    throw new RuntimeException("cell has fewer open ways than its degree");
+  }
+}
+
+// keeps its right hand on the wall, which gets it out of any maze without loops
+class WallFollower extends AAgent {
+
+  // not final because the agent turns as it follows the wall
+  private int heading;
+
+  WallFollower(MazeTopology maze, int start, int exit) {
+    super(maze, start, exit);
+    this.heading = MazeTopology.RIGHT;
+  }
+
+  // the first open way out of this agent's cell, trying right, ahead, left and then back
+  // EFFECT: turns to face the way it goes
+  int next() {
+    for (int turn = 1; turn >= -2; turn -= 1) {
+      int dir = (this.heading + turn + 4) % 4;
+      if (this.maze.isOpen(this.cell, dir)) {
+        this.heading = dir;
+        return this.maze.neighbor(this.cell, dir);
+      }
+    }
+    return this.cell;
+  }
+}
+
+// follows the shortest way from its start to the exit, one cell a move
+class SearchBot extends AAgent {
+
+  // the cell to go to next from each cell to reach the exit, as MazeTopology.towards finds,
+  // shared by every bot heading for the same exit and never changed
+  private final int[] towards;
+
+  SearchBot(MazeTopology maze, int start, int exit, int[] towards) {
+    super(maze, start, exit);
+    if (towards.length != maze.cells()) {
+      throw new IllegalArgumentException("Illegal route for agent");
+    }
+    this.towards = towards;
+  }
+
+  // the next cell on the way to the exit, or the one it's on if the exit can't be reached
+  int next() {
+    if (this.towards[this.cell] == -1) {
+      return this.cell;
+    }
+    return this.towards[this.cell];
+  }
+}
+
+// what the agents did on one tick of a simulation
+class AgentTickStats {
+
+  // the tick, starting at 1
+  final int tick;
+
+  // how many agents still walking share their cell with another one still walking
+  final int collisions;
+
+  // how many cells any agent has been to so far
+  final int covered;
+
+  // how many agents have made it out so far
+  final int finished;
+
+  AgentTickStats(int tick, int collisions, int covered, int finished) {
+    this.tick = tick;
+    this.collisions = collisions;
+    this.covered = covered;
+    this.finished = finished;
+  }
+
+  // these stats as a line of tab separated values, in the order of AgentSimulation.HEADER
+  String toLine() {
+    return this.tick + "\t" + this.collisions + "\t" + this.covered + "\t" + this.finished;
+  }
+}
+
+// many agents walking the same maze at once, all moved a cell each tick
+// the maze is read into a topology once, which the agents share, so the maze's cells can be
+// redrawn or remade while the simulation runs without the agents seeing it
+// usage: AgentSimulation [-agents 1000] [-size 100x100] [-ticks 1000] [-seed 2510]
+//                        [-type NORMAL]
+// prints the stats of every tick, stopping early once every agent has made it out
+class AgentSimulation {
+
+  static final String HEADER = "tick\tcollisions\tcovered\tfinished";
+
+  // the kinds of agents spawn makes, taking turns
+  static final String[] KINDS = {"random", "wall", "bot"};
+
+  // with fewer agents than this, moving them on one thread is faster than splitting them up
+  private static final int PARALLEL_THRESHOLD = 256;
+
+  final MazeTopology maze;
+  final AAgent[] agents;
+
+  // which cells any agent has been to, and how many
+  // not final because the count goes up as cells are covered
+  private final boolean[] covered;
+  private int coveredCount;
+
+  // how many agents still walking are on each cell, only non zero while a tick is counted
+  private final int[] occupants;
+
+  // how many ticks have run
+  // not final because it counts up every tick
+  private int ticks;
+
+  AgentSimulation(MazeTopology maze, AAgent[] agents) {
+    this.maze = maze;
+    this.agents = agents;
+    this.covered = new boolean[maze.cells()];
+    this.coveredCount = 0;
+    this.occupants = new int[maze.cells()];
+    this.ticks = 0;
+    this.cover();
+  }
+
+  // a simulation of count agents of every kind, taking turns, at random cells of the given
+  // finished maze, all trying to reach its bottom right cell
+  static AgentSimulation spawn(ArrayList<ArrayList<Cell>> grid, int count, Random rand) {
+    if (count <= 0) {
+      throw new IllegalArgumentException("Illegal count for agents");
+    }
+    MazeTopology maze = new MazeTopology(grid);
+    int exit = maze.cells() - 1;
+    // one search out from the exit finds every bot's way there
+    int[] towards = maze.towards(exit);
+    AAgent[] agents = new AAgent[count];
+    for (int i = 0; i < count; i += 1) {
+      int start = rand.nextInt(maze.cells());
+      String kind = KINDS[i % KINDS.length];
+      if (kind.equals("random")) {
+        agents[i] = new RandomWalker(maze, start, exit, new Random(rand.nextLong()));
+      } else if (kind.equals("wall")) {
+        agents[i] = new WallFollower(maze, start, exit);
+      } else {
+        agents[i] = new SearchBot(maze, start, exit, towards);
+      }
+    }
+    return new AgentSimulation(maze, agents);
+  }
+
+  // moves every agent a cell, returning what happened
+  // EFFECT: moves the agents, on several threads if there are enough of them
+  AgentTickStats tick() {
+    if (this.agents.length >= PARALLEL_THRESHOLD) {
+      Arrays.stream(this.agents).parallel().forEach(AAgent::step);
+    } else {
+      for (AAgent a : this.agents) {
+        a.step();
+      }
+    }
+    this.ticks += 1;
+    this.cover();
+    return new AgentTickStats(this.ticks, this.collisions(), this.coveredCount,
+            this.finished());
+  }
+
+  // has every agent made it out
+  boolean isDone() {
+    return this.finished() == this.agents.length;
+  }
+
+  // EFFECT: marks the cells the agents are on as covered
+  private void cover() {
+    for (AAgent a : this.agents) {
+      if (!this.covered[a.cell]) {
+        this.covered[a.cell] = true;
+        this.coveredCount += 1;
+      }
+    }
+  }
+
+  // how many agents still walking share their cell with another one still walking
+  // agents that made it out all wait on the exit, so they don't count
+  private int collisions() {
+    for (AAgent a : this.agents) {
+      if (!a.finished) {
+        this.occupants[a.cell] += 1;
+      }
+    }
+    int collisions = 0;
+    for (AAgent a : this.agents) {
+      if (!a.finished && this.occupants[a.cell] > 1) {
+        collisions += 1;
+      }
+    }
+    // empties the cells again for the next tick, without going over every cell
+    for (AAgent a : this.agents) {
+      this.occupants[a.cell] = 0;
+    }
+    return collisions;
+  }
+
+  // how many agents have made it out
+  private int finished() {
+    int finished = 0;
+    for (AAgent a : this.agents) {
+      if (a.finished) {
+        finished += 1;
+      }
+    }
+    return finished;
+  }
+
+  public static void main(String[] args) {
+    int count = 1000;
+    int height = 100;
+    int width = 100;
+    int ticks = 1000;
+    long seed = 2510;
+    MazeType type = MazeType.NORMAL;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (args[i].equals("-agents")) {
+        count = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("-size")) {
+        String[] dims = args[i + 1].split("x");
+        height = Integer.parseInt(dims[0]);
+        width = Integer.parseInt(dims[1]);
+      } else if (args[i].equals("-ticks")) {
+        ticks = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("-seed")) {
+        seed = Long.parseLong(args[i + 1]);
+      } else if (args[i].equals("-type")) {
+        type = MazeType.valueOf(args[i + 1]);
+      } else {
+        throw new IllegalArgumentException("Illegal option for simulation: " + args[i]);
+      }
+    }
+
+    Random rand = new Random(seed);
+    // the cells are never drawn, so their size doesn't matter
+    ArrayList<ArrayList<Cell>> grid = new MazeGenerator(rand, 1).generate(height, width, type);
+    AgentSimulation sim = AgentSimulation.spawn(grid, count, rand);
+    long began = System.nanoTime();
+    System.out.println(HEADER);
+    for (int t = 0; t < ticks && !sim.isDone(); t += 1) {
+      System.out.println(sim.tick().toLine());
+    }
+    System.err.printf("%d agents, %d ticks in %.1f ms%n", count, sim.ticks,
+            (System.nanoTime() - began) / 1e6);
+  }
+}
@@ -0,0 +1,99 @@
+// paces an animation so it takes about the same time no matter how many steps it has
+// each tick runs however many steps are due by now to finish within the target duration,
+// but stops early once the tick has used up its time budget so frames stay smooth
+class AnimationScheduler {
+
+  // how long a whole animation should take, in nanoseconds
+  private final long targetNanos;
+
+  // the most time one tick may spend running steps, in nanoseconds
+  private final long budgetNanos;
+
+  // not final because they describe the animation currently being paced
+  // the number of steps in the animation, and how many have run so far
+  private int total;
+  private int done;
+
+  // not final because they are set as ticks happen
+  // when the first tick of the animation ran (-1 until then), and when this tick started
+  private long startedAt;
+  private long tickStart;
+
+  // how many steps this tick has run so far, and how many it may run in all
+  private int doneThisTick;
+  private int dueThisTick;
+
+  AnimationScheduler(long targetMillis, long budgetMillis) {
+    if (targetMillis <= 0 || budgetMillis <= 0) {
+      throw new IllegalArgumentException("Illegal duration for animation");
+    }
+    this.targetNanos = targetMillis * 1000000;
+    this.budgetNanos = budgetMillis * 1000000;
+    this.start(0);
+  }
+
+  // EFFECT: starts pacing a new animation with the given number of steps
+  // the clock only starts on its first tick, so it doesn't matter how long it waits for that
+  void start(int steps) {
+    this.total = steps;
+    this.done = 0;
+    this.startedAt = -1;
+    this.tickStart = 0;
+    this.doneThisTick = 0;
+    this.dueThisTick = 0;
+  }
+
+  // EFFECT: starts a tick, working out how many steps are due by now
+  void beginTick() {
+    this.beginTick(System.nanoTime());
+  }
+
+  // EFFECT: starts a tick at the given time, working out how many steps are due by then
+  void beginTick(long now) {
+    if (this.startedAt < 0) {
+      this.startedAt = now;
+    }
+    this.tickStart = now;
+    this.doneThisTick = 0;
+    long elapsed = now - this.startedAt;
+    long dueByNow = (long) Math.ceil((double) this.total * elapsed / this.targetNanos);
+    // always make some progress, even on ticks that come faster than the target pace
+    this.dueThisTick = (int) Math.max(1, Math.min(this.total, dueByNow) - this.done);
+  }
+
+  // returns if another step should run this tick
+  // the clock is only read on the steps where the budget is checked
+  // EFFECT: counts that step as done
+  boolean next() {
+    return this.step(this.isCheckDue() && this.isOverBudget(System.nanoTime()));
+  }
+
+  // returns if another step should run this tick, if it is now the given time
+  // EFFECT: counts that step as done
+  boolean next(long now) {
+    return this.step(this.isCheckDue() && this.isOverBudget(now));
+  }
+
+  // is the budget checked before this step: it is checked before every 64th step of a tick,
+  // not before every step, and never before the first, so every tick gets at least 64 steps
+  // if that many are due
+  private boolean isCheckDue() {
+    return this.doneThisTick % 64 == 0 && this.doneThisTick > 0;
+  }
+
+  // has this tick used up its time budget, if it is now the given time
+  private boolean isOverBudget(long now) {
+    return now - this.tickStart > this.budgetNanos;
+  }
+
+  // returns if another step should run this tick, unless it's over its budget
+  // EFFECT: counts that step as done
+  private boolean step(boolean overBudget) {
+    if (this.doneThisTick >= this.dueThisTick || overBudget) {
+      return false;
+    }
+    this.doneThisTick += 1;
+    this.done += 1;
+    return true;
+  }
+}
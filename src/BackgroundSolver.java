@@ -0,0 +1,70 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// runs searches on a worker thread so the game doesn't freeze while a big maze is solved
+// only one search runs at a time, starting another (or cancelling) stops the one running
+class BackgroundSolver {
+
+  // the thread searches run on
+  // not final because it is only started when the first search is, so a maze that is never
+  // solved doesn't start a thread
+  private ExecutorService worker;
+
+  // the search running (or last run) and the worker's handle on it, null if there isn't one
+  // not final because each new search replaces them
+  private Search running;
+  private Future<?> job;
+
+  BackgroundSolver() {
+    this.worker = null;
+    this.running = null;
+    this.job = null;
+  }
+
+  // EFFECT: stops the search that's running and starts the given one, which must have been
+  // made to run in the background
+  void start(Search search) {
+    this.cancel();
+    if (this.worker == null) {
+      this.worker = Executors.newSingleThreadExecutor(new DaemonThreads("maze-solver"));
+    }
+    this.running = search;
+    this.job = this.worker.submit(search);
+  }
+
+  // EFFECT: stops the search that's running, if there is one, waiting for it to stop so
+  // nothing is reading the grid once this returns
+  // a cancelled search checks before every cell, so this never waits long
+  void cancel() {
+    if (this.running == null) {
+      return;
+    }
+    this.running.cancel();
+    this.finish();
+  }
+
+  // EFFECT: waits for the search that's running, if there is one, to finish on its own
+  // nothing is reading the grid once this returns, and the search has seen all it will
+  void await() {
+    if (this.running == null) {
+      return;
+    }
+    this.finish();
+  }
+
+  // EFFECT: waits for the worker to be done with the running search, then forgets it
+  private void finish() {
+    try {
+      this.job.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | CancellationException e) {
+      // the search is over either way, which is all we're waiting for
+    }
+    this.running = null;
+    this.job = null;
+  }
+}
@@ -1,6 +1,5 @@
 import javalib.worldimages.*;
 
-import java.awt.*;
 import java.util.ArrayList;
 
 // represents a cell in a maze
@@ -19,10 +18,10 @@ class Cell {
   // side length of this cell
   private final int size;
 
-  // color of this cell
+  // color of this cell, as an index into the palette
   // not final because we change it based on if it this cell is used in bfs/dfs
   // not private so the maze can access the cells color
-  Color clr;
+  byte clr;
 
   // not final because the state of showing walls is being changed throughout creating
   // the maze, and not final because other classes need access to change them based
@@ -30,20 +29,23 @@ class Cell {
   boolean showTop;
   boolean showLeft;
 
-  private final LineImage top;
-  private final LineImage left;
-
   // cell with path to other cells yet to be created
   Cell(Posn pos, int size) {
     this.pos = pos;
-    new Posn(2, 3);
     this.outPaths = new ArrayList<Path>();
     this.size = size;
-    this.top = new LineImage(new Posn(this.size, 0), Color.BLACK);
-    this.left = new LineImage(new Posn(0, this.size), Color.BLACK);
     this.showTop = true;
     this.showLeft = true;
-    this.clr = Color.LIGHT_GRAY;
+    this.clr = Palette.UNVISITED;
+  }
+
+  // EFFECT: puts this cell back to how it was made, with every wall up, no paths and the
+  // unvisited color, so a maze can be remade without making new cells
+  void reset() {
+    this.outPaths.clear();
+    this.showTop = true;
+    this.showLeft = true;
+    this.clr = Palette.UNVISITED;
   }
 
   // EFFECT: adds a path to this cell
@@ -51,23 +53,52 @@ class Cell {
     this.outPaths.add(out);
   }
 
+  // puts the wall between this cell and the given neighbor back up, undoing a path's removeWall
+  // EFFECT: removes the paths between the two cells and shows the wall between them
+  void addWall(Cell other) {
+    String dir = this.direction(other.pos);
+    this.removePathsTo(other);
+    other.removePathsTo(this);
+    if (dir.equals("u")) {
+      this.showTop = true;
+    } else if (dir.equals("d")) {
+      other.showTop = true;
+    } else if (dir.equals("l")) {
+      this.showLeft = true;
+    } else if (dir.equals("r")) {
+      other.showLeft = true;
+    }
+  }
+
+  // EFFECT: removes this cell's paths to the given cell
+  private void removePathsTo(Cell other) {
+    for (int i = this.outPaths.size() - 1; i >= 0; i -= 1) {
+      // cell equality is intentional
+      if (this.outPaths.get(i).to.equals(other)) {
+        this.outPaths.remove(i);
+      }
+    }
+  }
+
+  // EFFECT: changes this cell's color, returning whether it was a different color before
+  // so callers only have to redraw cells whose color actually changed
+  boolean recolor(byte clr) {
+    if (this.clr == clr) {
+      return false;
+    }
+    this.clr = clr;
+    return true;
+  }
+
   // renders this cell
+  // the image is shared with every other cell that has the same walls, color and size
   WorldImage renderCell() {
-    RectangleImage base = new RectangleImage(this.size, this.size,
-            OutlineMode.SOLID,
-            this.clr);
-    if (this.showTop && this.showLeft) {
-      return new OverlayOffsetImage(this.top, 0, this.size / 2.0, new OverlayOffsetImage(this.left,
-              this.size / 2.0, 0, base)).movePinhole(this.size / -2.0, this.size / -2.0);
-    } else if (this.showTop) {
-      return new OverlayOffsetImage(top, 0, this.size / 2.0, base).movePinhole(
-              this.size / -2.0, this.size / -2.0);
-    } else if (this.showLeft) {
-      return new OverlayOffsetImage(this.left, this.size / 2.0, 0, base).movePinhole(
-              this.size / -2.0, this.size / -2.0);
-    } else {
-      return base.movePinhole(this.size / -2.0, this.size / -2.0);
-    }
+    return this.renderCell(this.size);
+  }
+
+  // renders this cell with the given side length (e.g. when the maze is zoomed in or out)
+  WorldImage renderCell(int size) {
+    return CellImageCache.SHARED.get(this.showTop, this.showLeft, this.clr, size);
   }
 
   // determines which direction the passed cell is in relation to this cell
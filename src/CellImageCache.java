@@ -0,0 +1,66 @@
+import javalib.worldimages.*;
+
+import java.awt.Color;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// a bounded cache of rendered cell images, shared by every cell
+// cells only differ by their walls, color and size, so cells that look the same share one
+// image instead of each building their own every frame
+class CellImageCache {
+
+  // the cache every cell renders through
+  static final CellImageCache SHARED = new CellImageCache(4096);
+
+  // the images we have rendered, least recently used first, so the oldest can be dropped
+  private final LinkedHashMap<Long, WorldImage> images;
+
+  CellImageCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Illegal capacity for cache");
+    }
+    this.images = new LinkedHashMap<Long, WorldImage>(16, 0.75f, true) {
+      protected boolean removeEldestEntry(Map.Entry<Long, WorldImage> eldest) {
+        return this.size() > capacity;
+      }
+    };
+  }
+
+  // returns the image of a cell with the given walls, palette color and side length, rendering it
+  // only if no cell has looked like this recently
+  // synchronized because mazes can be built off the event thread
+  synchronized WorldImage get(boolean showTop, boolean showLeft, byte clr, int size) {
+    long key = ((long) size << 10) | ((clr & 0xFF) << 2) | (showTop ? 2 : 0) | (showLeft ? 1 : 0);
+    WorldImage image = this.images.get(key);
+    if (image == null) {
+      image = this.render(showTop, showLeft, clr, size);
+      this.images.put(key, image);
+    }
+    return image;
+  }
+
+  // the number of images currently cached
+  synchronized int size() {
+    return this.images.size();
+  }
+
+  // renders a cell with the given walls, color and side length, with its pinhole in the top
+  // left corner
+  private WorldImage render(boolean showTop, boolean showLeft, byte clr, int size) {
+    RectangleImage base = new RectangleImage(size, size, OutlineMode.SOLID, Palette.color(clr));
+    LineImage top = new LineImage(new Posn(size, 0), Color.BLACK);
+    LineImage left = new LineImage(new Posn(0, size), Color.BLACK);
+    if (showTop && showLeft) {
+      return new OverlayOffsetImage(top, 0, size / 2.0, new OverlayOffsetImage(left,
+              size / 2.0, 0, base)).movePinhole(size / -2.0, size / -2.0);
+    } else if (showTop) {
+      return new OverlayOffsetImage(top, 0, size / 2.0, base).movePinhole(
+              size / -2.0, size / -2.0);
+    } else if (showLeft) {
+      return new OverlayOffsetImage(left, size / 2.0, 0, base).movePinhole(
+              size / -2.0, size / -2.0);
+    } else {
+      return base.movePinhole(size / -2.0, size / -2.0);
+    }
+  }
+}
@@ -54,4 +54,114 @@ class Queue<T> implements ICollection<T> {
   public void add(T item) {
     this.contents.addLast(item); // NOTE: Different from Stack!
   }
-}
\ No newline at end of file
+}
+
+// Represents a mutable collection of cell indices, stored as primitive ints so that
+// adding to the collection never boxes or allocates a node
+interface IIntCollection {
+  // Is this collection empty?
+  boolean isEmpty();
+
+  // EFFECT: adds the index to the collection
+  void add(int item);
+
+  // Returns the first index of the collection
+  // EFFECT: removes that first index
+  int remove();
+}
+
+// a growable ring buffer of ints that can be added to at either end, shared by
+// IntStack and IntQueue the same way Stack and Queue share Java's ArrayDeque
+abstract class AIntDeque implements IIntCollection {
+  // not final because the buffer is replaced when it grows
+  private int[] contents;
+
+  // index of the first item in contents
+  private int head;
+
+  // number of items currently stored
+  private int size;
+
+  AIntDeque(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Illegal capacity for collection");
+    }
+    this.contents = new int[capacity];
+    this.head = 0;
+    this.size = 0;
+  }
+
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  public int remove() {
+    if (this.size == 0) {
+      throw new RuntimeException("cannot remove from an empty collection");
+    }
+    int item = this.contents[this.head];
+    this.head = (this.head + 1) % this.contents.length;
+    this.size -= 1;
+    return item;
+  }
+
+  // EFFECT: adds the item in front of the first item
+  void addFirst(int item) {
+    this.ensureCapacity();
+    this.head = (this.head - 1 + this.contents.length) % this.contents.length;
+    this.contents[this.head] = item;
+    this.size += 1;
+  }
+
+  // EFFECT: adds the item after the last item
+  void addLast(int item) {
+    this.ensureCapacity();
+    this.contents[(this.head + this.size) % this.contents.length] = item;
+    this.size += 1;
+  }
+
+  // EFFECT: doubles the buffer when it is full, unwrapping the items to start at 0
+  private void ensureCapacity() {
+    if (this.size < this.contents.length) {
+      return;
+    }
+    int[] bigger = new int[this.contents.length * 2];
+    for (int i = 0; i < this.size; i += 1) {
+      bigger[i] = this.contents[(this.head + i) % this.contents.length];
+    }
+    this.contents = bigger;
+    this.head = 0;
+  }
+}
+
+class IntStack extends AIntDeque {
+
+  IntStack() {
+    this(16);
+  }
+
+  // a stack whose buffer starts with room for capacity items
+  IntStack(int capacity) {
+    super(capacity);
+  }
+
+  public void add(int item) {
+    this.addFirst(item);
+  }
+}
+
+class IntQueue extends AIntDeque {
+
+  IntQueue() {
+    this(16);
+  }
+
+  // a queue whose buffer starts with room for capacity items
+  IntQueue(int capacity) {
+    super(capacity);
+  }
+
+  public void add(int item) {
+    this.addLast(item); // NOTE: Different from IntStack!
+  }
+}
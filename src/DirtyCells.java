@@ -0,0 +1,92 @@
+// tracks which cells of a maze have changed since the last frame was drawn, so a frame only
+// has to redraw those cells instead of the whole grid
+class DirtyCells {
+
+  // width of the grid, used to turn a cell's position into an index (y * width + x)
+  private final int width;
+
+  // whether each cell is already waiting to be redrawn, so a cell is only queued once
+  private final boolean[] marked;
+
+  // the indices of the cells waiting to be redrawn, in the order they changed
+  private final IntQueue changed;
+
+  // how many cells are waiting in changed
+  // not final because it goes up and down as cells are marked and redrawn
+  private int size;
+
+  // not final because a new grid or a cleared screen makes every cell dirty at once
+  private boolean allDirty;
+
+  // the zoomed out pictures of the maze, which are told about every change as it is marked
+  // so they never go stale, even when a frame redraws everything
+  // not final because they are only made the first time the maze is zoomed out that far
+  private MazeMipmap mipmap;
+
+  DirtyCells(int height, int width) {
+    this.width = width;
+    this.marked = new boolean[height * width];
+    this.changed = new IntQueue();
+    this.size = 0;
+    this.allDirty = true;
+  }
+
+  // EFFECT: records that the given cell needs to be redrawn
+  void mark(Cell c) {
+    if (this.mipmap != null) {
+      this.mipmap.update(c);
+    }
+    if (this.allDirty) {
+      return;
+    }
+    int index = c.pos.y * this.width + c.pos.x;
+    if (!this.marked[index]) {
+      this.marked[index] = true;
+      this.changed.add(index);
+      this.size += 1;
+    }
+  }
+
+  // EFFECT: tells the given mipmap about every cell marked from now on
+  void attach(MazeMipmap mipmap) {
+    this.mipmap = mipmap;
+  }
+
+  // EFFECT: records that every cell needs to be redrawn
+  void markAll() {
+    this.allDirty = true;
+  }
+
+  // does every cell need to be redrawn
+  boolean isAllDirty() {
+    return this.allDirty;
+  }
+
+  // is any cell waiting to be redrawn
+  boolean isEmpty() {
+    return !this.allDirty && this.changed.isEmpty();
+  }
+
+  // returns the index of the next cell to redraw
+  // EFFECT: removes that cell from the cells waiting to be redrawn
+  int next() {
+    int index = this.changed.remove();
+    this.marked[index] = false;
+    this.size -= 1;
+    return index;
+  }
+
+  // EFFECT: forgets every cell waiting to be redrawn, after the whole grid has been drawn
+  void clear() {
+    while (!this.changed.isEmpty()) {
+      this.marked[this.changed.remove()] = false;
+    }
+    this.size = 0;
+    this.allDirty = false;
+  }
+
+  // how many cells are waiting to be redrawn, not counting a redraw of every cell
+  int size() {
+    return this.size;
+  }
+}
@@ -0,0 +1,448 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+// a record of everything a search did, in order: each cell it added to its worklist (pushed),
+// each cell it took off and looked around (visited), then each cell of the solution it found
+// each event is the difference from the last event's cell, with the kind of event in its
+// bottom two bits, written in as few bytes as it takes (seven bits a byte, the top bit set on
+// every byte but the last), so a search of a million cells takes a few megabytes
+// holds cell indices (y * width + x) rather than cells, so it can be kept, saved and replayed
+// long after the maze is gone
+// usage: ExplorationLog -record run.mzx [-size 1000x1000] [-seed 2510] [-type NORMAL]
+//                       [-search bfs]
+//        ExplorationLog -replay run.mzx [-speed 1000]
+class ExplorationLog {
+
+  // the kinds of event
+  static final int PUSH = 1;
+  static final int VISIT = 2;
+  static final int SOLUTION = 3;
+
+  // the first four bytes of a saved log, "MZX1"
+  private static final int MAGIC = 0x4D5A5831;
+
+  // the size of the maze searched
+  final int height;
+  final int width;
+
+  // the encoded events, of which only the first length bytes are used
+  // not final because it grows as events are added
+  private byte[] bytes;
+  private int length;
+
+  // how many events there are, and the cell of the last one (0 before the first)
+  // not final because they change as events are added
+  private int events;
+  private int last;
+
+  ExplorationLog(int height, int width) {
+    if (height <= 0 || width <= 0) {
+      throw new IllegalArgumentException("Illegal width/height for log");
+    }
+    this.height = height;
+    this.width = width;
+    this.bytes = new byte[64];
+    this.length = 0;
+    this.events = 0;
+    this.last = 0;
+  }
+
+  // how many events have been recorded
+  int events() {
+    return this.events;
+  }
+
+  // how many bytes the events take
+  int size() {
+    return this.length;
+  }
+
+  // EFFECT: records that the search added the given cell to its worklist
+  void push(int cell) {
+    this.add(PUSH, cell);
+  }
+
+  // EFFECT: records that the search took the given cell off its worklist and looked around it
+  void visit(int cell) {
+    this.add(VISIT, cell);
+  }
+
+  // EFFECT: records that the given cell is the next one on the solution
+  void solution(int cell) {
+    this.add(SOLUTION, cell);
+  }
+
+  // EFFECT: adds an event of the given kind at the given cell to the end
+  private void add(int kind, int cell) {
+    if (cell < 0 || cell >= this.height * this.width) {
+      throw new IllegalArgumentException("Illegal cell for log");
+    }
+    // a long so the difference and the kind fit, whatever the difference is
+    long delta = (long) cell - this.last;
+    long value = (((delta << 1) ^ (delta >> 63)) << 2) | kind;
+    if (this.length + 10 > this.bytes.length) {
+      this.bytes = Arrays.copyOf(this.bytes, this.bytes.length * 2);
+    }
+    while ((value & ~0x7FL) != 0) {
+      this.bytes[this.length] = (byte) ((value & 0x7F) | 0x80);
+      this.length += 1;
+      value >>>= 7;
+    }
+    this.bytes[this.length] = (byte) value;
+    this.length += 1;
+    this.events += 1;
+    this.last = cell;
+  }
+
+  // the encoded event starting at the given byte, the kind in its bottom two bits
+  long valueAt(int offset) {
+    long value = 0;
+    int shift = 0;
+    while (true) {
+      byte b = this.bytes[offset];
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+      offset += 1;
+      shift += 7;
+    }
+  }
+
+  // the first byte after the event starting at the given byte
+  int after(int offset) {
+    while (this.bytes[offset] < 0) {
+      offset += 1;
+    }
+    return offset + 1;
+  }
+
+  // the first byte of the event ending just before the given byte, found by going back to the
+  // end of the one before it, the last byte without its top bit set
+  int before(int offset) {
+    offset -= 1;
+    while (offset > 0 && this.bytes[offset - 1] < 0) {
+      offset -= 1;
+    }
+    return offset;
+  }
+
+  // the kind of the given encoded event
+  static int kindOf(long value) {
+    return (int) (value & 3);
+  }
+
+  // how far the given encoded event's cell is from the last one's
+  static int deltaOf(long value) {
+    long zigzag = value >>> 2;
+    return (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+  }
+
+  // EFFECT: writes this log to the given stream
+  void write(OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeInt(this.height);
+    data.writeInt(this.width);
+    data.writeInt(this.events);
+    data.writeInt(this.length);
+    data.write(this.bytes, 0, this.length);
+    data.flush();
+  }
+
+  // the log written to the given stream
+  // throws an IOException if it isn't one, or is cut short
+  static ExplorationLog read(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != MAGIC) {
+      throw new IOException("not an exploration log");
+    }
+    ExplorationLog log = new ExplorationLog(data.readInt(), data.readInt());
+    int events = data.readInt();
+    int length = data.readInt();
+    if (events < 0 || length < 0) {
+      throw new IOException("not an exploration log");
+    }
+    log.bytes = new byte[Math.max(64, length)];
+    data.readFully(log.bytes, 0, length);
+    log.length = length;
+    // the last byte must end an event, or reading the events would go past it
+    if (length > 0 && log.bytes[length - 1] < 0) {
+      throw new IOException("exploration log is cut short");
+    }
+    // finds the last cell, so more events can be added, checking every event on the way
+    int offset = 0;
+    for (int i = 0; i < events; i += 1) {
+      if (offset >= length) {
+        throw new IOException("exploration log is cut short");
+      }
+      long value = log.valueAt(offset);
+      log.last += ExplorationLog.deltaOf(value);
+      if (ExplorationLog.kindOf(value) == 0 || log.last < 0
+              || log.last >= log.height * log.width) {
+        throw new IOException("exploration log has a bad event");
+      }
+      offset = log.after(offset);
+    }
+    if (offset != length) {
+      throw new IOException("exploration log has extra bytes");
+    }
+    log.events = events;
+    return log;
+  }
+
+  public static void main(String[] args) throws IOException {
+    String record = null;
+    String replay = null;
+    String size = "1000x1000";
+    long seed = 2510;
+    MazeType type = MazeType.NORMAL;
+    String search = "bfs";
+    int speed = 1000;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (args[i].equals("-record")) {
+        record = args[i + 1];
+      } else if (args[i].equals("-replay")) {
+        replay = args[i + 1];
+      } else if (args[i].equals("-size")) {
+        size = args[i + 1];
+      } else if (args[i].equals("-seed")) {
+        seed = Long.parseLong(args[i + 1]);
+      } else if (args[i].equals("-type")) {
+        type = MazeType.valueOf(args[i + 1]);
+      } else if (args[i].equals("-search")) {
+        search = args[i + 1];
+      } else if (args[i].equals("-speed")) {
+        speed = Integer.parseInt(args[i + 1]);
+      } else {
+        throw new IllegalArgumentException("Illegal option for exploration log: " + args[i]);
+      }
+    }
+    if (record != null) {
+      String[] dims = size.split("x");
+      int height = Integer.parseInt(dims[0]);
+      int width = Integer.parseInt(dims[1]);
+      ArrayList<ArrayList<Cell>> grid = new MazeGenerator(new Random(seed), 1)
+              .generate(height, width, type);
+      ExplorationLog log = new ExplorationLog(height, width);
+      new Search(search.equals("dfs") ? new IntStack() : new IntQueue(), grid,
+              grid.get(0).get(0), grid.get(height - 1).get(width - 1), null, false, log);
+      try (OutputStream out = new BufferedOutputStream(new FileOutputStream(record))) {
+        log.write(out);
+      }
+      System.out.printf("recorded %d events in %d bytes (%.2f an event)%n", log.events(),
+              log.size(), (double) log.size() / Math.max(1, log.events()));
+    } else if (replay != null) {
+      ExplorationLog log;
+      try (InputStream in = new BufferedInputStream(new FileInputStream(replay))) {
+        log = ExplorationLog.read(in);
+      }
+      ExplorationReplay player = new ExplorationReplay(log);
+      long began = System.nanoTime();
+      int steps = 0;
+      while (!player.isDone()) {
+        player.advance(speed);
+        steps += 1;
+      }
+      System.out.printf("replayed %d events of a %dx%d maze in %d steps of %d (%.1f ms): "
+                      + "%d visited, %d on the frontier, %d on the solution%n", log.events(),
+              log.height, log.width, steps, speed, (System.nanoTime() - began) / 1e6,
+              player.visited(), player.frontier(), player.solutionLength());
+      began = System.nanoTime();
+      player.seek(0);
+      System.out.printf("scrubbed back to the start in %.1f ms%n",
+              (System.nanoTime() - began) / 1e6);
+    } else {
+      throw new IllegalArgumentException("Illegal options for exploration log: -record or "
+              + "-replay is needed");
+    }
+  }
+}
+
+// plays an ExplorationLog back, forwards or backwards by any number of events at a time,
+// keeping what each cell has been through so far (nothing, pushed, visited or on the solution)
+// every cell goes through those in order, so going back over an event just takes its cell back
+// one step, and going back is as cheap as going forward
+// holds no cells, only paints them into a grid when asked
+class ExplorationReplay {
+  private final ExplorationLog log;
+
+  // the last kind of event each cell has been through, or 0 if none
+  private final byte[] states;
+
+  // how many events have been played, where the next one starts, and the cell of the last one
+  // played (0 before the first)
+  // not final because they move as the log is played
+  private int position;
+  private int cursor;
+  private int last;
+
+  // how many cells are in each state
+  // not final because they change as the log is played
+  private int pushed;
+  private int visited;
+  private int solution;
+
+  // the cells that have changed since they were last painted, each at most once
+  private final IntQueue changed;
+  private final boolean[] isChanged;
+
+  // not final because going back to the start changes every cell at once
+  private boolean allChanged;
+
+  ExplorationReplay(ExplorationLog log) {
+    this.log = log;
+    this.states = new byte[log.height * log.width];
+    this.position = 0;
+    this.cursor = 0;
+    this.last = 0;
+    this.pushed = 0;
+    this.visited = 0;
+    this.solution = 0;
+    this.changed = new IntQueue();
+    this.isChanged = new boolean[log.height * log.width];
+    this.allChanged = true;
+  }
+
+  // how many events have been played
+  int position() {
+    return this.position;
+  }
+
+  // has every event been played
+  boolean isDone() {
+    return this.position == this.log.events();
+  }
+
+  // the cell of the last event played, or 0 if none has been
+  int lastCell() {
+    return this.last;
+  }
+
+  // the last kind of event the given cell has been through so far, or 0 if none
+  int state(int cell) {
+    return this.states[cell];
+  }
+
+  // how many cells have been pushed but not visited yet
+  int frontier() {
+    return this.pushed;
+  }
+
+  // how many cells have been visited (including the ones on the solution)
+  int visited() {
+    return this.visited + this.solution;
+  }
+
+  // how many cells of the solution have been played
+  int solutionLength() {
+    return this.solution;
+  }
+
+  // returns how many events were played, which is fewer than asked at either end of the log
+  // EFFECT: plays the given number of events forwards, or backwards if it's negative
+  int advance(int events) {
+    int moved = 0;
+    while (events > 0 && this.position < this.log.events()) {
+      long value = this.log.valueAt(this.cursor);
+      this.last += ExplorationLog.deltaOf(value);
+      this.change(this.last, ExplorationLog.kindOf(value));
+      this.cursor = this.log.after(this.cursor);
+      this.position += 1;
+      events -= 1;
+      moved += 1;
+    }
+    while (events < 0 && this.position > 0) {
+      this.cursor = this.log.before(this.cursor);
+      long value = this.log.valueAt(this.cursor);
+      this.change(this.last, ExplorationLog.kindOf(value) - 1);
+      this.last -= ExplorationLog.deltaOf(value);
+      this.position -= 1;
+      events += 1;
+      moved += 1;
+    }
+    return moved;
+  }
+
+  // EFFECT: plays forwards or backwards to just after the given number of events, starting
+  // over from the beginning if that's less to play
+  void seek(int event) {
+    if (event < 0 || event > this.log.events()) {
+      throw new IllegalArgumentException("Illegal event for replay");
+    }
+    if (event < this.position - event) {
+      Arrays.fill(this.states, (byte) 0);
+      this.position = 0;
+      this.cursor = 0;
+      this.last = 0;
+      this.pushed = 0;
+      this.visited = 0;
+      this.solution = 0;
+      this.allChanged = true;
+    }
+    this.advance(event - this.position);
+  }
+
+  // EFFECT: moves the given cell to the given state, counting it and noting it has changed
+  private void change(int cell, int state) {
+    this.count(this.states[cell], -1);
+    this.count(state, 1);
+    this.states[cell] = (byte) state;
+    if (!this.allChanged && !this.isChanged[cell]) {
+      this.isChanged[cell] = true;
+      this.changed.add(cell);
+    }
+  }
+
+  // EFFECT: adds the given amount to the count of cells in the given state
+  private void count(int state, int amount) {
+    if (state == ExplorationLog.PUSH) {
+      this.pushed += amount;
+    } else if (state == ExplorationLog.VISIT) {
+      this.visited += amount;
+    } else if (state == ExplorationLog.SOLUTION) {
+      this.solution += amount;
+    }
+  }
+
+  // EFFECT: colors the cells of the given grid (which must be the size of the log's maze) that
+  // have changed since the last time, the way a search would have, recording the ones whose
+  // color changed in dirty if it isn't null
+  void paint(ArrayList<ArrayList<Cell>> grid, DirtyCells dirty) {
+    if (this.allChanged) {
+      for (int cell = 0; cell < this.states.length; cell += 1) {
+        this.paintCell(grid, dirty, cell);
+      }
+      this.allChanged = false;
+    }
+    while (!this.changed.isEmpty()) {
+      int cell = this.changed.remove();
+      this.isChanged[cell] = false;
+      this.paintCell(grid, dirty, cell);
+    }
+  }
+
+  // EFFECT: colors the given cell for its state
+  private void paintCell(ArrayList<ArrayList<Cell>> grid, DirtyCells dirty, int cell) {
+    Cell c = grid.get(cell / this.log.width).get(cell % this.log.width);
+    byte clr = Palette.UNVISITED;
+    if (this.states[cell] == ExplorationLog.VISIT) {
+      clr = Palette.EXPLORED;
+    } else if (this.states[cell] == ExplorationLog.SOLUTION) {
+      clr = Palette.SOLUTION;
+    }
+    if (c.recolor(clr) && dirty != null) {
+      dirty.mark(c);
+    }
+  }
+}
@@ -0,0 +1,176 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+
+// keeps rolling timings of the maze's entry points (drawing, ticking and key presses), how
+// many cells each frame drew and how fast memory is being allocated, so we can see why
+// the game stutters, either on screen or in a log when there is no screen
+class FrameStats {
+
+  // the entry points we time
+  static final int SCENE = 0;
+  static final int TICK = 1;
+  static final int KEY = 2;
+  private static final String[] NAMES = {"scene", "tick", "key"};
+
+  // how many of the latest samples of each entry point the percentiles are taken over
+  private static final int WINDOW = 240;
+
+  // how often the on screen text and the log are refreshed, in nanoseconds
+  private static final long REFRESH = 1000000000L;
+
+  // the latest durations of each entry point in nanoseconds, as rings of WINDOW samples
+  private final long[][] durations;
+
+  // how many samples of each entry point have been recorded in all
+  private final int[] counts;
+
+  // how many cells each of the latest frames drew, as a ring of WINDOW samples
+  private final int[] cells;
+
+  // not final because they count up as frames are drawn
+  // how many frames have been drawn, and how many cells the frame being drawn has drawn so far
+  private int frames;
+  private int cellsThisFrame;
+
+  // not final because they are updated every time the stats are refreshed
+  // when (and how many bytes this thread had allocated when) the stats were last refreshed,
+  // when is -1 until the first refresh
+  private long refreshedAt;
+  private long allocatedAt;
+
+  // the text shown on screen, only redone once every REFRESH so it's readable
+  // not final because it is redone as the stats change
+  private String summary;
+
+  FrameStats() {
+    this.durations = new long[NAMES.length][WINDOW];
+    this.counts = new int[NAMES.length];
+    this.cells = new int[WINDOW];
+    this.frames = 0;
+    this.cellsThisFrame = 0;
+    this.refreshedAt = -1;
+    this.allocatedAt = 0;
+    this.summary = "";
+  }
+
+  // the time an entry point started, to be handed back to end
+  long begin() {
+    return System.nanoTime();
+  }
+
+  // EFFECT: records how long the given entry point took, if it began at the given time
+  void end(int kind, long began) {
+    this.record(kind, System.nanoTime() - began);
+  }
+
+  // EFFECT: records a duration in nanoseconds for the given entry point, finishing the frame
+  // if it is a scene
+  void record(int kind, long nanos) {
+    if (kind < 0 || kind >= NAMES.length) {
+      throw new IllegalArgumentException("Illegal entry point for stats");
+    }
+    this.durations[kind][this.counts[kind] % WINDOW] = nanos;
+    this.counts[kind] += 1;
+    if (kind == SCENE) {
+      this.cells[this.frames % WINDOW] = this.cellsThisFrame;
+      this.frames += 1;
+      this.cellsThisFrame = 0;
+    }
+  }
+
+  // EFFECT: counts cells drawn by the frame being drawn
+  void drew(int cellCount) {
+    this.cellsThisFrame += cellCount;
+  }
+
+  // the given percentile (0 to 100) of the latest durations of an entry point in nanoseconds,
+  // or 0 if it hasn't happened yet
+  long percentile(int kind, double p) {
+    int n = Math.min(this.counts[kind], WINDOW);
+    if (n == 0) {
+      return 0;
+    }
+    long[] sorted = Arrays.copyOf(this.durations[kind], n);
+    Arrays.sort(sorted);
+    // nearest rank, so p99 of fewer than 100 samples is the slowest one
+    int rank = (int) Math.ceil(p / 100 * n);
+    return sorted[Math.max(0, Math.min(n, rank) - 1)];
+  }
+
+  // the average number of cells drawn by the latest frames
+  double cellsPerFrame() {
+    int n = Math.min(this.frames, WINDOW);
+    if (n == 0) {
+      return 0;
+    }
+    long total = 0;
+    for (int i = 0; i < n; i += 1) {
+      total += this.cells[i];
+    }
+    return (double) total / n;
+  }
+
+  // the bytes allocated so far by the current thread, or -1 if this jvm can't tell us
+  // the game is drawn, ticked and given keys on one thread, so this is what it allocates
+  static long allocatedBytes() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean counting = (com.sun.management.ThreadMXBean) threads;
+      if (counting.isThreadAllocatedMemorySupported()
+              && counting.isThreadAllocatedMemoryEnabled()) {
+        return counting.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+
+  // the text to show on screen, redone at most once a second
+  // EFFECT: refreshes the text if it's been long enough
+  String summary() {
+    this.refreshIfDue(System.nanoTime());
+    return this.summary;
+  }
+
+  // EFFECT: prints the stats to out if they were refreshed, which happens at most once a
+  // second, for runs where there's no screen to show them on
+  void logIfDue(PrintStream out) {
+    if (this.refreshIfDue(System.nanoTime())) {
+      out.println(this.summary);
+    }
+  }
+
+  // returns if the stats were refreshed
+  // EFFECT: redoes the summary, with the allocation rate since the last refresh, if it's been
+  // long enough since the last one
+  boolean refreshIfDue(long now) {
+    if (this.refreshedAt >= 0 && now - this.refreshedAt < REFRESH) {
+      return false;
+    }
+    long allocated = FrameStats.allocatedBytes();
+    String rate = "alloc n/a";
+    if (allocated >= 0 && this.refreshedAt >= 0) {
+      double seconds = (now - this.refreshedAt) / 1e9;
+      rate = String.format(Locale.ROOT, "alloc %.1f MB/s",
+              (allocated - this.allocatedAt) / seconds / 1e6);
+    }
+    this.refreshedAt = now;
+    this.allocatedAt = allocated;
+    this.summary = this.describe() + " | " + rate;
+    return true;
+  }
+
+  // the percentiles of each entry point and the cells drawn per frame, in milliseconds
+  // written with a '.' whatever the locale, so logs read the same everywhere
+  String describe() {
+    StringBuilder text = new StringBuilder();
+    for (int kind = 0; kind < NAMES.length; kind += 1) {
+      text.append(String.format(Locale.ROOT, "%s p50 %.2f p99 %.2f | ", NAMES[kind],
+              this.percentile(kind, 50) / 1e6, this.percentile(kind, 99) / 1e6));
+    }
+    text.append(String.format(Locale.ROOT, "%.0f cells/frame", this.cellsPerFrame()));
+    return text.toString();
+  }
+}
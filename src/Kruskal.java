@@ -1,46 +1,79 @@
 import javalib.worldimages.Posn;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 
 // takes an arraylist and gets a minimum spanning tree
 class Kruskal {
 
-  private final HashMap<Posn, Posn> representatives;
   private final ArrayList<Path> worklist;
 
+  // width of the grid, to turn a cell's position into its index (y * width + x)
+  private final int width;
+
+  // the representative of each cell by index, a cell is its own representative if it's the
+  // root of its tree
+  // an array instead of a map from posns, so finding a representative is just array reads
+  private final int[] representatives;
+
   // not final because we need to update the size of the graph once we've processed it
   private int sizeOfGraph;
 
   // EFFECT: mutates the list of paths to be in sorted weight order
   Kruskal(ArrayList<Path> list, ArrayList<ArrayList<Cell>> grid) {
-    // sort list before start kruskals
-    new Quicksort<Path>(list).quicksort();
+    this(list, grid, new int[grid.size() * grid.get(0).size()]);
+  }
+
+  // uses the given array for the representatives, so remaking a maze of the same size
+  // doesn't need a new one
+  // EFFECT: mutates the list of paths to be in sorted weight order
+  Kruskal(ArrayList<Path> list, ArrayList<ArrayList<Cell>> grid, int[] representatives) {
+    if (representatives.length < grid.size() * grid.get(0).size()) {
+      throw new IllegalArgumentException("Illegal representatives for grid");
+    }
+    // sort list before start kruskals (quicksort sorts it when it's made)
+    new Quicksort<Path>(list);
     this.worklist = list;
-    this.sizeOfGraph = 0;
-    this.representatives = this.initializeHashMap(grid);
+    this.width = grid.get(0).size();
+    this.sizeOfGraph = grid.size() * this.width;
+    this.representatives = representatives;
+    for (int i = 0; i < this.sizeOfGraph; i += 1) {
+      this.representatives[i] = i;
+    }
   }
 
   // creates a minimum spanning tree
-  // EFFECT: removes every path in the worklist and processes it
   ArrayList<Path> createMST() {
-    int i = 0;
-    ArrayList<Path> pathsInTree = new ArrayList<Path>();
-    while (i < sizeOfGraph - 1) {
-      Path nextPath = worklist.remove(0);
-      Cell x = nextPath.from;
-      Cell y = nextPath.to;
-      // We looked at the posn class and it has a .equals method
-      // which tests for extentional equality
-      if (!this.find(x.pos).equals(this.find(y.pos))) {
+    return this.createMST(new ArrayList<Path>());
+  }
+
+  // creates a minimum spanning tree in the given list, so it can be reused
+  // goes through the worklist in order rather than removing from its front, which would shift
+  // every other path down each time
+  // EFFECT: clears pathsInTree and adds the paths of the tree to it
+  ArrayList<Path> createMST(ArrayList<Path> pathsInTree) {
+    pathsInTree.clear();
+    int next = 0;
+    while (pathsInTree.size() < sizeOfGraph - 1 && next < this.worklist.size()) {
+      Path nextPath = this.worklist.get(next);
+      next += 1;
+      int x = this.find(this.indexOf(nextPath.from));
+      int y = this.find(this.indexOf(nextPath.to));
+      if (x != y) {
         pathsInTree.add(nextPath);
-        this.union(find(x.pos), find(y.pos));
-        i += 1;
+        this.union(x, y);
       }
     }
     return pathsInTree;
   }
 
+  // the index of the given cell in the representatives
+  private int indexOf(Cell c) {
+    return c.pos.y * this.width + c.pos.x;
+  }
+
   // We did not test find and union
   // We didn't test it after talking with a TA, and we decided this was the best design decision
   // find and union should be private, because we don't want a user to be able to mess
@@ -48,28 +81,72 @@ class Kruskal {
   // in createMST();. We believed making it private was more important.
 
   // find the representative
-  private Posn find(Posn pos) {
-    if (!pos.equals(this.representatives.get(pos))) {
-      return this.find(this.representatives.get(pos));
+  // EFFECT: points every other cell on the way at its grandparent, so later finds are shorter
+  private int find(int cell) {
+    return Kruskal.find(this.representatives, cell);
+  }
+
+  // find the representative of the given node in the given representatives
+  // EFFECT: points every other node on the way at its grandparent, so later finds are shorter
+  private static int find(int[] representatives, int node) {
+    while (representatives[node] != node) {
+      representatives[node] = representatives[representatives[node]];
+      node = representatives[node];
+    }
+    return node;
+  }
+
+  // the edges of a minimum spanning tree of the given graph (a forest, if the graph is in
+  // pieces), taking the edges in order of the given weights, one for each edge
+  // the weights are packed with their edges into longs and sorted as numbers, which is much
+  // faster than sorting objects for the big graphs these are used on
+  static BitSet spanningTree(MazeGraph graph, int[] weights) {
+    if (weights.length != graph.edges) {
+      throw new IllegalArgumentException("Illegal weights for graph");
+    }
+    MazePhase phase = new MazePhase("kruskal");
+    long[] order = new long[graph.edges];
+    for (int e = 0; e < graph.edges; e += 1) {
+      if (weights[e] < 0) {
+        throw new IllegalArgumentException("Illegal weights for graph");
+      }
+      order[e] = ((long) weights[e] << 32) | e;
+    }
+    Arrays.sort(order);
+    int[] representatives = new int[graph.nodes];
+    for (int n = 0; n < graph.nodes; n += 1) {
+      representatives[n] = n;
+    }
+    BitSet tree = new BitSet(graph.edges);
+    int joined = 0;
+    for (int i = 0; i < order.length && joined < graph.nodes - 1; i += 1) {
+      int e = (int) order[i];
+      int x = Kruskal.find(representatives, graph.from(e));
+      int y = Kruskal.find(representatives, graph.to(e));
+      if (x != y) {
+        tree.set(e);
+        representatives[x] = y;
+        joined += 1;
+      }
     }
-    return pos;
+    phase.end(MazeMetrics.SHARED, graph.nodes, graph.edges, 0, 0);
+    return tree;
   }
 
   // unions two representatives
-  private void union(Posn pos1, Posn pos2) {
-    this.representatives.put(pos1, pos2);
+  private void union(int rep1, int rep2) {
+    this.representatives[rep1] = rep2;
   }
 
-  // initalizes every node's representative to itself
+  // initalizes every node's representative to itself, keyed by posn
   // we made initalizeHashMap public because it does not mutate, so our data cannot
   // be messed with by invoking this method
+  // createMST uses the representatives array instead, this is the same starting point as a map
   HashMap<Posn, Posn> initializeHashMap(ArrayList<ArrayList<Cell>> grid) {
     HashMap<Posn, Posn> tempMap = new HashMap<Posn, Posn>();
-    // updates the size of our graph and initalizes every node's representative
-    // to itself
+    // initalizes every node's representative to itself
     for (ArrayList<Cell> row : grid) {
       for (Cell cell : row) {
-        this.sizeOfGraph += 1;
         tempMap.put(cell.pos, cell.pos);
       }
     }
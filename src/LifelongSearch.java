@@ -0,0 +1,294 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+// finds the shortest route between two cells of a maze and keeps it up to date as walls are
+// added and removed, redoing only the cells whose distance from the start the change affects
+// this is lifelong planning a* (Koenig and Likhachev): every cell has its distance as last
+// worked out (g) and what its neighbors say it should be (rhs), and only cells where the two
+// disagree are put on the heap, in a* order towards the end
+// it keeps its own copy of which ways are open, so it's told about every wall that changes
+class LifelongSearch {
+
+  // the distance of a cell we can't (yet) get to
+  private static final int INFINITY = Integer.MAX_VALUE / 4;
+
+  final int height;
+  final int width;
+  private final int start;
+  private final int end;
+
+  // how far the cell index moves going each way, in MazeTopology's direction order
+  private final int[] steps;
+
+  // a bit for each direction that's open out of each cell, changed as walls are
+  private final byte[] open;
+
+  // each cell's distance from the start as last worked out, and what its neighbors' distances
+  // say it should be
+  private final int[] g;
+  private final int[] rhs;
+
+  // the cells whose two distances disagree, as a binary heap ordered by their keys, with where
+  // each cell is in the heap plus one (0 if it isn't)
+  private final int[] heap;
+  private final long[] keys;
+  private final int[] heapIndex;
+
+  // not final because it grows and shrinks as cells go on and off the heap
+  private int heapSize;
+
+  // the route found by the last plan, from the start to the end, and the cells on it
+  // not final because every plan replaces it
+  private int[] route;
+  private final BitSet onRoute;
+
+  // how many cells the last plan took off the heap
+  // not final because every plan counts again
+  private int expanded;
+
+  LifelongSearch(MazeTopology maze, int start, int end) {
+    if (start < 0 || start >= maze.cells() || end < 0 || end >= maze.cells()) {
+      throw new IllegalArgumentException("Illegal start/end for search");
+    }
+    this.height = maze.height;
+    this.width = maze.width;
+    this.start = start;
+    this.end = end;
+    this.steps = new int[] {-this.width, 1, this.width, -1};
+    this.open = new byte[maze.cells()];
+    for (int cell = 0; cell < this.open.length; cell += 1) {
+      for (int dir = MazeTopology.UP; dir <= MazeTopology.LEFT; dir += 1) {
+        if (maze.isOpen(cell, dir)) {
+          this.open[cell] |= 1 << dir;
+        }
+      }
+    }
+    this.g = new int[maze.cells()];
+    this.rhs = new int[maze.cells()];
+    Arrays.fill(this.g, INFINITY);
+    Arrays.fill(this.rhs, INFINITY);
+    this.heap = new int[maze.cells()];
+    this.keys = new long[maze.cells()];
+    this.heapIndex = new int[maze.cells()];
+    this.heapSize = 0;
+    this.route = new int[0];
+    this.onRoute = new BitSet();
+    this.rhs[start] = 0;
+    this.push(start);
+  }
+
+  // EFFECT: puts up (or takes down) the wall between two neighboring cells, so the next plan
+  // works around it
+  void setWall(int a, int b, boolean isWall) {
+    int dir = this.directionOf(a, b);
+    if (isWall) {
+      this.open[a] &= ~(1 << dir);
+      this.open[b] &= ~(1 << ((dir + 2) % 4));
+    } else {
+      this.open[a] |= 1 << dir;
+      this.open[b] |= 1 << ((dir + 2) % 4);
+    }
+    this.update(a);
+    this.update(b);
+  }
+
+  // is there a way between the given neighboring cells
+  boolean isOpen(int a, int b) {
+    return (this.open[a] & (1 << this.directionOf(a, b))) != 0;
+  }
+
+  // the direction the second cell is in from the first, which must be its neighbor
+  private int directionOf(int a, int b) {
+    int cells = this.open.length;
+    if (a < 0 || a >= cells || b < 0 || b >= cells) {
+      throw new IllegalArgumentException("Illegal cells for wall");
+    }
+    if (b == a - this.width) {
+      return MazeTopology.UP;
+    } else if (b == a + this.width) {
+      return MazeTopology.DOWN;
+    } else if (b == a + 1 && b % this.width != 0) {
+      return MazeTopology.RIGHT;
+    } else if (b == a - 1 && a % this.width != 0) {
+      return MazeTopology.LEFT;
+    }
+    throw new IllegalArgumentException("Illegal cells for wall");
+  }
+
+  // returns how many cells it had to look at again
+  // EFFECT: brings the distances up to date with the walls, as far as the route needs, and
+  // finds the route again
+  int plan() {
+    this.expanded = 0;
+    while (this.heapSize > 0
+            && (this.keys[this.heap[0]] < this.keyOf(this.end)
+                || this.rhs[this.end] != this.g[this.end])) {
+      int cell = this.pop();
+      this.expanded += 1;
+      if (this.g[cell] > this.rhs[cell]) {
+        // it got closer, which can bring its neighbors closer
+        this.g[cell] = this.rhs[cell];
+      } else {
+        // it got further, so it and its neighbors have to be worked out again
+        this.g[cell] = INFINITY;
+        this.update(cell);
+      }
+      for (int dir = MazeTopology.UP; dir <= MazeTopology.LEFT; dir += 1) {
+        if ((this.open[cell] & (1 << dir)) != 0) {
+          this.update(cell + this.steps[dir]);
+        }
+      }
+    }
+    this.findRoute();
+    return this.expanded;
+  }
+
+  // the route found by the last plan, from the start to the end, or no cells if the walls
+  // cut them off from each other
+  int[] route() {
+    return this.route;
+  }
+
+  // is the given cell on the route found by the last plan
+  boolean isOnRoute(int cell) {
+    return this.onRoute.get(cell);
+  }
+
+  // how far the given cell is from the start, or -1 if it's cut off or the plans haven't
+  // needed to know
+  int distance(int cell) {
+    if (this.g[cell] >= INFINITY || this.g[cell] != this.rhs[cell]) {
+      return -1;
+    }
+    return this.g[cell];
+  }
+
+  // EFFECT: works out the route by going back from the end to the neighbor closest to the start
+  private void findRoute() {
+    for (int cell : this.route) {
+      this.onRoute.clear(cell);
+    }
+    if (this.g[this.end] >= INFINITY) {
+      this.route = new int[0];
+      return;
+    }
+    int[] back = new int[this.g[this.end] + 1];
+    int cell = this.end;
+    for (int i = 0; cell != this.start; i += 1) {
+      back[i] = cell;
+      int closest = -1;
+      for (int dir = MazeTopology.UP; dir <= MazeTopology.LEFT; dir += 1) {
+        int next = cell + this.steps[dir];
+        if ((this.open[cell] & (1 << dir)) != 0
+                && (closest < 0 || this.g[next] < this.g[closest])) {
+          closest = next;
+        }
+      }
+      cell = closest;
+    }
+    back[back.length - 1] = this.start;
+    this.route = new int[back.length];
+    for (int i = 0; i < back.length; i += 1) {
+      this.route[i] = back[back.length - 1 - i];
+      this.onRoute.set(this.route[i]);
+    }
+  }
+
+  // EFFECT: works out what the given cell's distance should be from its neighbors, putting it
+  // on the heap if that's different from what it is
+  private void update(int cell) {
+    if (cell != this.start) {
+      int best = INFINITY;
+      for (int dir = MazeTopology.UP; dir <= MazeTopology.LEFT; dir += 1) {
+        if ((this.open[cell] & (1 << dir)) != 0) {
+          best = Math.min(best, this.g[cell + this.steps[dir]] + 1);
+        }
+      }
+      this.rhs[cell] = Math.min(best, INFINITY);
+    }
+    if (this.heapIndex[cell] != 0) {
+      this.remove(cell);
+    }
+    if (this.g[cell] != this.rhs[cell]) {
+      this.push(cell);
+    }
+  }
+
+  // the order the given cell comes off the heap: by its a* estimate of the route through it,
+  // then by its distance, packed into one long
+  private long keyOf(int cell) {
+    int distance = Math.min(this.g[cell], this.rhs[cell]);
+    int estimate = Math.abs(cell % this.width - this.end % this.width)
+            + Math.abs(cell / this.width - this.end / this.width);
+    return ((long) (distance + estimate) << 32) | distance;
+  }
+
+  // EFFECT: puts the given cell on the heap
+  private void push(int cell) {
+    this.keys[cell] = this.keyOf(cell);
+    this.heap[this.heapSize] = cell;
+    this.heapIndex[cell] = this.heapSize + 1;
+    this.heapSize += 1;
+    this.siftUp(this.heapSize - 1);
+  }
+
+  // returns the cell with the smallest key
+  // EFFECT: takes it off the heap
+  private int pop() {
+    int top = this.heap[0];
+    this.remove(top);
+    return top;
+  }
+
+  // EFFECT: takes the given cell, which must be on the heap, off it
+  private void remove(int cell) {
+    int at = this.heapIndex[cell] - 1;
+    this.heapIndex[cell] = 0;
+    this.heapSize -= 1;
+    if (at == this.heapSize) {
+      return;
+    }
+    int last = this.heap[this.heapSize];
+    this.heap[at] = last;
+    this.heapIndex[last] = at + 1;
+    this.siftUp(at);
+    this.siftDown(this.heapIndex[last] - 1);
+  }
+
+  // EFFECT: moves the cell at the given place up the heap until its parent's key is smaller
+  private void siftUp(int at) {
+    int cell = this.heap[at];
+    while (at > 0) {
+      int parent = (at - 1) / 2;
+      if (this.keys[this.heap[parent]] <= this.keys[cell]) {
+        break;
+      }
+      this.heap[at] = this.heap[parent];
+      this.heapIndex[this.heap[at]] = at + 1;
+      at = parent;
+    }
+    this.heap[at] = cell;
+    this.heapIndex[cell] = at + 1;
+  }
+
+  // EFFECT: moves the cell at the given place down the heap until its children's keys are
+  // bigger
+  private void siftDown(int at) {
+    int cell = this.heap[at];
+    while (2 * at + 1 < this.heapSize) {
+      int child = 2 * at + 1;
+      if (child + 1 < this.heapSize
+              && this.keys[this.heap[child + 1]] < this.keys[this.heap[child]]) {
+        child += 1;
+      }
+      if (this.keys[cell] <= this.keys[this.heap[child]]) {
+        break;
+      }
+      this.heap[at] = this.heap[child];
+      this.heapIndex[this.heap[at]] = at + 1;
+      at = child;
+    }
+    this.heap[at] = cell;
+    this.heapIndex[cell] = at + 1;
+  }
+}
@@ -2,6 +2,12 @@ import javalib.impworld.*;
 import javalib.worldimages.*;
 
 import java.awt.Color;
+import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
 
 import tester.Tester;
 
@@ -15,28 +21,53 @@ enum MazeType {
 // represents a maze
 class Maze extends World {
 
+  // how long knocking the walls down and showing a search's exploration take when animating,
+  // and the most of a tick either may spend, in milliseconds
+  static final long WALL_ANIMATION_MILLIS = 2000;
+  static final long EXPLORE_ANIMATION_MILLIS = 3000;
+  static final long TICK_BUDGET_MILLIS = 8;
+
   // width and height of our scene
   private final int width;
   private final int height;
 
   // all the cells in our maze
-  // not final because we allow the user to design a new random maze
+  // not final because it is made the first time the maze is reset, new random mazes after
+  // that reuse its cells
   private ArrayList<ArrayList<Cell>> grid;
 
+  // the grid with the paths between its cells and the buffers its mazes are made with, handed
+  // back with the grid when a maze built in the background is swapped in
+  // not final because it is made with the grid, and swapped with it
+  private RebuiltGrid built;
+
   // user's current location in the maze
   // not final because the user can change the current location
   private Posn curLoc;
 
-  // size of our cells
+  // size of our cells when the whole maze fits on screen
+  // at least 1, since bigger mazes are scrolled through with the viewport
   private final int cellSize;
 
-  // random for generating path weights
-  private final Random rand;
+  // the part of the maze that is on screen
+  private final Viewport view;
+
+  // makes the grids and random path weights for our mazes
+  private final MazeGenerator generator;
+
+  // builds the next maze of each type in the background, so a new maze is just swapped in
+  private final MazePregenerator pregenerator;
+
+  // if there's enough memory to keep a maze of each type ready
+  private final boolean isPregenerating;
 
   // an object storing our depth and breadth first search
   // not final because we create a new search if we reset the maze
   private Search search;
 
+  // runs the searches the user asks for off the event thread, so big mazes don't freeze
+  private final BackgroundSolver solver;
+
   // not final because we can reset the maze and create a new arraylist
   private ArrayList<Cell> cellsPlayerVisited;
 
@@ -56,6 +87,68 @@ class Maze extends World {
   // not final since we allow the user to design a new random maze
   private ArrayList<Path> mst;
 
+  // how many walls of the mst have been removed, the maze is still being built until it's
+  // reached the end of the mst
+  // not final because it moves forward as the walls are removed
+  private int mstIndex;
+
+  // how fast the walls come down and the exploration is shown when animating
+  // each finishes in about the same time no matter how big the maze is
+  private final AnimationScheduler wallPace;
+  private final AnimationScheduler explorePace;
+
+  // the cells that changed since the last frame, so makeScene only redraws those
+  private final DirtyCells dirty;
+
+  // the scene drawn last frame, which the next frame draws its changed cells on top of when
+  // the maze is drawn cell by cell
+  // not final because it is rebuilt from scratch once too many images pile up on it
+  private WorldScene lastScene;
+
+  // how many images are on the last scene, every one of which javalib draws each frame
+  private int imagesOnScene;
+
+  // the messages shown under the maze last frame, the scene is rebuilt when they change
+  private String lastMessages;
+
+  // not final because it is a toggle
+  // toggles if the maze is painted into one pixel buffer instead of drawn cell by cell
+  // javalib draws every image on a scene every frame, so only the pixel buffer makes a frame
+  // cost as much as the cells that changed, drawing cell by cell costs every visible cell
+  private boolean isRaster;
+
+  // paints the maze when isRaster is on
+  // not final because it is only made the first time we paint the maze this way
+  private RasterRenderer raster;
+
+  // smaller pictures of the maze, for when it is zoomed out past a pixel per cell
+  // not final because it is only made the first time we zoom out that far
+  private MazeMipmap mipmap;
+
+  // how long drawing, ticking and key presses take, so we can see why the game stutters
+  private final FrameStats stats;
+
+  // not final because it is a toggle
+  // toggles if the stats are shown under the maze
+  private boolean isShowingStats;
+
+  // if the stats are printed every so often, for runs with no screen to show them on
+  private final boolean isLoggingStats;
+
+  // keeps the route from the start to the end up to date as the user adds and removes walls
+  // not final because it's made once the walls have all come down, so every change is repaired
+  // from what it knew before, and is forgotten when a new maze starts
+  private LifelongSearch planner;
+
+  // if the search the user last asked for was depth first, so it can be run again after a
+  // wall changes
+  // not final because it changes with each search
+  private boolean isDepthFirst;
+
+  // not final because it changes as the player moves
+  // the way the player last tried to move, whose wall "w" toggles
+  private String facing;
+
   Maze(int height, int width) {
     this(height, width, new Random());
   }
@@ -65,13 +158,25 @@ class Maze extends World {
     if (height <= 0 || width <= 0) {
       throw new IllegalArgumentException("Illegal width/height for maze");
     }
-    this.rand = seed;
     this.width = width;
     this.height = height;
 
     // our bigbang will be 720 pixels wide
     int minDimension = Math.max(height, width);
-    this.cellSize = 720 / minDimension;
+    this.cellSize = Math.max(1, 720 / minDimension);
+    this.generator = new MazeGenerator(seed, this.cellSize);
+    this.pregenerator = new MazePregenerator(height, width, this.cellSize, seed);
+    this.solver = new BackgroundSolver();
+    this.isPregenerating = this.pregenerator.fits();
+    this.view = new Viewport(height, width, 720, 720);
+    this.dirty = new DirtyCells(height, width);
+    this.isRaster = true;
+    this.wallPace = new AnimationScheduler(WALL_ANIMATION_MILLIS, TICK_BUDGET_MILLIS);
+    this.explorePace = new AnimationScheduler(EXPLORE_ANIMATION_MILLIS, TICK_BUDGET_MILLIS);
+    this.stats = new FrameStats();
+    this.isShowingStats = false;
+    this.isLoggingStats = GraphicsEnvironment.isHeadless();
+    this.facing = "right";
 
     // initalizes maze normally
     this.resetMaze(MazeType.NORMAL);
@@ -79,8 +184,8 @@ class Maze extends World {
     // doesn't matter which search we use here because we are only using it for the solution,
     // which is same for both bfs/dfs. If the user selects bfs/dfs, this field is mutated
     // to be the correct search
-    this.search = new Search(new Queue<Cell>(),
-            this.grid.get(0).get(0), this.grid.get(height - 1).get(width - 1));
+    this.search = new Search(new IntQueue(), this.grid,
+            this.grid.get(0).get(0), this.grid.get(height - 1).get(width - 1), this.dirty);
 
     // we threw an exception, so the grid needs to be at least 1x1
     this.curLoc = new Posn(0, 0);
@@ -93,47 +198,98 @@ class Maze extends World {
   // We did not test this since it is private (and mutates a lot - so we didn't want it to
   // be public). However, it is a pretty basic method since it just
   private void resetMaze(MazeType type) {
-    this.searchedMaze = false;
+    // the old maze's search mustn't be reading the grid while it's remade
+    this.solver.cancel();
+    // construct the grid the first time, after that the same grid is remade in place
+    if (this.built == null) {
+      this.built = this.generator.build(this.constructGrid(height, width), type);
+    } else {
+      this.generator.rebuild(this.built, type);
+    }
+    this.grid = this.built.grid;
+    this.mst = this.built.tree;
+    this.startMaze();
+  }
 
-    // construct grid
-    ArrayList<ArrayList<Cell>> tempGrid = this.constructGrid(height, width);
-    ArrayList<Path> allPaths = this.connectGrid(tempGrid, type);
-    this.mst = new Kruskal(allPaths, tempGrid).createMST();
+  // EFFECT: starts a new maze of the given type, swapping in the one built in the background
+  // if there is one, and handing the old grid back to be made into the next one
+  private void newMaze(MazeType type) {
+    if (!this.pregenerator.isPreparing(type)) {
+      this.resetMaze(type);
+      return;
+    }
+    this.solver.cancel();
+    PregeneratedMaze ready = this.pregenerator.take(type);
+    RebuiltGrid old = this.built;
+    this.built = ready.built;
+    this.grid = ready.grid;
+    this.mst = ready.mst;
+    this.startMaze();
+    // nothing refers to the old grid's cells anymore now that the new maze has started
+    this.pregenerator.prepare(type, old);
+  }
 
-    this.grid = tempGrid;
+  // EFFECT: starts playing the maze whose grid and mst were just made, knocking its walls
+  // down (or starting to) and putting the player back at the start
+  private void startMaze() {
+    this.searchedMaze = false;
+    this.planner = null;
+    this.mstIndex = 0;
+    this.dirty.markAll();
+    if (this.mipmap != null) {
+      this.mipmap.rebuild(this.grid);
+    }
 
     // EXTRA CREDIT (WHISTLE 1)
-    // If you want to reconstruct walls on tick, comment this out
-    // I didn't make it an onKeyEvent because wall construction is slow.
-    while (!this.mst.isEmpty()) {
-      Path path = this.mst.remove(0);
-      path.removeWall();
+    // the walls come down on tick unless the user wants everything shown immediately
+    if (this.isImmediate) {
+      MazePhase phase = new MazePhase("removeWalls");
+      while (this.isBuilding()) {
+        this.removeNextWall();
+      }
+      phase.end(MazeMetrics.SHARED, (long) this.height * this.width, this.mst.size(), 0, 0);
+      // only checked when assertions are on (java -ea)
+      assert MazeValidator.check(this.grid);
+    } else {
+      this.wallPace.start(this.mst.size());
     }
 
     this.resetColor();
     this.curLoc = new Posn(0, 0);
-    this.cellsPlayerVisited = new ArrayList<Cell>();
-    this.search = new Search(new Queue<Cell>(),
-            this.grid.get(0).get(0), this.grid.get(height - 1).get(width - 1));
+    this.view.follow(this.curLoc);
+    if (this.cellsPlayerVisited == null) {
+      this.cellsPlayerVisited = new ArrayList<Cell>();
+    }
+    this.cellsPlayerVisited.clear();
+    if (this.isImmediate) {
+      this.findSolution();
+    } else {
+      // the walls are still up, so this search can't get anywhere until they're down
+      this.search = new Search(new IntQueue(), this.grid,
+              this.grid.get(0).get(0), this.grid.get(height - 1).get(width - 1), this.dirty);
+    }
+    // the walls are already down if they came down all at once, or if there weren't any
+    if (!this.isBuilding()) {
+      this.startPlanner();
+    }
+
+  }
+
+  // is the maze still having its walls removed
+  private boolean isBuilding() {
+    return this.mstIndex < this.mst.size();
+  }
 
+  // EFFECT: removes the next wall of the mst
+  private void removeNextWall() {
+    this.mst.get(this.mstIndex).removeWall(this.dirty);
+    this.mstIndex += 1;
   }
 
   // creates a grid with each cell having a posn of its location
   // we made this public because it doesn't mutate or effect any of our code
   ArrayList<ArrayList<Cell>> constructGrid(int height, int width) {
-    ArrayList<ArrayList<Cell>> temp = new ArrayList<ArrayList<Cell>>();
-
-    // adds each row to the grid
-    for (int i = 0; i < height; i += 1) {
-      ArrayList<Cell> row = new ArrayList<Cell>();
-
-      // adds a cell with a position to a row
-      for (int j = 0; j < width; j += 1) {
-        row.add(new Cell(new Posn(j, i), this.cellSize));
-      }
-      temp.add(row);
-    }
-    return temp;
+    return this.generator.constructGrid(height, width);
   }
 
   // EFFECT: updates the grid's cells to have the correct paths with random weights
@@ -141,99 +297,177 @@ class Maze extends World {
   // Not private because no matter what grid the user passes, this method should
   // always return the same list of edges and connect the same nodes.
   ArrayList<Path> connectGrid(ArrayList<ArrayList<Cell>> grid, MazeType type) {
-    ArrayList<Path> paths = new ArrayList<Path>();
-
-    // loops through the rows of a grid
-    for (int i = 0; i < grid.size(); i += 1) {
-      ArrayList<Cell> row = grid.get(i);
-
-      // loops through the cells in a row
-      for (int j = 0; j < row.size(); j += 1) {
-        Cell currCell = row.get(j);
-
-        // extra credit (bell 4)
-        // if we wanted to only have a bias in a certain direction, we would just change the
-        // bound to be something like 200, instead of adding 100 directly after the random
-        // number was generated. Currently, if we chose a vertical maze it would be impossible for
-        // a horizontal edge to remain, but if we make a bound of 200, it would just be weighted
-        // differently, since a random number below 100 could still appear.
-
-        // if there is a cell on the right adds it to the path and updates the cell
-        if (j + 1 < row.size()) {
-          int valToAdd = 0;
-          if (type == MazeType.VERTICAL) {
-            valToAdd = 101;
-          }
-          Path newPath = new Path(currCell, row.get(j + 1), rand.nextInt(100) + valToAdd);
-          paths.add(newPath);
-        }
-
-        // if there is a cell below adds it to the path and updates the cell
-        if (i + 1 < grid.size()) {
-          int valToAdd = 0;
-          if (type == MazeType.HORIZONTAL) {
-            valToAdd = 101;
-          }
-          Path newPath = new Path(currCell, grid.get(i + 1).get(j), rand.nextInt(100) + valToAdd);
-          paths.add(newPath);
-        }
-      }
-    }
-    return paths;
+    return this.generator.connectGrid(grid, type);
   }
 
   // creates our scene
+  // only the cells that changed since the last frame are drawn, on top of the last frame
 
   /**
    * For javadoc autograder
    * @return our worldscene
    */
   public WorldScene makeScene() {
-    WorldScene scene = new WorldScene(this.width, this.height);
-    // display grid on worldscene
-    for (int i = 0; i < this.grid.size(); i += 1) {
-      ArrayList<Cell> row = this.grid.get(i);
-      for (int j = 0; j < row.size(); j += 1) {
-        Cell curr = row.get(j);
-        if (i == 0 && j == 0) {
-          curr.clr = new Color(0, 100, 0);
-        } else if (i == this.grid.size() - 1 && j == row.size() - 1) {
-          curr.clr = new Color(128, 0, 128);
-        } else if (j == this.curLoc.x && i == this.curLoc.y) {
-          curr.clr = new Color(0, 255,0);
+    long began = this.stats.begin();
+    WorldScene scene = this.drawScene();
+    this.stats.end(FrameStats.SCENE, began);
+    return scene;
+  }
+
+  // draws the scene, on top of the last frame's unless it has to start over
+  private WorldScene drawScene() {
+    if (this.view.takeMoved()) {
+      this.dirty.markAll();
+    }
+    this.paintMarkers();
+    // only the raster can draw more than one cell per pixel
+    if (this.isRaster || this.view.level() > 0) {
+      return this.makeRasterScene();
+    }
+    String solved = this.solvedMessage();
+    String searched = this.searchMessage();
+    String hud = this.statsMessage();
+    String messages = solved + "\n" + searched + "\n" + hud;
+
+    // reusing the last scene only saves making the images of cells that didn't change, since
+    // javalib still draws every image on it, so a frame costs at least every visible cell
+    // start over when the whole grid changed, when the messages changed (they can't be erased),
+    // or when the last scene holds twice the images a fresh one would
+    if (this.lastScene == null || this.dirty.isAllDirty() || !messages.equals(this.lastMessages)
+            || this.imagesOnScene > 2 * (this.view.columns() * this.view.rows() + 4)) {
+      this.lastScene = new WorldScene(this.width, this.height);
+      this.imagesOnScene = 0;
+      this.dirty.clear();
+      // display the visible part of the grid on worldscene
+      for (int i = this.view.top(); i < this.view.top() + this.view.rows(); i += 1) {
+        ArrayList<Cell> row = this.grid.get(i);
+        for (int j = this.view.left(); j < this.view.left() + this.view.columns(); j += 1) {
+          this.placeCell(row.get(j));
         }
-        scene.placeImageXY(curr.renderCell(), j * this.cellSize, i * this.cellSize);
       }
+      this.placeOverlays(this.lastScene, solved, searched, hud);
+      this.imagesOnScene += 4;
+      this.lastMessages = messages;
+    } else if (!this.dirty.isEmpty()) {
+      while (!this.dirty.isEmpty()) {
+        int index = this.dirty.next();
+        Cell c = this.grid.get(index / this.width).get(index % this.width);
+        if (this.view.isVisible(c.pos)) {
+          this.placeCell(c);
+        }
+      }
+      // redrawn cells may cover the border or messages, so put them back on top
+      this.placeOverlays(this.lastScene, solved, searched, hud);
+      this.imagesOnScene += 4;
     }
-    RectangleImage border = new RectangleImage(this.width * this.cellSize,
-            this.height * this.cellSize, OutlineMode.OUTLINE, Color.GRAY);
-    scene.placeImageXY(border, this.width * this.cellSize / 2,
-            this.height * this.cellSize / 2);
+    // what this frame costs is every image javalib draws, not just the ones placed this frame
+    this.stats.drew(this.imagesOnScene);
+    return this.lastScene;
+  }
 
-    if ((this.curLoc.x == this.width - 1) && (this.curLoc.y == this.height - 1)) {
-      TextImage t = new TextImage("You solved the maze with "
-              + this.playerWrongMoves()
-              + " wrong moves", Color.BLACK);
-      if (this.height * this.cellSize > 680) {
+  // creates our scene from the raster, which only repaints the cells that changed
+  private WorldScene makeRasterScene() {
+    if (this.raster == null) {
+      this.raster = new RasterRenderer(720, 720);
+      this.dirty.markAll();
+    }
+    if (this.mipmap == null && this.view.level() > 0) {
+      this.mipmap = new MazeMipmap(this.grid, 720, 720);
+      this.dirty.attach(this.mipmap);
+    }
+    if (this.dirty.isAllDirty()) {
+      this.stats.drew(this.view.columns() * this.view.rows());
+    } else {
+      this.stats.drew(this.dirty.size());
+    }
+    WorldScene scene = new WorldScene(this.width, this.height);
+    scene.placeImageXY(this.raster.render(this.grid, this.dirty, this.view, this.mipmap),
+            360, 360);
+    this.placeOverlays(scene, this.solvedMessage(), this.searchMessage(), this.statsMessage());
+    return scene;
+  }
+
+  // EFFECT: colors the start, end and the player's cell, recording the ones that changed
+  private void paintMarkers() {
+    this.paint(this.grid.get(0).get(0), Palette.START);
+    this.paint(this.grid.get(this.height - 1).get(this.width - 1), Palette.END);
+    if (!(this.curLoc.x == 0 && this.curLoc.y == 0)
+            && !(this.curLoc.x == this.width - 1 && this.curLoc.y == this.height - 1)) {
+      this.paint(this.grid.get(this.curLoc.y).get(this.curLoc.x), Palette.PLAYER);
+    }
+  }
+
+  // EFFECT: draws the given cell onto the last scene at its place in the grid
+  private void placeCell(Cell c) {
+    this.lastScene.placeImageXY(c.renderCell(this.view.cellSize()), this.view.screenX(c.pos.x),
+            this.view.screenY(c.pos.y));
+    this.imagesOnScene += 1;
+  }
+
+  // EFFECT: draws the border, the given wrong move messages and stats onto the scene
+  private void placeOverlays(WorldScene scene, String solved, String searched, String hud) {
+    int mazeWidth = this.view.pixelWidth();
+    int mazeHeight = this.view.pixelHeight();
+    RectangleImage border = new RectangleImage(mazeWidth, mazeHeight, OutlineMode.OUTLINE,
+            Color.GRAY);
+    scene.placeImageXY(border, mazeWidth / 2, mazeHeight / 2);
+
+    if (!solved.isEmpty()) {
+      TextImage t = new TextImage(solved, Color.BLACK);
+      if (mazeHeight > 680) {
         scene.placeImageXY(t, 550, 690);
       } else {
-        scene.placeImageXY(t, 550, this.height * this.cellSize + 10);
+        scene.placeImageXY(t, 550, mazeHeight + 10);
       }
     }
 
-    if (searchedMaze) {
-      TextImage t = new TextImage("The search algorithm had: "
-              + this.search.numWrongMoves()
-              + " wrong moves", Color.BLACK);
-      if (this.height * this.cellSize > 700) {
+    if (!searched.isEmpty()) {
+      TextImage t = new TextImage(searched, Color.BLACK);
+      if (mazeHeight > 700) {
         scene.placeImageXY(t, 550, 710);
       } else {
-        scene.placeImageXY(t, 550, this.height * this.cellSize + 30);
+        scene.placeImageXY(t, 550, mazeHeight + 30);
       }
     }
 
+    if (!hud.isEmpty()) {
+      TextImage t = new TextImage(hud, 11, Color.DARK_GRAY);
+      if (mazeHeight > 660) {
+        scene.placeImageXY(t, 360, 670);
+      } else {
+        scene.placeImageXY(t, 360, mazeHeight + 50);
+      }
+    }
+  }
 
-    return scene;
+  // the message shown once the player reaches the end, or "" if they haven't yet
+  private String solvedMessage() {
+    if ((this.curLoc.x == this.width - 1) && (this.curLoc.y == this.height - 1)) {
+      // the wrong moves are counted against the search's solution, which may not be done yet
+      if (!this.search.isFinished()) {
+        return "You solved the maze!";
+      }
+      return "You solved the maze with " + this.playerWrongMoves() + " wrong moves";
+    }
+    return "";
+  }
+
+  // the timings shown when the stats are toggled on, or "" if they aren't
+  private String statsMessage() {
+    if (this.isShowingStats) {
+      return this.stats.summary();
+    }
+    return "";
+  }
+
+  // the message shown once a search has been run, or "" if none has
+  private String searchMessage() {
+    if (searchedMaze && !this.search.isFinished()) {
+      return "The search algorithm is still searching";
+    } else if (searchedMaze) {
+      return "The search algorithm had: " + this.search.numWrongMoves() + " wrong moves";
+    }
+    return "";
   }
 
 
@@ -241,12 +475,43 @@ class Maze extends World {
    * For javadoc autograder
    */
 
-  // EFFECT: removes path every tick, adjusting the walls in the cell
+  // EFFECT: animates the maze for this tick, timing how long it takes
   public void onTick() {
+    long began = this.stats.begin();
+    // started on the first tick rather than when the maze is made, so mazes that are never
+    // played don't build more of them
+    if (this.isPregenerating) {
+      this.pregenerator.prepareAll();
+    }
+    this.tick();
+    this.stats.end(FrameStats.TICK, began);
+    if (this.isLoggingStats) {
+      this.stats.logIfDue(System.out);
+    }
+  }
+
+  // EFFECT: removes as many paths as are due this tick, adjusting the walls in the cells,
+  // and shows as much of the search as is due
+  private void tick() {
     // remove walls on tick
-    if (!this.mst.isEmpty()) {
-      Path path = this.mst.remove(0);
-      path.removeWall();
+    if (this.isBuilding()) {
+      // recorded apart from removeWalls, which is all of a maze's walls at once, since this is
+      // only the ones due this tick
+      MazePhase phase = new MazePhase("animateWalls");
+      int removedFrom = this.mstIndex;
+      this.wallPace.beginTick();
+      while (this.isBuilding() && this.wallPace.next()) {
+        this.removeNextWall();
+      }
+      phase.end(MazeMetrics.SHARED, (long) this.height * this.width,
+              this.mstIndex - removedFrom, 0, 0);
+      // the search made when the maze was reset couldn't get anywhere yet
+      if (!this.isBuilding()) {
+        // only checked when assertions are on (java -ea)
+        assert MazeValidator.check(this.grid);
+        this.findSolution();
+        this.startPlanner();
+      }
     }
 
     if (!this.isViewingPaths && searchedMaze) {
@@ -257,11 +522,15 @@ class Maze extends World {
     // only render solution once we're visually done searching the maze
     if (searchedMaze) {
       if (isImmediate) {
-        this.search.renderExploration(this.search.seen);
+        this.search.renderExplored();
         this.search.renderSolution();
       } else {
-        if (!this.search.renderExplorationSingle()) {
-          this.search.renderSolution();
+        this.explorePace.beginTick();
+        while (this.explorePace.next()) {
+          if (!this.search.renderExplorationSingle()) {
+            this.search.renderSolution();
+            return;
+          }
         }
       }
     }
@@ -274,48 +543,53 @@ class Maze extends World {
   // EFFECT: manages user input and runs the corresponding method (which could reset mazes/mutate)
   // Tested this method thru big bang
   public void onKeyEvent(String s) {
+    long began = this.stats.begin();
+    this.handleKey(s);
+    this.stats.end(FrameStats.KEY, began);
+  }
+
+  // EFFECT: runs the method for the given key, refer to readme for controls
+  private void handleKey(String s) {
     // refer to readme for controls
     if (s.equals("r")) {
-      this.resetMaze(MazeType.NORMAL);
+      this.newMaze(MazeType.NORMAL);
 
     } else if (s.equals("h")) {
-      this.resetMaze(MazeType.HORIZONTAL);
+      this.newMaze(MazeType.HORIZONTAL);
 
     } else if (s.equals("v")) {
-      this.resetMaze(MazeType.VERTICAL);
+      this.newMaze(MazeType.VERTICAL);
 
     } else if (s.equals("d")) {
       // if we're still constructing the maze do nothing
-      if (!this.mst.isEmpty()) {
+      if (this.isBuilding()) {
         return;
       }
 
-      this.resetColor();
-      this.search = new Search(new Stack<Cell>(), this.grid.get(0).get(0),
-              this.grid.get(height - 1).get(width - 1));
-      this.searchedMaze = true;
+      this.solve(new IntStack());
 
     } else if (s.equals("b")) {
       // if we're still constructing the maze do nothing
-      if (!this.mst.isEmpty()) {
+      if (this.isBuilding()) {
         return;
       }
 
-      this.resetColor();
-      this.search = new Search(new Queue<Cell>(), this.grid.get(0).get(0),
-              this.grid.get(this.height - 1).get(this.width - 1));
-      this.searchedMaze = true;
+      this.solve(new IntQueue());
 
     } else if (s.equals("up")) {
+      this.facing = s;
       this.movePlayer(new Posn(this.curLoc.x, this.curLoc.y - 1));
 
     } else if (s.equals("down")) {
+      this.facing = s;
       this.movePlayer(new Posn(this.curLoc.x, this.curLoc.y + 1));
 
     } else if (s.equals("left")) {
+      this.facing = s;
       this.movePlayer(new Posn(this.curLoc.x - 1, this.curLoc.y));
 
     } else if (s.equals("right")) {
+      this.facing = s;
       this.movePlayer(new Posn(this.curLoc.x + 1, this.curLoc.y));
 
     } else if (s.equals("p")) {
@@ -328,10 +602,10 @@ class Maze extends World {
           this.search.renderSolution();
         }
         this.resetColor();
-        curCell.clr = new Color(0, 255,0);
+        this.paint(curCell, Palette.PLAYER);
       } else {
         if (searchedMaze) {
-          this.search.renderExploration(this.search.seen);
+          this.search.renderExplored();
         }
         this.cellsPlayerVisited.remove(curCell);
         this.search.renderExploration(this.cellsPlayerVisited);
@@ -339,25 +613,193 @@ class Maze extends World {
       }
 
     } else if (s.equals("c")) {
+      this.solver.cancel();
       this.resetColor();
       this.curLoc = new Posn(0, 0);
+      this.view.follow(this.curLoc);
       this.cellsPlayerVisited = new ArrayList<Cell>();
-      this.search = new Search(new Queue<Cell>(), this.grid.get(0).get(0),
-              this.grid.get(height - 1).get(width - 1));
+      this.findSolution();
       this.searchedMaze = false;
 
     } else if (s.equals("t")) { // toggles if want to display on tick or immediately
       this.isImmediate = !this.isImmediate;
 
-    } else if (s.equals("s")) {
+    } else if (s.equals("f")) { // toggles showing how long frames and ticks take
+      this.isShowingStats = !this.isShowingStats;
+
+    } else if (s.equals("g")) { // toggles between painting pixels and drawing cell images
+      this.isRaster = !this.isRaster;
+      this.dirty.markAll();
+
+    } else if (s.equals("i")) {
+      this.view.pan(0, -1);
+
+    } else if (s.equals("k")) {
+      this.view.pan(0, 1);
+
+    } else if (s.equals("j")) {
+      this.view.pan(-1, 0);
+
+    } else if (s.equals("l")) {
+      this.view.pan(1, 0);
+
+    } else if (s.equals("=") || s.equals("+")) {
+      this.view.zoomIn();
+
+    } else if (s.equals("-")) {
+      this.view.zoomOut();
+
+    } else if (s.equals("w")) { // toggles the wall the player is facing
+      Posn ahead = this.ahead(this.curLoc, this.facing);
+      if (this.inBounds(ahead)) {
+        this.toggleWall(this.curLoc, ahead);
+      }
+
+    } else if (s.equals("s") && !this.isBuilding()) {
       this.search.howFarFromCell(this.width * this.height, this.grid.get(0).get(0));
 
-    } else if (s.equals("e")) {
+    } else if (s.equals("e") && !this.isBuilding()) {
       this.search.howFarFromCell(this.width * this.height,
               this.grid.get(height - 1).get(width - 1));
     }
   }
 
+  // the cell next to the given one in the given direction ("up", "down", "left" or "right")
+  private Posn ahead(Posn pos, String dir) {
+    if (dir.equals("up")) {
+      return new Posn(pos.x, pos.y - 1);
+    } else if (dir.equals("down")) {
+      return new Posn(pos.x, pos.y + 1);
+    } else if (dir.equals("left")) {
+      return new Posn(pos.x - 1, pos.y);
+    } else {
+      return new Posn(pos.x + 1, pos.y);
+    }
+  }
+
+  // toggles the wall nearest to where the user clicked
+  // public because the world calls it when the mouse is clicked
+  // EFFECT: adds or removes the wall on the clicked cell's side closest to the click
+  public void onMouseClicked(Posn pos) {
+    int size = this.view.cellSize();
+    // walls are too small to pick out when a pixel is more than a cell
+    if (this.view.level() > 0 || pos.x < 0 || pos.y < 0 || pos.x >= this.view.pixelWidth()
+            || pos.y >= this.view.pixelHeight()) {
+      return;
+    }
+    Posn cell = new Posn(this.view.left() + pos.x / size, this.view.top() + pos.y / size);
+    int fromLeft = pos.x % size;
+    int fromTop = pos.y % size;
+    int fromRight = size - 1 - fromLeft;
+    int fromBottom = size - 1 - fromTop;
+    String side;
+    if (Math.min(fromLeft, fromRight) < Math.min(fromTop, fromBottom)) {
+      side = fromLeft < fromRight ? "left" : "right";
+    } else {
+      side = fromTop < fromBottom ? "up" : "down";
+    }
+    Posn other = this.ahead(cell, side);
+    if (this.inBounds(cell) && this.inBounds(other)) {
+      this.toggleWall(cell, other);
+    }
+  }
+
+  // EFFECT: puts up the wall between the given neighboring cells if there's a way between
+  // them, or takes it down if there isn't, and repairs the route from the start to the end,
+  // showing it in the solution color
+  // does nothing while the walls are still coming down
+  // not private because the keys, the mouse and our tests use it
+  void toggleWall(Posn a, Posn b) {
+    if (!this.inBounds(a) || !this.inBounds(b)
+            || Math.abs(a.x - b.x) + Math.abs(a.y - b.y) != 1) {
+      throw new IllegalArgumentException("Illegal cells for wall");
+    }
+    if (this.isBuilding()) {
+      return;
+    }
+    // a search running in the background mustn't be reading the paths while they change
+    this.solver.cancel();
+    Cell from = this.grid.get(a.y).get(a.x);
+    Cell to = this.grid.get(b.y).get(b.x);
+    boolean isWall = from.canMove(to);
+    if (isWall) {
+      from.addWall(to);
+      this.dirty.mark(from);
+      this.dirty.mark(to);
+    } else {
+      new Path(from, to).removeWall(this.dirty);
+    }
+
+    MazePhase phase = new MazePhase("replan");
+    int[] before = this.planner.route();
+    this.planner.setWall(a.y * this.width + a.x, b.y * this.width + b.x, isWall);
+    int expanded = this.planner.plan();
+    phase.end(MazeMetrics.SHARED, (long) this.height * this.width, 1, expanded, 0);
+
+    // the search that was stopped is run again on the new walls, so it isn't left half done
+    if (this.searchedMaze) {
+      if (this.isDepthFirst) {
+        this.solve(new IntStack());
+      } else {
+        this.solve(new IntQueue());
+      }
+    } else {
+      this.findSolution();
+    }
+    this.showRoute(before);
+  }
+
+  // EFFECT: plans the route from the start to the end of the finished maze, so changes to its
+  // walls only have to repair it
+  private void startPlanner() {
+    MazePhase phase = new MazePhase("plan");
+    this.planner = new LifelongSearch(new MazeTopology(this.grid), 0,
+            this.height * this.width - 1);
+    int expanded = this.planner.plan();
+    phase.end(MazeMetrics.SHARED, (long) this.height * this.width, 0, expanded, 0);
+  }
+
+  // EFFECT: paints the planner's route in the solution color, and paints the cells of the
+  // given old route that aren't on it anymore back to unvisited, leaving the player's cell
+  private void showRoute(int[] before) {
+    Cell player = this.grid.get(this.curLoc.y).get(this.curLoc.x);
+    for (int cell : before) {
+      Cell c = this.grid.get(cell / this.width).get(cell % this.width);
+      // cell equality is intentional
+      if (!this.planner.isOnRoute(cell) && !c.equals(player) && c.clr == Palette.SOLUTION) {
+        this.paint(c, Palette.UNVISITED);
+      }
+    }
+    for (int cell : this.planner.route()) {
+      Cell c = this.grid.get(cell / this.width).get(cell % this.width);
+      if (!c.equals(player)) {
+        this.paint(c, Palette.SOLUTION);
+      }
+    }
+  }
+
+  // EFFECT: starts finding the solution the player's moves are compared to in the background,
+  // stopping any search already running
+  private void findSolution() {
+    this.search = new Search(new IntQueue(), this.grid, this.grid.get(0).get(0),
+            this.grid.get(this.height - 1).get(this.width - 1), this.dirty, true);
+    this.solver.start(this.search);
+  }
+
+  // EFFECT: starts searching the maze with the given worklist in the background, stopping
+  // any search already running, and starts showing the cells it sees as it goes
+  private void solve(IIntCollection worklist) {
+    this.solver.cancel();
+    this.isDepthFirst = worklist instanceof IntStack;
+    this.resetColor();
+    this.search = new Search(worklist, this.grid, this.grid.get(0).get(0),
+            this.grid.get(this.height - 1).get(this.width - 1), this.dirty, true);
+    this.solver.start(this.search);
+    this.searchedMaze = true;
+    // we don't know how many cells it will see yet, so pace it as if it sees them all
+    this.explorePace.start(this.height * this.width);
+  }
+
   // is the posn in the bounds of our maze's grid
   // public because it does not mutate anything and is a useful util method
   boolean inBounds(Posn pos) {
@@ -371,13 +813,14 @@ class Maze extends World {
     if (this.inBounds(pos) && curCell.canMove(this.grid.get(pos.y).get(pos.x))) {
       Cell newCell = this.grid.get(pos.y).get(pos.x);
       if (this.isViewingPaths) {
-        curCell.clr = new Color(176,224,230);
+        this.paint(curCell, Palette.EXPLORED);
       } else {
-        curCell.clr = Color.LIGHT_GRAY;
+        this.paint(curCell, Palette.UNVISITED);
       }
-      newCell.clr = new Color(0, 255,0);
+      this.paint(newCell, Palette.PLAYER);
 
       this.curLoc = pos;
+      this.view.follow(pos);
       if (!this.cellsPlayerVisited.contains(newCell)) {
         this.cellsPlayerVisited.add(newCell);
       }
@@ -395,13 +838,22 @@ class Maze extends World {
     for (Cell c : this.cellsPlayerVisited) {
       // we don't want to count the solution itself
       if (!c.equals(this.grid.get(this.height - 1).get(this.width - 1))
-              && !this.search.solution.contains(c)) {
+              && !this.isOnSolution(c)) {
         numWrongMoves += 1;
       }
     }
     return numWrongMoves;
   }
 
+  // is the given cell on the way from the start to the end, which is the planner's route once
+  // the walls are down, since it's kept up to date as the user changes them
+  private boolean isOnSolution(Cell c) {
+    if (this.planner != null) {
+      return this.planner.isOnRoute(c.pos.y * this.width + c.pos.x);
+    }
+    return this.search.solution.contains(c);
+  }
+
   // EFFECT: resets the grid back to gray, removing the visual search algorithm
   // I did not test this method because it was private and very simple
   // we made it private because it shouldn't be accessed by anyone else since it
@@ -410,10 +862,17 @@ class Maze extends World {
     // set all the cells in the grid back to default gray
     for (ArrayList<Cell> row : this.grid) {
       for (Cell cell : row) {
-        cell.clr = Color.LIGHT_GRAY;
+        this.paint(cell, Palette.UNVISITED);
       }
     }
   }
+
+  // EFFECT: colors the cell, recording it as dirty if its color changed
+  private void paint(Cell c, byte clr) {
+    if (c.recolor(clr)) {
+      this.dirty.mark(c);
+    }
+  }
 }
 
 class ExamplesMaze {
@@ -657,6 +1116,30 @@ class ExamplesMaze {
             new Path(zeroZero2x2, zeroOne2x2, 94)));
     new Quicksort<Path>(paths2x2).quicksort();
     t.checkExpect(paths2x2, paths2x2Sorted);
+
+    // lots of equal weights come out grouped, whether the list starts shuffled, sorted,
+    // backwards or all the same (big lists are left to MazeBenchmarks and MazeStress)
+    int[][] orders = new int[4][300];
+    for (int i = 0; i < 300; i += 1) {
+      orders[0][i] = (i * 37) % 7;
+      orders[1][i] = i / 43;
+      orders[2][i] = 6 - i / 43;
+      orders[3][i] = 3;
+    }
+    for (int[] weights : orders) {
+      ArrayList<Path> many = new ArrayList<Path>();
+      for (int w : weights) {
+        many.add(new Path(zeroZero2x2, oneZero2x2, w));
+      }
+      int[] sorted = weights.clone();
+      Arrays.sort(sorted);
+      ArrayList<Path> expected = new ArrayList<Path>();
+      for (int w : sorted) {
+        expected.add(new Path(zeroZero2x2, oneZero2x2, w));
+      }
+      new Quicksort<Path>(many);
+      t.checkExpect(many, expected);
+    }
   }
 
   // KRUSKAL FILE
@@ -677,6 +1160,14 @@ class ExamplesMaze {
     ArrayList<Path> MST3x3 = new ArrayList<Path>(List.of(path3x31, path3x32, path3x34, path3x312,
             path3x38, path3x310, path3x33, path3x311));
     t.checkExpect(generatedMST3x3, MST3x3);
+
+    // the representatives can be reused, as long as there's one for every cell
+    this.initTestConditions();
+    ArrayList<Path> tree3x3 = new ArrayList<Path>(List.of(path2x41));
+    new Kruskal(paths3x3, grid3x3, new int[9]).createMST(tree3x3);
+    t.checkExpect(tree3x3, MST3x3);
+    t.checkConstructorException(new IllegalArgumentException(
+            "Illegal representatives for grid"), "Kruskal", paths3x3, grid3x3, new int[8]);
   }
 
   // tests initializing the hashmap
@@ -734,6 +1225,58 @@ class ExamplesMaze {
     t.checkExpect(left.from.showLeft, false);
   }
 
+  // DIRTY CELLS FILE
+  // tests recording which cells need to be redrawn
+  void testDirtyCells(Tester t) {
+    this.initTestConditions();
+    DirtyCells dirty = new DirtyCells(2, 4);
+
+    // a new tracker needs the whole grid drawn
+    t.checkExpect(dirty.isAllDirty(), true);
+    t.checkExpect(dirty.isEmpty(), false);
+    dirty.clear();
+    t.checkExpect(dirty.isEmpty(), true);
+
+    // removing a wall marks both of its cells, and each cell is only queued once
+    path2x44.removeWall(dirty);
+    dirty.mark(two2x4);
+    t.checkExpect(dirty.size(), 2);
+    t.checkExpect(dirty.next(), 1);
+    t.checkExpect(dirty.size(), 1);
+    t.checkExpect(dirty.next(), 5);
+    t.checkExpect(dirty.isEmpty(), true);
+
+    // a cell can be marked again once it has been redrawn
+    dirty.mark(two2x4);
+    t.checkExpect(dirty.isEmpty(), false);
+    dirty.markAll();
+    t.checkExpect(dirty.isAllDirty(), true);
+    dirty.clear();
+    t.checkExpect(dirty.isEmpty(), true);
+    t.checkExpect(dirty.size(), 0);
+  }
+
+  // tests that searches only record the cells whose color they changed
+  void testSearchMarksDirty(Tester t) {
+    this.initTestConditions();
+    this.addPaths();
+    DirtyCells dirty = new DirtyCells(2, 4);
+    dirty.clear();
+    Search search = new Search(new IntQueue(), grid2x4, one2x4, eight2x4, dirty);
+
+    t.checkExpect(one2x4.recolor(Palette.UNVISITED), false);
+    search.renderSolution();
+    t.checkExpect(dirty.next(), 0);
+    t.checkExpect(dirty.next(), 1);
+    t.checkExpect(dirty.next(), 2);
+    t.checkExpect(dirty.next(), 3);
+    t.checkExpect(dirty.isEmpty(), true);
+
+    // rendering the same solution again changes nothing
+    search.renderSolution();
+    t.checkExpect(dirty.isEmpty(), true);
+  }
+
   // CELL FILE
   // tests getting direction between two cells
   void testDirection(Tester t) {
@@ -815,6 +1358,1460 @@ class ExamplesMaze {
 
   }
 
+  // CELL IMAGE CACHE FILE
+  // tests that cells that look the same share one image, and the cache stays bounded
+  void testCellImageCache(Tester t) {
+    this.initTestConditions();
+    CellImageCache cache = new CellImageCache(2);
+    WorldImage gray = cache.get(true, true, Palette.UNVISITED, 10);
+
+    // same walls, color and size gives back the very same image
+    t.checkExpect(cache.get(true, true, Palette.UNVISITED, 10) == gray, true);
+    t.checkExpect(cache.get(true, false, Palette.UNVISITED, 10) == gray, false);
+    t.checkExpect(cache.size(), 2);
+
+    // a third look drops the least recently used one
+    cache.get(false, false, Palette.UNVISITED, 10);
+    t.checkExpect(cache.size(), 2);
+    t.checkExpect(cache.get(true, true, Palette.UNVISITED, 10) == gray, false);
+
+    // cells render through the shared cache
+    Cell c1 = path3x32.from;
+    Cell c2 = path3x31.to;
+    t.checkExpect(c1.renderCell() == c2.renderCell(), true);
+    t.checkConstructorException(new IllegalArgumentException(
+            "Illegal capacity for cache"), "CellImageCache", 0);
+  }
+
+  // RASTER RENDERER FILE
+  // tests painting cells and their walls into the pixel buffer
+  void testRasterRenderer(Tester t) {
+    this.initTestConditions();
+    RasterRenderer raster = new RasterRenderer(8, 8);
+    Viewport view = new Viewport(2, 2, 8, 8);
+    int gray = Color.LIGHT_GRAY.getRGB() & 0xFFFFFF;
+    int black = 0;
+    int border = Color.GRAY.getRGB() & 0xFFFFFF;
+
+    raster.render(grid2x2, new DirtyCells(2, 2), view);
+    // the top left corner of every cell is a wall, its middle is the cell's color
+    t.checkExpect(raster.pixelAt(0, 0), black);
+    t.checkExpect(raster.pixelAt(2, 0), black);
+    t.checkExpect(raster.pixelAt(0, 2), black);
+    t.checkExpect(raster.pixelAt(2, 2), gray);
+    t.checkExpect(raster.pixelAt(6, 6), gray);
+    // the right and bottom edges of the maze are the border
+    t.checkExpect(raster.pixelAt(7, 2), border);
+    t.checkExpect(raster.pixelAt(2, 7), border);
+
+    // only the dirty cells are repainted
+    DirtyCells dirty = new DirtyCells(2, 2);
+    dirty.clear();
+    path2x21.removeWall(dirty);
+    oneOne2x2.clr = Palette.SOLUTION;
+    raster.render(grid2x2, dirty, view);
+    t.checkExpect(raster.pixelAt(4, 2), gray);
+    t.checkExpect(raster.pixelAt(6, 6), gray);
+    dirty.mark(oneOne2x2);
+    raster.render(grid2x2, dirty, view);
+    t.checkExpect(raster.pixelAt(6, 6), Palette.rgb(Palette.SOLUTION) & 0xFFFFFF);
+    t.checkExpect(dirty.isEmpty(), true);
+
+    t.checkConstructorException(new IllegalArgumentException(
+            "Illegal screen size for raster"), "RasterRenderer", 8, 0);
+
+    // a bigger maze only paints the cells in view, starting at the camera
+    RasterRenderer zoomed = new RasterRenderer(4, 4);
+    Viewport corner = new Viewport(2, 4, 4, 4);
+    corner.zoomIn();
+    t.checkExpect(corner.left(), 1);
+    grid2x4.get(0).get(1).clr = Palette.START;
+    grid2x4.get(0).get(2).clr = Palette.END;
+    zoomed.render(grid2x4, new DirtyCells(2, 4), corner);
+    t.checkExpect(zoomed.pixelAt(1, 1), Palette.rgb(Palette.START) & 0xFFFFFF);
+    t.checkExpect(zoomed.pixelAt(3, 1), Palette.rgb(Palette.END) & 0xFFFFFF);
+  }
+
+  // VIEWPORT FILE
+  // tests which cells are on screen as the camera zooms, pans and follows the player
+  void testViewport(Tester t) {
+    // small mazes fit on screen
+    Viewport small = new Viewport(3, 3, 720, 720);
+    t.checkExpect(small.cellSize(), 240);
+    t.checkExpect(small.columns(), 3);
+    t.checkExpect(small.takeMoved(), true);
+    t.checkExpect(small.takeMoved(), false);
+    small.pan(1, 1);
+    t.checkExpect(small.left(), 0);
+    t.checkExpect(small.takeMoved(), false);
+
+    // mazes bigger than the screen are shown one pixel per cell, a screen at a time
+    Viewport big = new Viewport(2000, 1000, 720, 720);
+    t.checkExpect(big.cellSize(), 1);
+    t.checkExpect(big.columns(), 720);
+    t.checkExpect(big.rows(), 720);
+    t.checkExpect(big.isVisible(new Posn(719, 0)), true);
+    t.checkExpect(big.isVisible(new Posn(720, 0)), false);
+
+    // zooming in keeps the middle of the screen in place
+    big.zoomIn();
+    t.checkExpect(big.cellSize(), 2);
+    t.checkExpect(big.left(), 180);
+    t.checkExpect(big.top(), 180);
+    t.checkExpect(big.columns(), 360);
+    t.checkExpect(big.screenX(181), 2);
+    big.zoomOut();
+    t.checkExpect(big.cellSize(), 1);
+    t.checkExpect(big.level(), 0);
+
+    // panning moves a quarter screen and stops at the edge of the maze
+    big.pan(-1, 0);
+    t.checkExpect(big.left(), 0);
+    big.pan(0, 1);
+    t.checkExpect(big.top(), 180);
+
+    // the camera jumps to a player that walks off screen
+    big.takeMoved();
+    big.follow(new Posn(990, 1999));
+    t.checkExpect(big.left(), 280);
+    t.checkExpect(big.top(), 1280);
+    t.checkExpect(big.takeMoved(), true);
+    t.checkExpect(big.isVisible(new Posn(990, 1999)), true);
+
+    // zooming out further makes each pixel cover more cells, until the whole maze fits
+    big.zoomOut();
+    t.checkExpect(big.level(), 1);
+    t.checkExpect(big.cellSize(), 1);
+    t.checkExpect(big.left() % 2, 0);
+    t.checkExpect(big.top() % 2, 0);
+    t.checkExpect(big.columns(), 1000);
+    big.zoomOut();
+    big.zoomOut();
+    t.checkExpect(big.level(), 2);
+    t.checkExpect(big.left(), 0);
+    t.checkExpect(big.top(), 0);
+    t.checkExpect(big.pixelWidth(), 250);
+    t.checkExpect(big.pixelHeight(), 500);
+    t.checkExpect(big.screenX(5), 1);
+    t.checkExpect(big.isVisible(new Posn(999, 1999)), true);
+    big.zoomIn();
+    big.zoomIn();
+    t.checkExpect(big.level(), 0);
+  }
+
+  // MAZE MIPMAP FILE
+  // tests the zoomed out blocks of a maze and keeping them up to date
+  void testMazeMipmap(Tester t) {
+    this.initTestConditions();
+    // a 3x3 maze needs two levels to fit on a 1x1 screen
+    MazeMipmap mipmap = new MazeMipmap(grid3x3, 1, 1);
+    byte gray = Palette.UNVISITED;
+    t.checkExpect(mipmap.levels(), 2);
+    t.checkExpect(mipmap.columnsAt(1), 2);
+    t.checkExpect(mipmap.rowsAt(2), 1);
+    t.checkExpect(mipmap.colorAt(2, 0, 0), gray);
+    // every wall is up
+    t.checkExpect(mipmap.wallsAt(1, 0, 0), 255);
+    // so it is drawn at a quarter of its brightness
+    t.checkExpect(mipmap.shadeAt(1, 1, 1), 0x303030);
+
+    // removing a wall and coloring cells only updates their blocks once told
+    DirtyCells dirty = new DirtyCells(3, 3);
+    dirty.attach(mipmap);
+    path3x31.removeWall(dirty);
+    t.checkExpect(mipmap.wallsAt(1, 0, 0), 223);
+    t.checkExpect(mipmap.wallsAt(1, 1, 0), 255);
+    Cell corner = grid3x3.get(2).get(2);
+    corner.clr = Palette.SOLUTION;
+    t.checkExpect(mipmap.colorAt(1, 1, 1), gray);
+    dirty.mark(corner);
+    // the corner block only has one cell, so it takes that cell's color
+    t.checkExpect(mipmap.colorAt(1, 1, 1), Palette.SOLUTION);
+    // ties go to the color that isn't gray
+    t.checkExpect(mipmap.colorAt(2, 0, 0), gray);
+    grid3x3.get(0).get(0).clr = Palette.EXPLORED;
+    grid3x3.get(0).get(1).clr = Palette.EXPLORED;
+    mipmap.rebuild(grid3x3);
+    t.checkExpect(mipmap.colorAt(1, 0, 0), Palette.EXPLORED);
+  }
+
+  // MAZE EXPORTER FILE
+  // tests saving a maze and a search through it as a png
+  void testMazeExporter(Tester t) {
+    this.initTestConditions();
+    this.addPaths();
+    path2x44.removeWall();
+    try {
+      // the search's solution is drawn over the cells, without changing them
+      MazeExporter exporter = new MazeExporter(grid2x4, 3);
+      exporter.showSearch(search2x4, false, true);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      exporter.write(out);
+      BufferedImage png = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+      t.checkExpect(png.getWidth(), 12);
+      t.checkExpect(png.getHeight(), 6);
+      t.checkExpect(png.getRGB(0, 0), Color.BLACK.getRGB());
+      t.checkExpect(png.getRGB(1, 1), Palette.rgb(Palette.SOLUTION));
+      t.checkExpect(png.getRGB(7, 1), Palette.rgb(Palette.UNVISITED));
+      t.checkExpect(png.getRGB(11, 1), Color.GRAY.getRGB());
+      t.checkExpect(png.getRGB(4, 5), Color.GRAY.getRGB());
+      // the wall between the second cells of each row was removed
+      t.checkExpect(png.getRGB(4, 3), Palette.rgb(Palette.SOLUTION));
+      t.checkExpect(one2x4.clr, Palette.UNVISITED);
+
+      // a bigger maze is written out strip by strip
+      ArrayList<ArrayList<Cell>> wide = maze2x2.constructGrid(40, 40);
+      ByteArrayOutputStream bigOut = new ByteArrayOutputStream();
+      new MazeExporter(wide, 16).write(bigOut);
+      BufferedImage big = ImageIO.read(new ByteArrayInputStream(bigOut.toByteArray()));
+      t.checkExpect(big.getWidth(), 640);
+      t.checkExpect(big.getRGB(639, 300), Color.GRAY.getRGB());
+      t.checkExpect(big.getRGB(320, 300), Color.BLACK.getRGB());
+      t.checkExpect(big.getRGB(321, 301), Palette.rgb(Palette.UNVISITED));
+
+      // a maze carved out of a graph is read a row at a time from its open edges, with the
+      // overlays given as cell indices
+      // a 2x2 rectangle's edges are 0 (0 to 1), 1 (0 to 2), 2 (1 to 3) and 3 (2 to 3)
+      MazeGraph square = MazeGraph.rectangle(2, 2);
+      BitSet open = new BitSet();
+      open.set(0, 3);
+      GraphRows rows = new GraphRows(square, open, 2, 2);
+      byte[] ways = new byte[2];
+      int[] colors = new int[2];
+      rows.readRow(0, ways, colors);
+      t.checkExpect(ways, new byte[] {6, 12});
+      t.checkExpect(colors[1], Palette.rgb(Palette.UNVISITED));
+      rows.readRow(1, ways, colors);
+      t.checkExpect(ways, new byte[] {1, 1});
+      // with one column, the cells above and below are also a step of one away
+      BitSet column = new BitSet();
+      column.set(0, 2);
+      byte[] middle = new byte[1];
+      new GraphRows(MazeGraph.rectangle(3, 1), column, 3, 1).readRow(1, middle, colors);
+      t.checkExpect(middle[0], (byte) 5);
+
+      MazeExporter carved = new MazeExporter(rows, 3);
+      carved.showCells(MazeExporter.indicesOf(new int[] {0, 1, 3, 2}, 3),
+              MazeExporter.indicesOf(new int[] {0, 1}, 2));
+      ByteArrayOutputStream carvedOut = new ByteArrayOutputStream();
+      carved.write(carvedOut);
+      BufferedImage carvedPng = ImageIO.read(new ByteArrayInputStream(carvedOut.toByteArray()));
+      t.checkExpect(carvedPng.getWidth(), 6);
+      t.checkExpect(carvedPng.getRGB(1, 1), Palette.rgb(Palette.SOLUTION));
+      // the walls left of the second cell and above the bottom ones are down
+      t.checkExpect(carvedPng.getRGB(3, 1), Palette.rgb(Palette.SOLUTION));
+      t.checkExpect(carvedPng.getRGB(1, 3), Palette.rgb(Palette.UNVISITED));
+      t.checkExpect(carvedPng.getRGB(4, 3), Palette.rgb(Palette.EXPLORED));
+      // but edge 3, between the bottom cells, is still up
+      t.checkExpect(carvedPng.getRGB(3, 4), Color.BLACK.getRGB());
+      t.checkExpect(carvedPng.getRGB(0, 0), Color.BLACK.getRGB());
+    } catch (IOException e) {
+      t.checkExpect(e, null);
+    }
+
+    t.checkExpect(MazeExporter.indicesOf(new int[] {4, 2, 9}, 2).cardinality(), 2);
+    t.checkExpect(MazeExporter.indicesOf(new int[] {4, 2, 9}, 2).get(9), false);
+    t.checkConstructorException(new IllegalArgumentException(
+            "Illegal cell size for image"), "MazeExporter", grid2x4, 0);
+    t.checkConstructorException(new IllegalArgumentException("Illegal width/height for graph"),
+            "GraphRows", MazeGraph.rectangle(2, 2), new BitSet(), 3, 2);
+    t.checkConstructorException(new IllegalArgumentException("Illegal grid for image"),
+            "GridRows", new ArrayList<ArrayList<Cell>>());
+  }
+
+  // MAZE GENERATOR FILE
+  // tests making finished mazes without a maze world
+  void testMazeGenerator(Tester t) {
+    ArrayList<ArrayList<Cell>> grid = new MazeGenerator(new Random(3), 10)
+            .generate(3, 4, MazeType.NORMAL);
+    t.checkExpect(grid.size(), 3);
+    t.checkExpect(grid.get(0).size(), 4);
+    // a perfect maze of 12 cells has 11 paths, each going both ways
+    int ends = 0;
+    for (ArrayList<Cell> row : grid) {
+      for (Cell c : row) {
+        ends += c.outPaths.size();
+      }
+    }
+    t.checkExpect(ends, 22);
+    // the same seed makes the same maze
+    t.checkExpect(new MazeGenerator(new Random(3), 10).generate(3, 4, MazeType.NORMAL), grid);
+
+    t.checkConstructorException(new IllegalArgumentException(
+            "Illegal cell size for generator"), "MazeGenerator", new Random(3), 0);
+    t.checkException(new IllegalArgumentException("Illegal width/height for maze"),
+            new MazeGenerator(new Random(3), 10), "generate", 0, 4, MazeType.NORMAL);
+  }
+
+  // MAZE BATCH FILE
+  // tests making and solving batches of mazes on more than one thread
+  void testMazeBatch(Tester t) {
+    try {
+      List<BatchResult> one = MazeBatch.run(4, 10, 12, 7, MazeType.VERTICAL, "dfs", 1);
+      List<BatchResult> two = MazeBatch.run(4, 10, 12, 7, MazeType.VERTICAL, "dfs", 2);
+      t.checkExpect(two.size(), 4);
+      for (int i = 0; i < 4; i += 1) {
+        // every maze comes from its own seed, so the threads don't change the mazes
+        t.checkExpect(two.get(i).index, i);
+        t.checkExpect(two.get(i).seed, 7L + i);
+        t.checkExpect(two.get(i).explored, one.get(i).explored);
+        t.checkExpect(two.get(i).solutionLength, one.get(i).solutionLength);
+        t.checkExpect(two.get(i).wrongMoves, two.get(i).explored - two.get(i).solutionLength);
+      }
+      t.checkExpect(MazeBatch.run(0, 10, 12, 7, MazeType.NORMAL, "bfs", 2).isEmpty(), true);
+    } catch (InterruptedException e) {
+      t.checkExpect(e, null);
+    }
+
+    BatchResult result = new BatchResult(1, 8, 2000000, 500000, 30, 12, 18);
+    t.checkExpect(result.toLine(), "1\t8\t2.000\t0.500\t30\t12\t18");
+    t.checkExpect(MazeBatch.summarize(Arrays.asList(result), 4000000),
+            "1 mazes in 4.0 ms (250.0 mazes/s), generate avg 2.000 ms, "
+                    + "solve avg 0.500 ms max 0.500 ms, explored avg 30 cells");
+    t.checkConstructorException(new IllegalArgumentException("Illegal strategy for search"),
+            "BatchJob", 0, 7L, 10, 12, MazeType.NORMAL, "astar");
+  }
+
+  // tests remaking a maze in place, reusing its cells, paths and buffers
+  void testRebuild(Tester t) {
+    MazeGenerator generator = new MazeGenerator(new Random(5), 10);
+    ArrayList<ArrayList<Cell>> grid = generator.constructGrid(3, 4);
+    RebuiltGrid built = generator.build(grid, MazeType.NORMAL);
+    ArrayList<Path> tree = built.tree;
+    t.checkExpect(built.grid == grid, true);
+    t.checkExpect(built.paths.size(), 17);
+    t.checkExpect(built.representatives.length, 12);
+    t.checkExpect(tree.size(), 11);
+    for (Path p : tree) {
+      p.removeWall();
+    }
+    Cell corner = grid.get(0).get(0);
+    corner.clr = Palette.EXPLORED;
+
+    // the second time, every cell starts over and the same tree list is filled again
+    ArrayList<Path> paths = new ArrayList<Path>(built.paths);
+    ArrayList<Path> again = generator.rebuild(built, MazeType.NORMAL);
+    t.checkExpect(again == tree, true);
+    t.checkExpect(built.paths, paths);
+    t.checkExpect(again.size(), 11);
+    t.checkExpect(corner.outPaths.isEmpty(), true);
+    t.checkExpect(corner.showTop, true);
+    t.checkExpect(corner.clr, Palette.UNVISITED);
+    for (Path p : again) {
+      p.removeWall();
+    }
+    int ends = 0;
+    for (ArrayList<Cell> row : grid) {
+      for (Cell c : row) {
+        ends += c.outPaths.size();
+      }
+    }
+    t.checkExpect(ends, 22);
+
+    // a seeded rebuild makes the same maze as connecting a new grid with the same draws
+    MazeGenerator inPlace = new MazeGenerator(new Random(9), 10);
+    MazeGenerator fresh = new MazeGenerator(new Random(9), 10);
+    ArrayList<ArrayList<Cell>> reused = inPlace.constructGrid(6, 7);
+    RebuiltGrid reusedBuilt = inPlace.build(reused, MazeType.NORMAL);
+    fresh.spanningTree(fresh.constructGrid(6, 7), MazeType.NORMAL);
+    for (int i = 0; i < 3; i += 1) {
+      ArrayList<Path> rebuilt = inPlace.rebuild(reusedBuilt, MazeType.NORMAL);
+      ArrayList<Path> made = fresh.spanningTree(fresh.constructGrid(6, 7), MazeType.NORMAL);
+      int differences = 0;
+      for (int j = 0; j < made.size(); j += 1) {
+        differences += rebuilt.get(j).from.pos.equals(made.get(j).from.pos)
+                && rebuilt.get(j).to.pos.equals(made.get(j).to.pos) ? 0 : 1;
+      }
+      t.checkExpect(rebuilt.size(), made.size());
+      t.checkExpect(differences, 0);
+    }
+
+    // a path knocked down again after its cells are reset adds the same path going back
+    Cell left = new Cell(new Posn(0, 0), 10);
+    Cell right = new Cell(new Posn(1, 0), 10);
+    Path across = new Path(left, right, 4);
+    across.removeWall();
+    Path back = right.outPaths.get(0);
+    t.checkExpect(back, new Path(right, left));
+    left.reset();
+    right.reset();
+    across.reweigh(9);
+    across.removeWall();
+    t.checkExpect(right.outPaths.get(0) == back, true);
+    t.checkExpect(right.showLeft, false);
+    t.checkExpect(across.compareTo(new Path(left, right, 5)), 4);
+  }
+
+  // MAZE GRAPH FILE
+  // tests the shapes of graph, and making and solving mazes on them
+  void testMazeGraph(Tester t) {
+    MazeGraph rect = MazeGraph.rectangle(2, 3);
+    t.checkExpect(rect.nodes, 6);
+    t.checkExpect(rect.edges, 7);
+    t.checkExpect(rect.degree(0), 2);
+    t.checkExpect(rect.degree(1), 3);
+    t.checkExpect(rect.target(rect.first(0)), 1);
+    t.checkExpect(rect.target(rect.first(0) + 1), 3);
+    t.checkExpect(rect.from(rect.targetEdge(rect.first(0) + 1)), 0);
+    t.checkExpect(rect.to(rect.targetEdge(rect.first(0) + 1)), 3);
+    t.checkExpect(rect.last(5), 14);
+
+    // every cell of a torus has four neighbors
+    MazeGraph torus = MazeGraph.torus(3, 4);
+    t.checkExpect(torus.edges, 24);
+    t.checkExpect(torus.degree(0), 4);
+    t.checkExpect(torus.degree(11), 4);
+    MazeGraph cube = MazeGraph.layered(2, 2, 2);
+    t.checkExpect(cube.edges, 12);
+    t.checkExpect(cube.degree(7), 3);
+    MazeGraph hex = MazeGraph.hex(3, 3);
+    t.checkExpect(hex.edges, 16);
+    // the middle cell has all six neighbors
+    t.checkExpect(hex.degree(4), 6);
+    t.checkExpect(hex.degree(0), 2);
+    // a ring with the middle cut out
+    MazeGraph ring = MazeGraph.masked(new boolean[][] {
+      {true, true, true}, {true, false, true}, {true, true, true}});
+    t.checkExpect(ring.nodes, 8);
+    t.checkExpect(ring.edges, 8);
+    t.checkExpect(ring.degree(3), 2);
+
+    // kruskal takes the lightest edges that don't make a loop
+    BitSet tree = Kruskal.spanningTree(rect, new int[] {5, 0, 3, 1, 4, 2, 6});
+    t.checkExpect(tree.cardinality(), 5);
+    t.checkExpect(tree.get(0), false);
+    t.checkExpect(tree.get(6), false);
+
+    // a carved maze of any shape is a tree, so every search finds the same way out
+    MazeGenerator generator = new MazeGenerator(new Random(2510), 1);
+    MazeGraph[] shapes = {MazeGraph.torus(10, 10), MazeGraph.layered(3, 6, 6),
+      MazeGraph.hex(12, 9), ring};
+    for (MazeGraph shape : shapes) {
+      BitSet carved = generator.carve(shape);
+      t.checkExpect(carved.cardinality(), shape.nodes - 1);
+      GraphSearch bfs = new GraphSearch(new IntQueue(), shape, carved, 0, shape.nodes - 1);
+      GraphSearch dfs = new GraphSearch(new IntStack(), shape, carved, 0, shape.nodes - 1);
+      t.checkExpect(bfs.solution, dfs.solution);
+      t.checkExpect(bfs.solution[0], 0);
+      t.checkExpect(bfs.solution[bfs.solution.length - 1], shape.nodes - 1);
+      t.checkExpect(bfs.seen[bfs.seenCount - 1], shape.nodes - 1);
+    }
+
+    // nothing's open, so the end can't be reached
+    GraphSearch stuck = new GraphSearch(new IntQueue(), rect, new BitSet(), 0, 5);
+    t.checkExpect(stuck.solution, new int[0]);
+    t.checkExpect(stuck.seenCount, 1);
+    // a row of three cells with the middle one masked out leaves two cells with no edge
+    // between them, so there's nothing to carve and no way from one to the other
+    MazeGraph halves = MazeGraph.masked(new boolean[][] {{true, false, true}});
+    t.checkExpect(generator.carve(halves).cardinality(), 0);
+    t.checkExpect(new GraphSearch(new IntQueue(), halves, new BitSet(), 0, 1).solution,
+            new int[0]);
+
+    t.checkConstructorException(new IllegalArgumentException("Illegal node count for graph"),
+            "GraphBuilder", 0);
+    t.checkException(new IllegalArgumentException("Illegal nodes for edge"),
+            new GraphBuilder(2), "addEdge", 1, 1);
+    t.checkException(new IllegalArgumentException("Illegal width/height for torus"),
+            rect, "torus", 2, 5);
+    t.checkException(new IllegalArgumentException("Illegal weights for graph"),
+            new Kruskal(new ArrayList<Path>(), generator.constructGrid(1, 1)), "spanningTree",
+            rect, new int[3]);
+    t.checkConstructorException(new IllegalArgumentException("Illegal start/end for search"),
+            "GraphSearch", new IntQueue(), rect, new BitSet(), 0, 6);
+  }
+
+  // MAZE WORLD FILE
+  // tests making chunks of an endless maze as they're needed and searching through them
+  void testMazeWorld(Tester t) {
+    MazeWorld world = new MazeWorld(2510, 8, 1 << 20);
+    MazeWorld again = new MazeWorld(2510, 8, 1 << 20);
+    // the cells of three by three chunks around the middle agree with their neighbors, and
+    // with a world made from the same seed
+    int disagreements = 0;
+    int different = 0;
+    int open = 0;
+    for (int y = -8; y < 16; y += 1) {
+      for (int x = -8; x < 16; x += 1) {
+        for (int dir = 0; dir < 4; dir += 1) {
+          open += world.isOpen(x, y, dir) ? 1 : 0;
+          different += world.isOpen(x, y, dir) == again.isOpen(x, y, dir) ? 0 : 1;
+        }
+        disagreements += world.isOpen(x, y, MazeTopology.RIGHT)
+                == world.isOpen(x + 1, y, MazeTopology.LEFT) ? 0 : 1;
+        disagreements += world.isOpen(x, y, MazeTopology.DOWN)
+                == world.isOpen(x, y + 1, MazeTopology.UP) ? 0 : 1;
+      }
+    }
+    t.checkExpect(disagreements, 0);
+    t.checkExpect(different, 0);
+    // each chunk is a perfect maze of 64 cells with a door through each side, and the doors
+    // on the outside of the nine go out into the chunks around them
+    t.checkExpect(open, 2 * (9 * 63 + 12) + 12);
+    // the checks of the right and bottom edges looked at a chunk past them
+    t.checkExpect(world.generated(), 15);
+    t.checkExpect(world.cachedChunks(), 15);
+    t.checkExpect(world.cachedBytes(), 15L * 64);
+    t.checkExpect(world.contains(Integer.MIN_VALUE, 0), false);
+    t.checkExpect(world.contains(-2147483640, 2147483639), true);
+
+    // a chunk made again comes out the same, and a different seed doesn't
+    MazeChunk made = world.generate(-1, 1);
+    MazeChunk other = new MazeWorld(2511, 8, 1 << 20).generate(-1, 1);
+    int same = 0;
+    int sameAsOther = 0;
+    for (int y = 0; y < 8; y += 1) {
+      for (int x = 0; x < 8; x += 1) {
+        for (int dir = 0; dir < 4; dir += 1) {
+          same += made.isOpen(x, y, dir) == world.chunkAt(-1, 1).isOpen(x, y, dir) ? 1 : 0;
+          sameAsOther += made.isOpen(x, y, dir) == other.isOpen(x, y, dir) ? 1 : 0;
+        }
+      }
+    }
+    t.checkExpect(same, 256);
+    t.checkExpect(sameAsOther < 256, true);
+
+    // only four chunks fit, and the one used longest ago is forgotten to make room
+    MazeWorld small = new MazeWorld(2510, 8, 4 * 64);
+    small.chunkAt(0, 0);
+    small.chunkAt(1, 0);
+    small.chunkAt(2, 0);
+    small.chunkAt(3, 0);
+    small.chunkAt(0, 0);
+    small.chunkAt(4, 0);
+    t.checkExpect(small.evicted(), 1);
+    t.checkExpect(small.cachedChunks(), 4);
+    t.checkExpect(small.cachedBytes(), 256L);
+    small.chunkAt(0, 0);
+    t.checkExpect(small.generated(), 5);
+    small.chunkAt(1, 0);
+    t.checkExpect(small.generated(), 6);
+    t.checkExpect(small.evicted(), 2);
+
+    // a search goes from chunk to chunk through the doors, remaking forgotten chunks
+    WorldSearch bfs = new WorldSearch(new IntQueue(), small, new Posn(3, 2), new Posn(-20, 30));
+    WorldSearch dfs = new WorldSearch(new IntStack(), small, new Posn(3, 2), new Posn(-20, 30));
+    t.checkExpect(bfs.solution.get(0), new Posn(3, 2));
+    t.checkExpect(bfs.solution.get(bfs.solution.size() - 1), new Posn(-20, 30));
+    t.checkExpect(bfs.solution.size() <= dfs.solution.size(), true);
+    t.checkExpect(bfs.solution.size() >= 23 + 28 + 1, true);
+    int blocked = 0;
+    for (int i = 0; i + 1 < bfs.solution.size(); i += 1) {
+      Posn from = bfs.solution.get(i);
+      Posn to = bfs.solution.get(i + 1);
+      int dir = to.y < from.y ? MazeTopology.UP : to.x > from.x ? MazeTopology.RIGHT
+              : to.y > from.y ? MazeTopology.DOWN : MazeTopology.LEFT;
+      blocked += Math.abs(to.x - from.x) + Math.abs(to.y - from.y) == 1
+              && small.isOpen(from.x, from.y, dir) ? 0 : 1;
+    }
+    t.checkExpect(blocked, 0);
+    t.checkExpect(small.cachedChunks(), 4);
+    t.checkExpect(new WorldSearch(new IntQueue(), small, new Posn(5, 5), new Posn(5, 5)).solution,
+            new ArrayList<Posn>(List.of(new Posn(5, 5))));
+    t.checkExpect(WorldSearch.fits(small, new Posn(0, 0), new Posn(4095, 4095)), true);
+    t.checkExpect(WorldSearch.fits(small, new Posn(0, 0), new Posn(4096, 4095)), false);
+    // or only as many chunks as the cache keeps
+    t.checkExpect(WorldSearch.fits(small, new Posn(0, 0), new Posn(15, 15),
+            small.maxCachedBytes()), true);
+    t.checkExpect(WorldSearch.fits(small, new Posn(0, 0), new Posn(16, 15),
+            small.maxCachedBytes()), false);
+
+    t.checkConstructorException(new IllegalArgumentException("Illegal distance for search"),
+            "WorldSearch", new IntQueue(), small, new Posn(0, 0), new Posn(5000, 5000));
+    t.checkConstructorException(new IllegalArgumentException("Illegal start/end for search"),
+            "WorldSearch", new IntQueue(), small, new Posn(Integer.MIN_VALUE, 0), new Posn(0, 0));
+    t.checkException(new IllegalArgumentException("Illegal chunk for world"), small, "chunkAt",
+            Integer.MAX_VALUE, 0);
+    t.checkConstructorException(new IllegalArgumentException("Illegal chunk size for world"),
+            "MazeWorld", 2510L, 0, 1024L);
+    t.checkConstructorException(new IllegalArgumentException("Illegal cache size for world"),
+            "MazeWorld", 2510L, 8, 63L);
+  }
+
+  // tests walking through an endless maze
+  void testWorldExplorer(Tester t) {
+    MazeWorld world = new MazeWorld(2510, 8, 1 << 16);
+    WorldExplorer explorer = new WorldExplorer(world);
+    int dir = 0;
+    while (!world.isOpen(0, 0, dir)) {
+      dir += 1;
+    }
+    String[] keys = {"up", "right", "down", "left"};
+    explorer.onKeyEvent(keys[dir]);
+    Posn moved = explorer.player();
+    t.checkExpect(Math.abs(moved.x) + Math.abs(moved.y), 1);
+    // walls don't let the player through
+    int closed = 0;
+    while (world.isOpen(moved.x, moved.y, closed)) {
+      closed += 1;
+    }
+    explorer.onKeyEvent(keys[closed]);
+    t.checkExpect(explorer.player(), moved);
+
+    // the screen is centered on the player, with walls from the world
+    explorer.updateScreen();
+    int middleX = WorldExplorer.COLUMNS / 2;
+    int middleY = WorldExplorer.ROWS / 2;
+    t.checkExpect(explorer.cellAt(middleX, middleY), moved);
+    t.checkExpect(explorer.screenCell(middleX, middleY).clr, Palette.PLAYER);
+    t.checkExpect(explorer.screenCell(middleX - moved.x, middleY - moved.y).clr, Palette.START);
+    t.checkExpect(explorer.screenCell(middleX, middleY).showTop,
+            !world.isOpen(moved.x, moved.y, MazeTopology.UP));
+    t.checkExpect(explorer.screenCell(middleX, middleY).showLeft,
+            !world.isOpen(moved.x, moved.y, MazeTopology.LEFT));
+
+    // the way back is shown once the player is two moves away
+    explorer.onKeyEvent("s");
+    int back = (dir + 2) % 4;
+    int onward = 0;
+    while (onward == back || !world.isOpen(moved.x, moved.y, onward)) {
+      onward += 1;
+      if (onward == 4) {
+        break;
+      }
+    }
+    if (onward < 4) {
+      explorer.onKeyEvent(keys[onward]);
+      explorer.updateScreen();
+      t.checkExpect(explorer.screenCell(middleX + moved.x - explorer.player().x,
+              middleY + moved.y - explorer.player().y).clr, Palette.SOLUTION);
+      // going back cuts the way back off where the player is again
+      Posn ahead = explorer.player();
+      explorer.onKeyEvent(keys[(onward + 2) % 4]);
+      explorer.updateScreen();
+      t.checkExpect(explorer.player(), moved);
+      t.checkExpect(explorer.screenCell(middleX + ahead.x - moved.x,
+              middleY + ahead.y - moved.y).clr, Palette.UNVISITED);
+      t.checkExpect(explorer.screenCell(middleX - moved.x, middleY - moved.y).clr,
+              Palette.START);
+    }
+    explorer.onKeyEvent("r");
+    t.checkExpect(explorer.player(), new Posn(0, 0));
+    t.checkExpect(world.cachedChunks() > 0, true);
+  }
+
+  // EXPLORATION LOG FILE
+  // tests recording a search and playing it back both ways
+  void testExplorationLog(Tester t) {
+    // 3 then 0 are 3 apart, so each fits in a byte, 999999 from 0 takes four
+    ExplorationLog small = new ExplorationLog(1000, 1000);
+    small.push(3);
+    small.visit(0);
+    t.checkExpect(small.size(), 2);
+    small.solution(999999);
+    t.checkExpect(small.size(), 6);
+    t.checkExpect(small.events(), 3);
+    t.checkExpect(ExplorationLog.deltaOf(small.valueAt(2)), 999999);
+    t.checkExpect(ExplorationLog.kindOf(small.valueAt(2)), ExplorationLog.SOLUTION);
+    t.checkExpect(small.before(6), 2);
+    t.checkExpect(small.before(2), 1);
+    t.checkExpect(small.after(2), 6);
+
+    MazeGenerator generator = new MazeGenerator(new Random(2510), 1);
+    ArrayList<ArrayList<Cell>> grid = generator.generate(20, 30, MazeType.NORMAL);
+    Cell start = grid.get(0).get(0);
+    Cell end = grid.get(19).get(29);
+    ExplorationLog log = new ExplorationLog(20, 30);
+    Search search = new Search(new IntStack(), grid, start, end, null, false, log);
+    ArrayList<Integer> seen = new ArrayList<Integer>();
+    for (Cell c : search.seen) {
+      seen.add(c.pos.y * 30 + c.pos.x);
+    }
+    // playing it back one event at a time visits the cells in the order the search did
+    ExplorationReplay replay = new ExplorationReplay(log);
+    ArrayList<Integer> visited = new ArrayList<Integer>();
+    int pushed = 0;
+    while (replay.advance(1) == 1) {
+      if (replay.state(replay.lastCell()) == ExplorationLog.VISIT) {
+        visited.add(replay.lastCell());
+      } else if (replay.state(replay.lastCell()) == ExplorationLog.PUSH) {
+        pushed += 1;
+      }
+    }
+    t.checkExpect(visited, seen);
+    t.checkExpect(replay.isDone(), true);
+    t.checkExpect(replay.position(), log.events());
+    t.checkExpect(log.events(), pushed + seen.size() + search.solution.size());
+    t.checkExpect(replay.visited(), search.seen.size());
+    t.checkExpect(replay.solutionLength(), search.solution.size());
+    t.checkExpect(replay.frontier(), pushed - seen.size());
+    t.checkExpect(replay.state(599), ExplorationLog.PUSH);
+    t.checkExpect(replay.state(0), ExplorationLog.SOLUTION);
+
+    // painted, it looks like the search did
+    replay.paint(grid, null);
+    t.checkExpect(start.clr, Palette.SOLUTION);
+    t.checkExpect(search.seen.get(seen.size() - 1).clr, Palette.EXPLORED);
+    t.checkExpect(end.clr, Palette.UNVISITED);
+
+    // going back and seeking land on the same states as going forward
+    int half = log.events() / 2;
+    t.checkExpect(replay.advance(half - log.events()), log.events() - half);
+    ExplorationReplay forward = new ExplorationReplay(log);
+    forward.advance(half);
+    t.checkExpect(replay.lastCell(), forward.lastCell());
+    t.checkExpect(replay.visited(), forward.visited());
+    t.checkExpect(replay.frontier(), forward.frontier());
+    ExplorationReplay seeking = new ExplorationReplay(log);
+    seeking.seek(log.events());
+    seeking.seek(half + 1);
+    seeking.seek(half);
+    boolean same = true;
+    for (int cell = 0; cell < 600; cell += 1) {
+      same = same && seeking.state(cell) == replay.state(cell)
+              && forward.state(cell) == replay.state(cell);
+    }
+    t.checkExpect(same, true);
+    replay.paint(grid, null);
+    t.checkExpect(start.clr, Palette.EXPLORED);
+    t.checkExpect(replay.advance(-log.events()), half);
+    t.checkExpect(replay.advance(-1), 0);
+    t.checkExpect(replay.visited() + replay.frontier() + replay.solutionLength(), 0);
+    seeking.seek(0);
+    t.checkExpect(seeking.state(0), 0);
+
+    // saved and read back, it's the same log
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      log.write(out);
+      t.checkExpect(out.size(), 20 + log.size());
+      ExplorationLog read = ExplorationLog.read(new ByteArrayInputStream(out.toByteArray()));
+      ByteArrayOutputStream again = new ByteArrayOutputStream();
+      read.write(again);
+      t.checkExpect(again.toByteArray(), out.toByteArray());
+      // more can be added to a log that was read back, after the last cell of the solution
+      Cell last = search.solution.get(search.solution.size() - 1);
+      read.push(0);
+      t.checkExpect(ExplorationLog.deltaOf(read.valueAt(log.size())),
+              -(last.pos.y * 30 + last.pos.x));
+    } catch (IOException e) {
+      t.checkExpect(e, null);
+    }
+    t.checkException(new IOException("not an exploration log"), small, "read",
+            new ByteArrayInputStream(new byte[] {1, 2, 3, 4}));
+
+    t.checkException(new IllegalArgumentException("Illegal cell for log"), small, "push",
+            1000000);
+    t.checkException(new IllegalArgumentException("Illegal event for replay"), replay, "seek",
+            log.events() + 1);
+    t.checkConstructorException(new IllegalArgumentException("Illegal width/height for log"),
+            "ExplorationLog", 0, 5);
+    t.checkConstructorException(new IllegalArgumentException("Illegal log for search"),
+            "Search", new IntQueue(), grid, start, end, null, false, small);
+  }
+
+  // MAZE STRESS FILE
+  // tests measuring mazes against their budgets and history
+  void testMazeStress(Tester t) {
+    StressResult result = MazeStress.measure(30, MazeType.HORIZONTAL, 2510);
+    t.checkExpect(result.size, 30);
+    t.checkExpect(result.type, MazeType.HORIZONTAL);
+    t.checkExpect(result.passed(), true);
+    t.checkExpect(result.peakHeapBytes > 0, true);
+    t.checkExpect(result.key(), "30\tHORIZONTAL");
+    // the default budget is plenty for a maze this small
+    MazeStress.check(result, new ArrayList<StressBudget>(),
+            new HashMap<String, ArrayList<Double>>(), 1.5);
+    t.checkExpect(result.passed(), true);
+
+    StressResult slow = new StressResult(100, MazeType.NORMAL, 300000000L, 150000000L,
+            50000000L, 80000000L);
+    t.checkExpect(slow.totalMillis(), 500.0);
+    t.checkExpect(slow.toLine(1000, "base"),
+            "1000\tbase\t100\tNORMAL\t300.0\t150.0\t50.0\t500.0\t80.0\tpass");
+    ArrayList<StressBudget> budgets = MazeStress.readBudgets(Arrays.asList("# size type ms mb",
+            "", "100\t*\t1000\t100", "100\tNORMAL\t400\t50", "1000\tVERTICAL\t9000\t900"));
+    t.checkExpect(budgets.size(), 3);
+    t.checkExpect(budgets.get(0).covers(100, MazeType.VERTICAL), true);
+    t.checkExpect(budgets.get(1).covers(100, MazeType.VERTICAL), false);
+    t.checkExpect(budgets.get(2).covers(100, MazeType.VERTICAL), false);
+    // the last budget that covers it counts, and failed runs aren't in the history
+    HashMap<String, ArrayList<Double>> history = MazeStress.readHistory(Arrays.asList(
+            MazeStress.HEADER,
+            "1\tbase\t100\tNORMAL\t100.0\t50.0\t50.0\t200.0\t80.0\tpass",
+            "2\tbase\t100\tNORMAL\t100.0\t50.0\t50.0\t9000.0\t80.0\tFAIL took too long",
+            "3\tbase\t100\tNORMAL\t150.0\t50.0\t50.0\t250.0\t80.0\tpass",
+            "4\tbase\t100\tNORMAL\t200.0\t50.0\t50.0\t300.0\t80.0\tpass"));
+    t.checkExpect(history.get("100\tNORMAL"), new ArrayList<Double>(
+            Arrays.asList(200.0, 250.0, 300.0)));
+    MazeStress.check(slow, budgets, history, 1.5);
+    t.checkExpect(slow.failures, new ArrayList<String>(Arrays.asList(
+            "took 500.0 ms, over the budget of 400.0 ms",
+            "used 80.0 MB of heap, over the budget of 50.0 MB",
+            "took 500.0 ms, 2.00x the median of the last 3 runs")));
+    t.checkExpect(slow.toLine(5, "change").endsWith("\tFAIL took 500.0 ms, over the budget "
+            + "of 400.0 ms; used 80.0 MB of heap, over the budget of 50.0 MB; took 500.0 ms, "
+            + "2.00x the median of the last 3 runs"), true);
+
+    // where numbers are written with commas, the history still uses points so it reads back
+    Locale before = Locale.getDefault();
+    Locale.setDefault(Locale.GERMANY);
+    String line = new StressResult(100, MazeType.NORMAL, 300000000L, 150000000L, 50000000L,
+            80000000L).toLine(6, "german");
+    StressResult german = new StressResult(100, MazeType.NORMAL, 300000000L, 150000000L,
+            50000000L, 80000000L);
+    MazeStress.check(german, budgets, history, 1.5);
+    Locale.setDefault(before);
+    t.checkExpect(line, "6\tgerman\t100\tNORMAL\t300.0\t150.0\t50.0\t500.0\t80.0\tpass");
+    t.checkExpect(MazeStress.readHistory(Arrays.asList(line)).get("100\tNORMAL"),
+            new ArrayList<Double>(Arrays.asList(500.0)));
+    t.checkExpect(german.failures, slow.failures);
+
+    // a size too big for the heap fails without being made
+    StressResult tooBig = MazeStress.measureIfFits(5000, MazeType.NORMAL, 1, 1000000000L);
+    t.checkExpect(tooBig.passed(), false);
+    t.checkExpect(tooBig.failures.get(0),
+            "needs about 10000 MB of heap, only 1000 MB available (run with a bigger -Xmx)");
+    t.checkExpect(MazeStress.measureIfFits(20, MazeType.NORMAL, 1, 1000000000L).passed(), true);
+
+    t.checkException(new IllegalArgumentException("Illegal budget line: 100 * 1000"),
+            new MazeStress(), "readBudgets", Arrays.asList("100 * 1000"));
+    t.checkException(new IllegalArgumentException("Illegal size for stress test"),
+            new MazeStress(), "measure", 0, MazeType.NORMAL, 1L);
+    t.checkConstructorException(new IllegalArgumentException("Illegal budget for stress test"),
+            "StressBudget", 100, MazeType.NORMAL, 0.0, 50.0);
+  }
+
+  // MAZE VALIDATOR FILE
+  // tests finding what's wrong with mazes
+  void testMazeValidator(Tester t) {
+    MazeValidator validator = new MazeValidator(3);
+    MazeGenerator generator = new MazeGenerator(new Random(2510), 1);
+    ArrayList<ArrayList<Cell>> grid = generator.generate(20, 30, MazeType.NORMAL);
+    ValidationReport report = validator.validate(grid);
+    t.checkExpect(report.isPerfect(), true);
+    t.checkExpect(report.toString(),
+            "600 cells, 599 passages, 0 cycles, 1 pieces, 0 inconsistencies");
+    t.checkExpect(MazeValidator.check(grid), true);
+
+    // big enough to be split between the threads
+    ArrayList<ArrayList<Cell>> big = generator.generate(260, 260, MazeType.VERTICAL);
+    t.checkExpect(validator.validate(big).isPerfect(), true);
+    t.checkExpect(new MazeValidator(1).validate(big).openPassages, 260L * 260 - 1);
+    Cell corner = big.get(259).get(259);
+    Cell above = big.get(258).get(259);
+    if (corner.canMove(above)) {
+      corner.addWall(big.get(258).get(259));
+      t.checkExpect(validator.validate(big).components(), 2L);
+    } else {
+      new Path(corner, above).removeWall();
+      t.checkExpect(validator.validate(big).cycles, 1L);
+    }
+    t.checkExpect(validator.validate(big).isPerfect(), false);
+
+    // an extra passage through the first wall along the top makes a loop
+    int x = 0;
+    while (grid.get(0).get(x).canMove(grid.get(0).get(x + 1))) {
+      x += 1;
+    }
+    Cell topLeft = grid.get(0).get(x);
+    Cell extra = grid.get(0).get(x + 1);
+    new Path(topLeft, extra).removeWall();
+    report = validator.validate(grid);
+    t.checkExpect(report.cycles, 1L);
+    t.checkExpect(report.openPassages, 600L);
+    t.checkExpect(report.components(), 1L);
+    t.checkExpect(report.isPerfect(), false);
+    t.checkException(new RuntimeException("maze is not perfect: 600 cells, 600 passages, "
+            + "1 cycles, 1 pieces, 0 inconsistencies"), validator, "check", grid);
+    topLeft.addWall(extra);
+    t.checkExpect(validator.validate(grid).isPerfect(), true);
+
+    // walls that don't agree with the paths
+    Cell cell = grid.get(5).get(5);
+    cell.showTop = !cell.showTop;
+    report = validator.validate(grid);
+    t.checkExpect(report.inconsistencies, 1L);
+    t.checkExpect(report.firstProblem, "cell at 5,5 shows its top wall wrong");
+    cell.showTop = !cell.showTop;
+    // a path with no way back
+    Cell neighbor = grid.get(5).get(6);
+    if (cell.canMove(neighbor)) {
+      neighbor.addWall(cell);
+      cell.addPath(new Path(cell, neighbor));
+      neighbor.showLeft = false;
+    } else {
+      cell.addPath(new Path(cell, neighbor));
+    }
+    t.checkExpect(validator.validate(grid).firstProblem,
+            "cell at 5,5 has a path with no way back");
+
+    t.checkConstructorException(new IllegalArgumentException("Illegal threads for validator"),
+            "MazeValidator", 0);
+  }
+
+  // MAZE ANALYTICS FILE
+  // tests the analytics of a small maze and a generated one
+  void testMazeAnalytics(Tester t) {
+    // 0 1 2
+    // 3 4 5, with the ways 0-1, 1-2, 1-4, 2-5 and 3-4 open
+    MazeGraph rect = MazeGraph.rectangle(2, 3);
+    BitSet open = new BitSet();
+    open.set(0);
+    open.set(2);
+    open.set(3);
+    open.set(4);
+    open.set(5);
+    MazeAnalytics analytics = new MazeAnalytics(rect, open, 0, 5, false);
+    t.checkExpect(analytics.degrees, new long[] {0, 3, 2, 1});
+    t.checkExpect(analytics.deadEnds, 3L);
+    t.checkExpect(analytics.corridors, 3L);
+    t.checkExpect(analytics.longestCorridor, 2);
+    t.checkExpect(analytics.corridorLengths, new long[] {1, 2});
+    t.checkExpect(analytics.diameter, 4);
+    t.checkExpect(analytics.hardestStart, 3);
+    t.checkExpect(analytics.hardestEnd, 5);
+    t.checkExpect(analytics.solutionLength, 3);
+    t.checkExpect(analytics.choicesOnSolution, 1);
+    t.checkExpect(analytics.openDistance, 3);
+    t.checkInexact(analytics.tortuosity(), 1.0, 0.001);
+    t.checkExpect(analytics.toJson().startsWith("{\"nodes\": 6, \"start\": 0, \"end\": 5, "
+            + "\"degrees\": [0, 3, 2, 1], \"deadEnds\": 3, "), true);
+
+    // the hardest pair goes the long way round
+    MazeAnalytics hardest = new MazeAnalytics(rect, open, 0, 5, true);
+    t.checkExpect(hardest.start, 3);
+    t.checkExpect(hardest.end, 5);
+    t.checkExpect(hardest.solutionLength, 4);
+    t.checkExpect(hardest.openDistance, 2);
+    t.checkInexact(hardest.tortuosity(), 2.0, 0.001);
+    Locale before = Locale.getDefault();
+    Locale.setDefault(Locale.GERMANY);
+    String json = hardest.toJson();
+    Locale.setDefault(before);
+    t.checkExpect(json.endsWith("\"tortuosity\": 2.000}"), true);
+
+    // with the end cut off there's no solution
+    open.clear(4);
+    MazeAnalytics cutOff = new MazeAnalytics(rect, open, 0, 5, false);
+    t.checkExpect(cutOff.solutionLength, -1);
+    t.checkExpect(cutOff.choicesOnSolution, -1);
+    t.checkInexact(cutOff.tortuosity(), 0.0, 0.001);
+
+    // a grid's maze gives the same solution as searching it
+    ArrayList<ArrayList<Cell>> grid = new MazeGenerator(new Random(2510), 1)
+            .generate(20, 30, MazeType.NORMAL);
+    MazeAnalytics ofGrid = MazeAnalytics.of(grid, false);
+    t.checkExpect(ofGrid.solutionLength, new Search(new IntQueue(), grid, grid.get(0).get(0),
+            grid.get(19).get(29)).solution.size());
+    t.checkExpect(ofGrid.openDistance, 48);
+    t.checkExpect(ofGrid.diameter >= ofGrid.solutionLength, true);
+    t.checkExpect(ofGrid.deadEnds, ofGrid.degrees[1]);
+    long total = 0;
+    for (long count : ofGrid.degrees) {
+      total += count;
+    }
+    t.checkExpect(total, 600L);
+    t.checkExpect(MazeAnalytics.of(grid, true).solutionLength, ofGrid.diameter);
+
+    t.checkConstructorException(new IllegalArgumentException("Illegal start/end for analytics"),
+            "MazeAnalytics", rect, open, 0, 6, false);
+  }
+
+  // LIFELONG SEARCH FILE
+  // tests repairing the route as walls are put up and taken down
+  void testLifelongSearch(Tester t) {
+    // 0 1 2
+    // 3 4 5, with the ways 0-1, 1-2, 2-5, 0-3 and 3-4 open
+    ArrayList<ArrayList<Cell>> grid = new MazeGenerator(new Random(1), 1).constructGrid(2, 3);
+    new Path(grid.get(0).get(0), grid.get(0).get(1)).removeWall();
+    new Path(grid.get(0).get(1), grid.get(0).get(2)).removeWall();
+    new Path(grid.get(0).get(2), grid.get(1).get(2)).removeWall();
+    new Path(grid.get(0).get(0), grid.get(1).get(0)).removeWall();
+    new Path(grid.get(1).get(0), grid.get(1).get(1)).removeWall();
+    LifelongSearch planner = new LifelongSearch(new MazeTopology(grid), 0, 5);
+    t.checkExpect(planner.plan() > 0, true);
+    t.checkExpect(planner.route(), new int[] {0, 1, 2, 5});
+    t.checkExpect(planner.isOnRoute(2), true);
+    t.checkExpect(planner.isOnRoute(4), false);
+    t.checkExpect(planner.distance(5), 3);
+
+    // cutting the only way off leaves no route
+    planner.setWall(1, 2, true);
+    t.checkExpect(planner.isOpen(1, 2), false);
+    t.checkExpect(planner.isOpen(2, 1), false);
+    planner.plan();
+    t.checkExpect(planner.route(), new int[0]);
+    t.checkExpect(planner.isOnRoute(2), false);
+    t.checkExpect(planner.distance(5), -1);
+
+    // until another way is opened
+    planner.setWall(4, 5, false);
+    planner.plan();
+    t.checkExpect(planner.route(), new int[] {0, 3, 4, 5});
+    t.checkExpect(planner.distance(5), 3);
+
+    // a shortcut is found, and the plan only looks at the cells near it
+    planner.setWall(1, 4, false);
+    planner.setWall(3, 4, true);
+    t.checkExpect(planner.plan() < 6, true);
+    t.checkExpect(planner.route(), new int[] {0, 1, 4, 5});
+
+    t.checkException(new IllegalArgumentException("Illegal cells for wall"),
+            planner, "setWall", 2, 3, false);
+    t.checkException(new IllegalArgumentException("Illegal cells for wall"),
+            planner, "isOpen", 0, 6);
+    t.checkConstructorException(new IllegalArgumentException("Illegal start/end for search"),
+            "LifelongSearch", new MazeTopology(grid), 0, 6);
+
+    // putting a wall back up undoes removing it
+    Cell left = grid.get(1).get(1);
+    Cell right = grid.get(1).get(2);
+    new Path(left, right).removeWall();
+    t.checkExpect(right.showLeft, false);
+    left.addWall(right);
+    t.checkExpect(right.showLeft, true);
+    t.checkExpect(left.canMove(right), false);
+    t.checkExpect(right.canMove(left), false);
+    t.checkExpect(left.outPaths.size(), 1);
+
+    // the maze's walls can be toggled by key, by mouse and directly, once they're all down
+    Maze maze = new Maze(3, 3, new Random(1));
+    long replans = MazeMetrics.SHARED.count("replan");
+    maze.toggleWall(new Posn(0, 0), new Posn(1, 0));
+    t.checkExpect(MazeMetrics.SHARED.count("replan"), replans);
+    maze.onKeyEvent("t");
+    // the route is planned as soon as the walls are down, so every change only repairs it
+    long plans = MazeMetrics.SHARED.count("plan");
+    maze.onKeyEvent("r");
+    t.checkExpect(MazeMetrics.SHARED.count("plan"), plans + 1);
+    maze.toggleWall(new Posn(0, 0), new Posn(1, 0));
+    // a search running when a wall changes is run again on the new walls
+    maze.onKeyEvent("b");
+    maze.onKeyEvent("w");
+    // the right edge of the top left cell
+    maze.onMouseClicked(new Posn(239, 10));
+    t.checkExpect(MazeMetrics.SHARED.count("replan"), replans + 3);
+    t.checkExpect(MazeMetrics.SHARED.count("plan"), plans + 1);
+    t.checkException(new IllegalArgumentException("Illegal cells for wall"),
+            maze, "toggleWall", new Posn(0, 0), new Posn(2, 0));
+  }
+
+  // MAZE SERVICE FILE
+  // tests the service's mazes, routes and answers
+  void testMazeService(Tester t) {
+    MazeKey key = new MazeKey(4, 4, 1, MazeType.NORMAL);
+    t.checkExpect(key.equals(new MazeKey(4, 4, 1, MazeType.NORMAL)), true);
+    t.checkExpect(key.hashCode(), new MazeKey(4, 4, 1, MazeType.NORMAL).hashCode());
+    t.checkExpect(key.equals(new MazeKey(4, 4, 2, MazeType.NORMAL)), false);
+    t.checkExpect(key.toString(), "4x4/1/NORMAL");
+
+    // asking for the same maze again gets the one already made
+    MazeService service = new MazeService(2);
+    ServedMaze served = service.maze(key);
+    t.checkExpect(service.maze(new MazeKey(4, 4, 1, MazeType.NORMAL)) == served, true);
+    t.checkExpect(service.built(), 1);
+
+    // routes go through the same cells as a search's solution
+    ArrayList<ArrayList<Cell>> grid = new MazeGenerator(new Random(1), 1)
+            .generate(4, 4, MazeType.NORMAL);
+    Search search = new Search(new IntQueue(), grid, grid.get(0).get(0), grid.get(3).get(3));
+    int[] route = served.route(0, 15);
+    t.checkExpect(route.length, search.solution.size() + 1);
+    for (int i = 0; i < search.solution.size(); i += 1) {
+      t.checkExpect(route[i], served.maze.indexOf(search.solution.get(i)));
+    }
+    t.checkExpect(route[route.length - 1], 15);
+    int[] back = served.route(15, 0);
+    t.checkExpect(back.length, route.length);
+    t.checkExpect(back[0], 15);
+    t.checkExpect(back[back.length - 1], 0);
+    t.checkExpect(served.route(5, 5), new int[] {5});
+
+    // answers
+    t.checkExpect(service.handle("/generate", "size=4x4&seed=1&type=NORMAL")
+            .startsWith("{\"maze\": \"4x4/1/NORMAL\", \"cells\": 16, \"generateMs\": "), true);
+    String solved = service.handle("/solve", "size=4x4&seed=1&routes=0,0:3,3;1,1:1,1");
+    t.checkExpect(solved.contains("{\"length\": " + route.length + ", \"cells\": [[0, 0], "),
+            true);
+    t.checkExpect(solved.contains("{\"length\": 1, \"cells\": [[1, 1]]}"), true);
+    t.checkExpect(service.built(), 1);
+    t.checkExpect(service.handle("/metrics", null).startsWith("{\"built\": 1, \"phases\": "),
+            true);
+
+    // the maze used longest ago is forgotten, so it's made again
+    service.maze(new MazeKey(4, 4, 2, MazeType.NORMAL));
+    service.maze(new MazeKey(4, 4, 3, MazeType.NORMAL));
+    t.checkExpect(service.built(), 3);
+    t.checkExpect(service.maze(key) == served, false);
+    t.checkExpect(service.built(), 4);
+
+    t.checkExpect(MazeService.parse("a=1&b=x%2Cy").get("b"), "x,y");
+    t.checkException(new IllegalArgumentException("Illegal parameter for service: a"),
+            service, "handle", "/solve", "a");
+    t.checkException(new IllegalArgumentException("Illegal path for service: /nope"),
+            service, "handle", "/nope", "");
+    t.checkException(new IllegalArgumentException("Illegal cell for route: 4,0"),
+            service, "handle", "/solve", "size=4x4&seed=1&routes=0,0:4,0");
+    t.checkException(new IllegalArgumentException("Illegal cell for route"),
+            served, "route", 0, 16);
+    t.checkConstructorException(new IllegalArgumentException("Illegal capacity for service"),
+            "MazeService", 0);
+
+    // mazes bigger than the service makes are turned away before any of them is made, even
+    // ones whose cells don't fit in an int
+    MazeService small = new MazeService(2, 20);
+    t.checkException(new IllegalArgumentException("Illegal size for service: more than 20 cells"),
+            small, "handle", "/generate", "size=5x5&seed=1");
+    t.checkException(new IllegalArgumentException("Illegal size for service: more than 20 cells"),
+            small, "handle", "/solve", "size=5x5&seed=1");
+    t.checkException(new IllegalArgumentException("Illegal size for service: more than 20 cells"),
+            small, "handle", "/generate", "size=65536x65536&seed=1");
+    t.checkExpect(small.built(), 0);
+    t.checkExpect(small.handle("/generate", "size=4x5&seed=1")
+            .startsWith("{\"maze\": \"4x5/1/NORMAL\", \"cells\": 20, "), true);
+    t.checkExpect(small.built(), 1);
+    t.checkException(new IllegalArgumentException("Illegal size for service: more than "
+                    + MazeService.MAX_CELLS + " cells"),
+            service, "handle", "/generate", "size=50000x50000&seed=1");
+    t.checkConstructorException(new IllegalArgumentException("Illegal max cells for service"),
+            "MazeService", 2, 0L);
+
+    // json numbers use a '.' wherever the service runs
+    Locale before = Locale.getDefault();
+    Locale.setDefault(Locale.GERMANY);
+    String generated = service.handle("/generate", "size=4x4&seed=1");
+    Locale.setDefault(before);
+    t.checkExpect(generated.matches("\\{\"maze\": \"4x4/1/NORMAL\", \"cells\": 16, "
+            + "\"generateMs\": [0-9]+\\.[0-9]{3}, \"ms\": [0-9]+\\.[0-9]{3}\\}"), true);
+
+    // errors are quoted as json strings, however odd the request was
+    t.checkExpect(ServiceHandler.quote("Illegal path for service: /a\"b\\c"),
+            "\"Illegal path for service: /a\\\"b\\\\c\"");
+    t.checkExpect(ServiceHandler.quote("one\ntwo\tthree\u0001"),
+            "\"one\\ntwo\\tthree\\u0001\"");
+    t.checkExpect(ServiceHandler.quote(null), "null");
+  }
+
+  // AGENT SIMULATION FILE
+  // tests agents walking a maze, and the stats of many of them at once
+  void testAgentSimulation(Tester t) {
+    this.initTestConditions();
+    this.addPaths();
+
+    // grid2x4's paths only go right and down
+    MazeTopology maze = new MazeTopology(grid2x4);
+    t.checkExpect(maze.cells(), 8);
+    t.checkExpect(maze.indexOf(five2x4), 4);
+    t.checkExpect(maze.isOpen(0, MazeTopology.RIGHT), true);
+    t.checkExpect(maze.isOpen(0, MazeTopology.DOWN), true);
+    t.checkExpect(maze.isOpen(0, MazeTopology.LEFT), false);
+    t.checkExpect(maze.isOpen(1, MazeTopology.LEFT), false);
+    t.checkExpect(maze.degree(1), 2);
+    t.checkExpect(maze.degree(7), 0);
+    t.checkExpect(maze.neighbor(0, MazeTopology.DOWN), 4);
+    t.checkExpect(maze.neighbor(5, MazeTopology.RIGHT), 6);
+
+    // the wall follower turns right whenever it can
+    WallFollower follower = new WallFollower(maze, 0, 7);
+    follower.step();
+    t.checkExpect(follower.cell, 4);
+    follower.step();
+    t.checkExpect(follower.cell, 5);
+    follower.step();
+    follower.step();
+    t.checkExpect(follower.cell, 7);
+    t.checkExpect(follower.finished, true);
+    t.checkExpect(follower.moves, 4);
+    t.checkExpect(follower.visited.cardinality(), 5);
+    follower.step();
+    t.checkExpect(follower.moves, 4);
+
+    // one search out from the exit finds the way there from every cell, only taking open ways
+    int[] towards = maze.towards(7);
+    t.checkExpect(towards, new int[] {4, 5, 6, 7, 5, 6, 7, 7});
+    t.checkExpect(maze.towards(0), new int[] {0, -1, -1, -1, -1, -1, -1, -1});
+    SearchBot bot = new SearchBot(maze, 0, 7, towards);
+    bot.step();
+    t.checkExpect(bot.cell, 4);
+    for (int i = 0; i < 3; i += 1) {
+      bot.step();
+    }
+    t.checkExpect(bot.cell, 7);
+    t.checkExpect(bot.finished, true);
+    t.checkExpect(bot.moves, 4);
+    // a bot that can't reach the exit stays put
+    SearchBot stuck = new SearchBot(maze, 7, 0, maze.towards(0));
+    stuck.step();
+    t.checkExpect(stuck.cell, 7);
+    t.checkExpect(stuck.moves, 0);
+
+    // every move goes right or down, so everyone is out after 4 ticks
+    AgentSimulation sim = new AgentSimulation(maze, new AAgent[] {
+      new WallFollower(maze, 0, 7),
+      new SearchBot(maze, 0, 7, towards),
+      new RandomWalker(maze, 0, 7, new Random(2510))});
+    AgentTickStats first = sim.tick();
+    t.checkExpect(first.tick, 1);
+    // everyone went down to the same cell
+    t.checkExpect(first.collisions, 3);
+    t.checkExpect(first.covered, 2);
+    t.checkExpect(first.finished, 0);
+    sim.tick();
+    sim.tick();
+    AgentTickStats last = sim.tick();
+    t.checkExpect(sim.isDone(), true);
+    t.checkExpect(last.collisions, 0);
+    t.checkExpect(last.finished, 3);
+    t.checkExpect(last.toLine(), "4\t0\t" + last.covered + "\t3");
+
+    // enough agents to be moved in parallel, on a maze without loops
+    ArrayList<ArrayList<Cell>> grid = new MazeGenerator(new Random(2510), 1)
+            .generate(10, 10, MazeType.NORMAL);
+    AgentSimulation many = AgentSimulation.spawn(grid, 400, new Random(2510));
+    AgentTickStats stats = many.tick();
+    for (int i = 1; i < 200; i += 1) {
+      stats = many.tick();
+    }
+    // the wall followers and bots are all out by now, but not every random walker
+    int othersOut = 0;
+    int walkersOut = 0;
+    for (int i = 0; i < many.agents.length; i += 1) {
+      if (many.agents[i].finished && i % 3 != 0) {
+        othersOut += 1;
+      } else if (many.agents[i].finished) {
+        walkersOut += 1;
+      }
+    }
+    t.checkExpect(othersOut, 266);
+    t.checkExpect(walkersOut < 134, true);
+    t.checkExpect(stats.finished, othersOut + walkersOut);
+    t.checkExpect(stats.covered, 100);
+
+    t.checkConstructorException(new IllegalArgumentException("Illegal start/exit for agent"),
+            "WallFollower", maze, 8, 7);
+    t.checkConstructorException(new IllegalArgumentException("Illegal route for agent"),
+            "SearchBot", maze, 0, 7, new int[7]);
+    t.checkConstructorException(new IllegalArgumentException("Illegal grid for topology"),
+            "MazeTopology", new ArrayList<ArrayList<Cell>>());
+    t.checkException(new IllegalArgumentException("Illegal count for agents"),
+            new AgentSimulation(maze, new AAgent[0]), "spawn", grid, 0, new Random(2510));
+  }
+
+  // MAZE PREGENERATOR FILE
+  // tests building mazes ahead of time and remaking the grids given back
+  void testMazePregenerator(Tester t) {
+    MazePregenerator pregenerator = new MazePregenerator(3, 4, 10, new Random(8));
+    t.checkExpect(pregenerator.fits(), true);
+    t.checkExpect(pregenerator.isPreparing(MazeType.VERTICAL), false);
+    pregenerator.prepareAll();
+    t.checkExpect(pregenerator.isPreparing(MazeType.VERTICAL), true);
+
+    // a maze comes with its walls still up, and the paths to knock down
+    PregeneratedMaze first = pregenerator.take(MazeType.VERTICAL);
+    t.checkExpect(pregenerator.isPreparing(MazeType.VERTICAL), false);
+    t.checkExpect(first.grid.size(), 3);
+    t.checkExpect(first.mst.size(), 11);
+    t.checkExpect(first.grid.get(1).get(1).showTop, true);
+    t.checkExpect(first.grid.get(1).get(1).outPaths.isEmpty(), true);
+    for (Path p : first.mst) {
+      p.removeWall();
+    }
+
+    // the grid given back is made into the next maze, starting over from every wall up
+    first.grid.get(0).get(0).clr = Palette.SOLUTION;
+    ArrayList<Path> firstPaths = new ArrayList<Path>(first.built.paths);
+    pregenerator.prepare(MazeType.VERTICAL, first.built);
+    PregeneratedMaze second = pregenerator.take(MazeType.VERTICAL);
+    t.checkExpect(second.grid == first.grid, true);
+    t.checkExpect(second.mst == first.mst, true);
+    t.checkExpect(second.grid.get(0).get(0).clr, Palette.UNVISITED);
+    t.checkExpect(second.grid.get(1).get(1).outPaths.isEmpty(), true);
+    t.checkExpect(second.mst.size(), 11);
+
+    // and its paths are the same ones, given new weights, not new paths between the same cells
+    int samePaths = 0;
+    for (int i = 0; i < firstPaths.size(); i += 1) {
+      samePaths += second.built.paths.get(i) == firstPaths.get(i) ? 1 : 0;
+    }
+    t.checkExpect(samePaths, 17);
+    t.checkExpect(second.built.paths.size(), 17);
+    int treePathsKept = 0;
+    for (Path p : second.mst) {
+      // paths don't override equals, so this finds the very same path
+      treePathsKept += firstPaths.contains(p) ? 1 : 0;
+    }
+    t.checkExpect(treePathsKept, 11);
+    int cellPathsKept = 0;
+    for (Path p : second.mst) {
+      p.removeWall();
+    }
+    for (ArrayList<Cell> row : second.grid) {
+      for (Cell c : row) {
+        for (Path p : c.outPaths) {
+          cellPathsKept += firstPaths.contains(p) ? 1 : 0;
+        }
+      }
+    }
+    t.checkExpect(cellPathsKept, 11);
+
+    t.checkException(new IllegalArgumentException("Illegal type for pregenerator"),
+            pregenerator, "take", MazeType.VERTICAL);
+    t.checkConstructorException(new IllegalArgumentException("Illegal width/height for maze"),
+            "MazePregenerator", 0, 4, 10, new Random(8));
+  }
+
+  // MAZE METRICS FILE
+  // tests adding up the phases of making and solving mazes
+  void testMazeMetrics(Tester t) {
+    MazeMetrics metrics = new MazeMetrics();
+    t.checkExpect(metrics.toJson(), "{}");
+    metrics.record("kruskal", 2000000, 64, 12, 11, 0, 0);
+    metrics.record("search", 1000000, 0, 12, 0, 5, 3);
+    metrics.record("search", 3000000, 0, 12, 0, 7, 2);
+    t.checkExpect(metrics.count("search"), 2L);
+    t.checkExpect(metrics.count("quicksort"), 0L);
+    t.checkExpect(metrics.toJson(), "{\"kruskal\": {\"count\": 1, \"totalMs\": 2.000, "
+            + "\"maxMs\": 2.000, \"bytes\": 64, \"cells\": 12, \"edges\": 11, "
+            + "\"nodesExpanded\": 0, \"worklistPeak\": 0}, \"search\": {\"count\": 2, "
+            + "\"totalMs\": 4.000, \"maxMs\": 3.000, \"bytes\": 0, \"cells\": 24, "
+            + "\"edges\": 0, \"nodesExpanded\": 12, \"worklistPeak\": 3}}");
+
+    // a phase records itself when it ends
+    new MazePhase("removeWalls").end(metrics, 4, 3, 0, 0);
+    t.checkExpect(metrics.count("removeWalls"), 1L);
+    metrics.clear();
+    t.checkExpect(metrics.toJson(), "{}");
+
+    // making and solving a maze records each phase in the shared metrics
+    long sorts = MazeMetrics.SHARED.count("quicksort");
+    long searches = MazeMetrics.SHARED.count("search");
+    ArrayList<ArrayList<Cell>> grid = new MazeGenerator(new Random(3), 10)
+            .generate(3, 4, MazeType.NORMAL);
+    new Search(new IntQueue(), grid, grid.get(0).get(0), grid.get(2).get(3));
+    t.checkExpect(MazeMetrics.SHARED.count("quicksort"), sorts + 1);
+    t.checkExpect(MazeMetrics.SHARED.count("search"), searches + 1);
+
+    // so does knocking the walls down a tick at a time
+    long animated = MazeMetrics.SHARED.count("animateWalls");
+    Maze animating = new Maze(3, 3, new Random(4));
+    animating.onTick();
+    t.checkExpect(MazeMetrics.SHARED.count("animateWalls"), animated + 1);
+
+    // and the totals use a '.' whatever the locale
+    metrics.record("search", 1500000, 0, 12, 0, 5, 3);
+    Locale before = Locale.getDefault();
+    Locale.setDefault(Locale.GERMANY);
+    String json = metrics.toJson();
+    Locale.setDefault(before);
+    t.checkExpect(json.startsWith("{\"search\": {\"count\": 1, \"totalMs\": 1.500, "), true);
+  }
+
+  // MAZE BENCHMARKS FILE
+  // tests that every benchmark does the work it times, and reading back a baseline
+  void testMazeBenchmark(Tester t) {
+    int[] expected = {2, 4, 4, 3, 3, 3, 2, 0, 0, 0};
+    for (int i = 0; i < MazeBenchmark.NAMES.length; i += 1) {
+      MazeBenchmark bench = new MazeBenchmark(MazeBenchmark.NAMES[i], 2, 2, MazeType.NORMAL);
+      bench.setUp();
+      int result = bench.run();
+      // the last few only give back something to keep, so we just check they ran
+      if (i < 7) {
+        t.checkExpect(result, expected[i]);
+      }
+    }
+
+    BenchmarkResult result = new BenchmarkResult("bfs\t2x2\tNORMAL", 500, 64);
+    t.checkExpect(result.toLine(), "bfs\t2x2\tNORMAL\t500.000\t2.0000\t64");
+    HashMap<String, BenchmarkResult> baseline = MazeBenchmarks.readBaseline(Arrays.asList(
+            "benchmark\tsize\ttype\tops/s\tms/op\tbytes/op", result.toLine()));
+    t.checkExpect(baseline.size(), 1);
+    t.checkExpect(baseline.get("bfs\t2x2\tNORMAL").opsPerSecond, 500.0);
+    // a baseline saved where numbers are written with commas reads back anywhere
+    Locale before = Locale.getDefault();
+    Locale.setDefault(Locale.GERMANY);
+    String line = new BenchmarkResult("bfs\t2x2\tNORMAL", 1234.5, 64).toLine();
+    Locale.setDefault(before);
+    t.checkExpect(line, "bfs\t2x2\tNORMAL\t1234.500\t0.8100\t64");
+    t.checkExpect(MazeBenchmarks.readBaseline(Arrays.asList(line)).get("bfs\t2x2\tNORMAL")
+            .opsPerSecond, 1234.5);
+
+    t.checkConstructorException(new IllegalArgumentException("Illegal name for benchmark"),
+            "MazeBenchmark", "sort", 2, 2, MazeType.NORMAL);
+    t.checkConstructorException(new IllegalArgumentException(
+            "Illegal width/height for benchmark"), "MazeBenchmark", "bfs", 0, 2, MazeType.NORMAL);
+  }
+
+  // FRAME STATS FILE
+  // tests keeping rolling timings of drawing, ticking and key presses
+  void testFrameStats(Tester t) {
+    FrameStats stats = new FrameStats();
+    t.checkExpect(stats.percentile(FrameStats.SCENE, 50), 0L);
+    t.checkExpect(stats.cellsPerFrame(), 0.0);
+    // frames taking 1 to 100 milliseconds, the nth drawing n cells
+    for (int i = 1; i <= 100; i += 1) {
+      stats.drew(i);
+      stats.record(FrameStats.SCENE, i * 1000000L);
+    }
+    stats.record(FrameStats.TICK, 3000000L);
+    t.checkExpect(stats.percentile(FrameStats.SCENE, 50), 50000000L);
+    t.checkExpect(stats.percentile(FrameStats.SCENE, 99), 99000000L);
+    t.checkExpect(stats.percentile(FrameStats.TICK, 99), 3000000L);
+    t.checkExpect(stats.cellsPerFrame(), 50.5);
+    Locale before = Locale.getDefault();
+    Locale.setDefault(Locale.GERMANY);
+    String described = stats.describe();
+    Locale.setDefault(before);
+    t.checkExpect(described, "scene p50 50.00 p99 99.00 | tick p50 3.00 p99 3.00 | "
+            + "key p50 0.00 p99 0.00 | 51 cells/frame");
+    // only the latest samples count
+    for (int i = 0; i < 240; i += 1) {
+      stats.record(FrameStats.SCENE, 2000000L);
+    }
+    t.checkExpect(stats.percentile(FrameStats.SCENE, 99), 2000000L);
+    t.checkExpect(stats.cellsPerFrame(), 0.0);
+
+    // the summary is only redone once a second
+    t.checkExpect(stats.refreshIfDue(0), true);
+    t.checkExpect(stats.refreshIfDue(500000000L), false);
+    t.checkExpect(stats.refreshIfDue(1000000000L), true);
+
+    t.checkException(new IllegalArgumentException("Illegal entry point for stats"),
+            stats, "record", 3, 0L);
+  }
+
+  // ANIMATION SCHEDULER FILE
+  // tests pacing an animation to take one second with 8 milliseconds a tick
+  void testAnimationScheduler(Tester t) {
+    AnimationScheduler pace = new AnimationScheduler(1000, 8);
+    pace.start(100);
+    // the first tick starts the clock, and always gets a step
+    pace.beginTick(0);
+    t.checkExpect(pace.next(0), true);
+    t.checkExpect(pace.next(0), false);
+    // half way through, half the steps are due
+    pace.beginTick(500000000);
+    int steps = 0;
+    while (pace.next(500000000)) {
+      steps += 1;
+    }
+    t.checkExpect(steps, 49);
+    // a late tick catches up on the rest, but no more
+    pace.beginTick(2000000000);
+    steps = 0;
+    while (pace.next(2000000000)) {
+      steps += 1;
+    }
+    t.checkExpect(steps, 50);
+
+    // a tick stops once it's over its budget, even if more steps are due
+    pace.start(1000000);
+    pace.beginTick(0);
+    pace.beginTick(1000000000);
+    steps = 0;
+    while (steps < 64 && pace.next(1000000000)) {
+      steps += 1;
+    }
+    t.checkExpect(steps, 64);
+    t.checkExpect(pace.next(1009000000), false);
+    // the budget isn't checked before a tick's first step, however late it is
+    pace.beginTick(1010000000);
+    t.checkExpect(pace.next(2000000000), true);
+
+    t.checkConstructorException(new IllegalArgumentException(
+            "Illegal duration for animation"), "AnimationScheduler", 0L, 8L);
+  }
+
   // SEARCH FILE
 
   // test search algorithm (both breadth and depth)
@@ -869,6 +2866,113 @@ class ExamplesMaze {
 
   }
 
+  // tests the primitive worklists keep the same order as the ones they mirror
+  void testIntCollections(Tester t) {
+    IIntCollection queue = new IntQueue(2);
+    IIntCollection stack = new IntStack(2);
+    t.checkExpect(queue.isEmpty(), true);
+    t.checkExpect(stack.isEmpty(), true);
+
+    // adding past the starting capacity grows the buffer
+    for (int i = 0; i < 5; i += 1) {
+      queue.add(i);
+      stack.add(i);
+    }
+    t.checkExpect(queue.isEmpty(), false);
+    t.checkExpect(queue.remove(), 0);
+    t.checkExpect(queue.remove(), 1);
+    t.checkExpect(stack.remove(), 4);
+    t.checkExpect(stack.remove(), 3);
+
+    // wrapping around the end of the ring keeps the order
+    queue.add(5);
+    queue.add(6);
+    t.checkExpect(queue.remove(), 2);
+    t.checkExpect(queue.remove(), 3);
+    t.checkExpect(queue.remove(), 4);
+    t.checkExpect(queue.remove(), 5);
+    t.checkExpect(queue.remove(), 6);
+    t.checkExpect(queue.isEmpty(), true);
+
+    t.checkException(new RuntimeException("cannot remove from an empty collection"),
+            queue, "remove");
+    t.checkConstructorException(new IllegalArgumentException(
+            "Illegal capacity for collection"), "IntQueue", 0);
+  }
+
+  // tests searching by cell index visits and solves the same as searching by cell
+  void testSearchIndices(Tester t) {
+    this.initTestConditions();
+    this.addPaths();
+
+    Search bfsIndices2x4 = new Search(new IntQueue(), grid2x4, one2x4, eight2x4);
+    Search dfsIndices2x4 = new Search(new IntStack(1), grid2x4, one2x4, eight2x4);
+    t.checkExpect(bfsIndices2x4.seen, bfs2x4.seen);
+    t.checkExpect(dfsIndices2x4.seen, dfs2x4.seen);
+    // the first path to reach a cell is kept, so bfs finds the shortest solution
+    t.checkExpect(bfsIndices2x4.solution, List.of(one2x4, two2x4, three2x4, four2x4));
+    t.checkExpect(dfsIndices2x4.solution, List.of(one2x4, five2x4, six2x4, seven2x4));
+    t.checkExpect(bfsIndices2x4.numWrongMoves(), bfs2x4.numWrongMoves());
+
+    Search bfsIndices2x2 = new Search(new IntQueue(), grid2x2, zeroZero2x2, oneOne2x2);
+    t.checkExpect(bfsIndices2x2.seen, bfs2x2.seen);
+    t.checkExpect(bfsIndices2x2.solution, List.of(zeroZero2x2, oneZero2x2));
+
+    // the start is the end, so nothing is seen and there is no solution
+    Search bfsIndices1x1 = new Search(new IntQueue(), grid1x1, grid1x1.get(0).get(0),
+            grid1x1.get(0).get(0));
+    t.checkExpect(bfsIndices1x1.seen, new ArrayList<Cell>());
+    t.checkExpect(bfsIndices1x1.solution, new ArrayList<Cell>());
+  }
+
+  // tests searching in the background, drawing the cells seen as they are published
+  void testBackgroundSearch(Tester t) {
+    this.initTestConditions();
+    this.addPaths();
+
+    Search later = new Search(new IntQueue(), grid2x4, one2x4, eight2x4, null, true);
+    // nothing has been seen yet, but it is still going
+    t.checkExpect(later.isFinished(), false);
+    t.checkExpect(later.explored(), 0);
+    t.checkExpect(later.renderExplorationSingle(), true);
+    t.checkExpect(one2x4.clr, Palette.UNVISITED);
+    later.renderSolution();
+    t.checkExpect(one2x4.clr, Palette.UNVISITED);
+
+    // once it has run it matches a search run when it was made
+    later.run();
+    t.checkExpect(later.isFinished(), true);
+    t.checkExpect(later.explored(), bfs2x4.seen.size());
+    t.checkExpect(later.seen, new Search(new IntQueue(), grid2x4, one2x4, eight2x4).seen);
+    t.checkExpect(later.solution, List.of(one2x4, two2x4, three2x4, four2x4));
+    later.renderExplored();
+    t.checkExpect(one2x4.clr, Palette.EXPLORED);
+    t.checkExpect(eight2x4.clr, Palette.UNVISITED);
+
+    // a cancelled search stops before seeing anything else
+    Search cancelled = new Search(new IntStack(), grid2x4, one2x4, eight2x4, null, true);
+    cancelled.cancel();
+    cancelled.run();
+    t.checkExpect(cancelled.isFinished(), true);
+    t.checkExpect(cancelled.explored(), 0);
+    t.checkExpect(cancelled.renderExplorationSingle(), false);
+
+    // the solver runs a search on its own thread
+    BackgroundSolver solver = new BackgroundSolver();
+    Search solving = new Search(new IntStack(), grid2x4, one2x4, eight2x4, null, true);
+    solver.start(solving);
+    solver.await();
+    t.checkExpect(solving.isFinished(), true);
+    t.checkExpect(solving.solution, List.of(one2x4, five2x4, six2x4, seven2x4));
+    // there's nothing left to wait for or stop
+    solver.await();
+    solver.cancel();
+    t.checkExpect(solving.solution, List.of(one2x4, five2x4, six2x4, seven2x4));
+
+    t.checkException(new IllegalStateException("search has already run"),
+            later, "run");
+  }
+
   // tests rendering light blue exploration path
   void testRenderExploration(Tester t) {
     this.initTestConditions();
@@ -879,10 +2983,10 @@ class ExamplesMaze {
 
     // ensure cells are light gray
     for (Cell c : search2x2Seen) {
-      t.checkExpect(c.clr, Color.LIGHT_GRAY);
+      t.checkExpect(c.clr, Palette.UNVISITED);
     }
     for (Cell c : search2x4Seen) {
-      t.checkExpect(c.clr, Color.LIGHT_GRAY);
+      t.checkExpect(c.clr, Palette.UNVISITED);
     }
 
     search2x2.renderExploration(search2x2.seen);
@@ -890,10 +2994,10 @@ class ExamplesMaze {
 
     // check color changed to light blue
     for (Cell c : search2x2Seen) {
-      t.checkExpect(c.clr, new Color(176,224,230));
+      t.checkExpect(c.clr, Palette.EXPLORED);
     }
     for (Cell c : search2x4Seen) {
-      t.checkExpect(c.clr, new Color(176,224,230));
+      t.checkExpect(c.clr, Palette.EXPLORED);
     }
   }
 
@@ -909,18 +3013,18 @@ class ExamplesMaze {
     Cell search2x4First = search2x4seen.get(0);
 
     // ensure cells are light gray
-    t.checkExpect(search2x2First.clr, Color.LIGHT_GRAY);
-    t.checkExpect(search2x4First.clr, Color.LIGHT_GRAY);
+    t.checkExpect(search2x2First.clr, Palette.UNVISITED);
+    t.checkExpect(search2x4First.clr, Palette.UNVISITED);
 
     t.checkExpect(search2x2.renderExplorationSingle(), true);
     t.checkExpect(search2x4.renderExplorationSingle(), true);
 
     // make sure we only changed and removed the first element
-    t.checkExpect(search2x2First.clr, new Color(176, 224, 230));
-    t.checkExpect(search2x4First.clr, new Color(176, 224, 230));
+    t.checkExpect(search2x2First.clr, Palette.EXPLORED);
+    t.checkExpect(search2x4First.clr, Palette.EXPLORED);
 
-    t.checkExpect(search2x2seen.get(1).clr, Color.LIGHT_GRAY);
-    t.checkExpect(search2x4seen.get(1).clr, Color.LIGHT_GRAY);
+    t.checkExpect(search2x2seen.get(1).clr, Palette.UNVISITED);
+    t.checkExpect(search2x4seen.get(1).clr, Palette.UNVISITED);
 
     // remove all elements until false
     t.checkExpect(search2x2.renderExplorationSingle(), true);
@@ -946,19 +3050,19 @@ class ExamplesMaze {
 
     // solution values are dark blue, others are gray
     // because we are just rendering solution, not exploration
-    t.checkExpect(zeroZero2x2.clr, new Color(0, 51, 102));
-    t.checkExpect(oneZero2x2.clr, Color.LIGHT_GRAY);
-    t.checkExpect(zeroOne2x2.clr, new Color(0, 51, 102));
-    t.checkExpect(oneOne2x2.clr, Color.LIGHT_GRAY);
-
-    t.checkExpect(one2x4.clr, new Color(0, 51, 102));
-    t.checkExpect(two2x4.clr, Color.LIGHT_GRAY);
-    t.checkExpect(three2x4.clr, Color.LIGHT_GRAY);
-    t.checkExpect(four2x4.clr, Color.LIGHT_GRAY);
-    t.checkExpect(five2x4.clr, new Color(0, 51, 102));
-    t.checkExpect(six2x4.clr, new Color(0, 51, 102));
-    t.checkExpect(seven2x4.clr, new Color(0, 51, 102));
-    t.checkExpect(eight2x4.clr, Color.LIGHT_GRAY);
+    t.checkExpect(zeroZero2x2.clr, Palette.SOLUTION);
+    t.checkExpect(oneZero2x2.clr, Palette.UNVISITED);
+    t.checkExpect(zeroOne2x2.clr, Palette.SOLUTION);
+    t.checkExpect(oneOne2x2.clr, Palette.UNVISITED);
+
+    t.checkExpect(one2x4.clr, Palette.SOLUTION);
+    t.checkExpect(two2x4.clr, Palette.UNVISITED);
+    t.checkExpect(three2x4.clr, Palette.UNVISITED);
+    t.checkExpect(four2x4.clr, Palette.UNVISITED);
+    t.checkExpect(five2x4.clr, Palette.SOLUTION);
+    t.checkExpect(six2x4.clr, Palette.SOLUTION);
+    t.checkExpect(seven2x4.clr, Palette.SOLUTION);
+    t.checkExpect(eight2x4.clr, Palette.UNVISITED);
   }
 
   void testNumWrongMoves(Tester t) {
@@ -1003,26 +3107,43 @@ class ExamplesMaze {
             new Cell(new Posn(0, 0), 720));
   }
 
+  // PALETTE FILE
+  // tests the colors cells can be and the gradient between blue and red
+  void testPalette(Tester t) {
+    t.checkExpect(Palette.color(Palette.UNVISITED), Color.LIGHT_GRAY);
+    t.checkExpect(Palette.color(Palette.EXPLORED), new Color(176, 224, 230));
+    t.checkExpect(Palette.color(Palette.SOLUTION), new Color(0, 51, 102));
+    t.checkExpect(Palette.rgb(Palette.PLAYER), new Color(0, 255, 0).getRGB());
+    // the same index always gives back the same color object
+    t.checkExpect(Palette.color(Palette.START) == Palette.color(Palette.START), true);
+
+    t.checkExpect(Palette.color(Palette.gradient(0)), new Color(0, 0, 255));
+    t.checkExpect(Palette.color(Palette.gradient(255)), new Color(255, 0, 0));
+    t.checkExpect(Palette.color(Palette.gradient(127)), new Color(126, 0, 129));
+    t.checkExpect(Palette.gradient(300), Palette.gradient(255));
+    t.checkExpect(Palette.gradient(-5), Palette.gradient(0));
+  }
+
   // tests if we can get how far away a cell is
   void testHowFarFromCell(Tester t) {
     this.initTestConditions();
     this.addPaths();
 
     this.search2x2.howFarFromCell(4, zeroZero2x2);
-    t.checkExpect(zeroZero2x2.clr, Color.LIGHT_GRAY);
-    t.checkExpect(zeroOne2x2.clr, new Color(0, 0, 255));
-    t.checkExpect(oneZero2x2.clr, new Color(0, 0, 255));
-    t.checkExpect(oneOne2x2.clr, new Color(127, 0, 127));
+    t.checkExpect(zeroZero2x2.clr, Palette.UNVISITED);
+    t.checkExpect(zeroOne2x2.clr, Palette.gradient(0));
+    t.checkExpect(oneZero2x2.clr, Palette.gradient(0));
+    t.checkExpect(oneOne2x2.clr, Palette.gradient(127));
 
     this.search2x4.howFarFromCell(8, one2x4);
-    t.checkExpect(one2x4.clr, Color.LIGHT_GRAY);
-    t.checkExpect(two2x4.clr, new Color(0, 0, 255));
-    t.checkExpect(three2x4.clr, new Color(31, 0, 223));
-    t.checkExpect(four2x4.clr, new Color(95, 0, 159));
-    t.checkExpect(five2x4.clr, new Color(0, 0, 255));
-    t.checkExpect(six2x4.clr, new Color(63, 0, 191));
-    t.checkExpect(seven2x4.clr, new Color(127, 0, 127));
-    t.checkExpect(eight2x4.clr, new Color(223, 0, 31));
+    t.checkExpect(one2x4.clr, Palette.UNVISITED);
+    t.checkExpect(two2x4.clr, Palette.gradient(0));
+    t.checkExpect(three2x4.clr, Palette.gradient(31));
+    t.checkExpect(four2x4.clr, Palette.gradient(95));
+    t.checkExpect(five2x4.clr, Palette.gradient(0));
+    t.checkExpect(six2x4.clr, Palette.gradient(63));
+    t.checkExpect(seven2x4.clr, Palette.gradient(127));
+    t.checkExpect(eight2x4.clr, Palette.gradient(223));
   }
 
 }
@@ -0,0 +1,287 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.Random;
+
+// how hard a perfect maze is, worked out in a few passes over it that each take time in
+// proportion to its size, keeping only a few arrays of ints, so it can be run on mazes of tens
+// of millions of cells
+// the maze is a MazeGraph with the edges that are open, so it can be any shape
+// usage: MazeAnalytics [-shape rectangle] [-size 1000x1000] [-seed 2510] [-reanchor]
+//   where the shape is rectangle, torus, hex or layered (with a size like 10x500x500)
+// prints the analytics of one random maze as json
+class MazeAnalytics {
+
+  // how many cells the maze has, and which ones the solution goes between
+  final int nodes;
+  final int start;
+  final int end;
+
+  // how many cells have each number of ways out, by number
+  final long[] degrees;
+
+  // the cells with only one way out
+  final long deadEnds;
+
+  // the corridors, the stretches between cells that don't have exactly two ways out, going
+  // through cells that do: how many there are, the longest, and how many there are of each
+  // length (by the power of two the length is at least: 1, 2-3, 4-7 and so on), in moves
+  final long corridors;
+  final int longestCorridor;
+  final long[] corridorLengths;
+
+  // the most moves between any two cells, and a pair of cells that far apart
+  final int diameter;
+  final int hardestStart;
+  final int hardestEnd;
+
+  // the moves from the start to the end, how many of the cells on the way give a choice
+  // (three or more ways out), and the moves it would take with no walls
+  // -1 if the end can't be reached
+  final int solutionLength;
+  final int choicesOnSolution;
+  final int openDistance;
+
+  // takes the maze from the start to the end, or if reanchor is true from one end of the
+  // diameter to the other, which is the hardest pair of cells there is
+  MazeAnalytics(MazeGraph graph, BitSet open, int start, int end, boolean reanchor) {
+    if (start < 0 || start >= graph.nodes || end < 0 || end >= graph.nodes) {
+      throw new IllegalArgumentException("Illegal start/end for analytics");
+    }
+    MazePhase phase = new MazePhase("analytics");
+    this.nodes = graph.nodes;
+
+    // how many open ways out of each cell there are, worked out once since every pass needs it
+    // (a byte is plenty, the shapes we make have at most six)
+    byte[] openDegrees = new byte[graph.nodes];
+    long[] counts = new long[1];
+    for (int n = 0; n < graph.nodes; n += 1) {
+      int degree = MazeAnalytics.openDegree(graph, open, n);
+      openDegrees[n] = (byte) degree;
+      if (degree >= counts.length) {
+        counts = Arrays.copyOf(counts, degree + 1);
+      }
+      counts[degree] += 1;
+    }
+    this.degrees = counts;
+    this.deadEnds = counts.length > 1 ? counts[1] : 0;
+
+    // every corridor is walked from both of its ends, and only counted from the smaller one
+    long[] lengths = new long[32];
+    long corridorCount = 0;
+    int longest = 0;
+    for (int n = 0; n < graph.nodes; n += 1) {
+      if (openDegrees[n] == 2) {
+        continue;
+      }
+      for (int slot = graph.first(n); slot < graph.last(n); slot += 1) {
+        if (!open.get(graph.targetEdge(slot))) {
+          continue;
+        }
+        int previous = n;
+        int cur = graph.target(slot);
+        int length = 1;
+        while (openDegrees[cur] == 2) {
+          int next = MazeAnalytics.otherWay(graph, open, cur, previous);
+          previous = cur;
+          cur = next;
+          length += 1;
+        }
+        if (n < cur || (n == cur && slot < MazeAnalytics.lastSlot(graph, open, n, previous))) {
+          corridorCount += 1;
+          longest = Math.max(longest, length);
+          lengths[31 - Integer.numberOfLeadingZeros(length)] += 1;
+        }
+      }
+    }
+    this.corridors = corridorCount;
+    this.longestCorridor = longest;
+    this.corridorLengths = Arrays.copyOf(lengths, 32 - Integer.numberOfLeadingZeros(longest));
+
+    // the farthest cell from anywhere is one end of the diameter, and the farthest from that is
+    // the other
+    int[] distances = new int[graph.nodes];
+    int[] parents = new int[graph.nodes];
+    int[] queue = new int[graph.nodes];
+    int fromStart = MazeAnalytics.bfs(graph, open, start, distances, parents, queue);
+    int toEnd = distances[end];
+    int choices = MazeAnalytics.choicesOn(openDegrees, parents, end, toEnd);
+    this.hardestStart = fromStart;
+    this.hardestEnd = MazeAnalytics.bfs(graph, open, fromStart, distances, parents, queue);
+    this.diameter = distances[this.hardestEnd];
+    if (reanchor) {
+      this.start = this.hardestStart;
+      this.end = this.hardestEnd;
+      this.solutionLength = this.diameter;
+      this.choicesOnSolution = MazeAnalytics.choicesOn(openDegrees, parents, this.end,
+              this.diameter);
+    } else {
+      this.start = start;
+      this.end = end;
+      this.solutionLength = toEnd;
+      this.choicesOnSolution = choices;
+    }
+
+    // the distance with every wall down, which is what tortuosity compares the solution to
+    MazeAnalytics.bfs(graph, null, this.start, distances, parents, queue);
+    this.openDistance = distances[this.end];
+    phase.end(MazeMetrics.SHARED, graph.nodes, graph.edges, 3L * graph.nodes, 0);
+  }
+
+  // the analytics of the given grid's maze, between its top left and bottom right cells
+  static MazeAnalytics of(ArrayList<ArrayList<Cell>> grid, boolean reanchor) {
+    int height = grid.size();
+    int width = grid.get(0).size();
+    MazeGraph graph = MazeGraph.rectangle(height, width);
+    BitSet open = new BitSet(graph.edges);
+    for (int e = 0; e < graph.edges; e += 1) {
+      Cell from = grid.get(graph.from(e) / width).get(graph.from(e) % width);
+      Cell to = grid.get(graph.to(e) / width).get(graph.to(e) % width);
+      if (from.canMove(to)) {
+        open.set(e);
+      }
+    }
+    return new MazeAnalytics(graph, open, 0, graph.nodes - 1, reanchor);
+  }
+
+  // how many times longer the solution is than the way there with no walls, 1 for a straight
+  // line, or 0 if there's no solution or the start is the end
+  double tortuosity() {
+    if (this.solutionLength <= 0 || this.openDistance <= 0) {
+      return 0;
+    }
+    return (double) this.solutionLength / this.openDistance;
+  }
+
+  // these analytics as a json object, with a '.' in the tortuosity whatever the locale
+  String toJson() {
+    return String.format(Locale.ROOT,
+            "{\"nodes\": %d, \"start\": %d, \"end\": %d, \"degrees\": %s, "
+                    + "\"deadEnds\": %d, \"corridors\": %d, \"longestCorridor\": %d, "
+                    + "\"corridorLengths\": %s, \"diameter\": %d, \"hardestStart\": %d, "
+                    + "\"hardestEnd\": %d, \"solutionLength\": %d, \"choicesOnSolution\": %d, "
+                    + "\"openDistance\": %d, \"tortuosity\": %.3f}",
+            this.nodes, this.start, this.end, Arrays.toString(this.degrees), this.deadEnds,
+            this.corridors, this.longestCorridor, Arrays.toString(this.corridorLengths),
+            this.diameter, this.hardestStart, this.hardestEnd, this.solutionLength,
+            this.choicesOnSolution, this.openDistance, this.tortuosity());
+  }
+
+  // how many open ways out of the given node there are
+  private static int openDegree(MazeGraph graph, BitSet open, int node) {
+    int degree = 0;
+    for (int slot = graph.first(node); slot < graph.last(node); slot += 1) {
+      if (open.get(graph.targetEdge(slot))) {
+        degree += 1;
+      }
+    }
+    return degree;
+  }
+
+  // the open way out of a node with two that doesn't go back to the given one
+  private static int otherWay(MazeGraph graph, BitSet open, int node, int previous) {
+    for (int slot = graph.first(node); slot < graph.last(node); slot += 1) {
+      if (open.get(graph.targetEdge(slot)) && graph.target(slot) != previous) {
+        return graph.target(slot);
+      }
+    }
+    return previous;
+  }
+
+  // the place among the given node's neighbors of the given one, along an open edge
+  private static int lastSlot(MazeGraph graph, BitSet open, int node, int neighbor) {
+    for (int slot = graph.first(node); slot < graph.last(node); slot += 1) {
+      if (open.get(graph.targetEdge(slot)) && graph.target(slot) == neighbor) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  // how many cells with three or more ways out are on the way back from the given cell,
+  // which is the given number of moves from where the parents lead back to, not counting it
+  private static int choicesOn(byte[] openDegrees, int[] parents, int end, int length) {
+    if (length < 0) {
+      return -1;
+    }
+    int choices = 0;
+    for (int cur = parents[end]; cur != -1; cur = parents[cur]) {
+      if (openDegrees[cur] >= 3) {
+        choices += 1;
+      }
+    }
+    return choices;
+  }
+
+  // returns the cell farthest from the source (the last one seen)
+  // EFFECT: fills distances with how many moves each cell is from the source (or -1), and
+  // parents with the cell before each on the way there, going through every edge if open is
+  // null and only the open ones if it isn't
+  private static int bfs(MazeGraph graph, BitSet open, int source, int[] distances,
+                         int[] parents, int[] queue) {
+    Arrays.fill(distances, -1);
+    distances[source] = 0;
+    parents[source] = -1;
+    queue[0] = source;
+    int head = 0;
+    int tail = 1;
+    while (head < tail) {
+      int cur = queue[head];
+      head += 1;
+      for (int slot = graph.first(cur); slot < graph.last(cur); slot += 1) {
+        int to = graph.target(slot);
+        if (distances[to] < 0 && (open == null || open.get(graph.targetEdge(slot)))) {
+          distances[to] = distances[cur] + 1;
+          parents[to] = cur;
+          queue[tail] = to;
+          tail += 1;
+        }
+      }
+    }
+    return queue[tail - 1];
+  }
+
+  public static void main(String[] args) {
+    String shape = "rectangle";
+    String size = "1000x1000";
+    long seed = 2510;
+    boolean reanchor = false;
+    for (int i = 0; i < args.length; i += 1) {
+      if (args[i].equals("-reanchor")) {
+        reanchor = true;
+      } else if (args[i].equals("-shape") && i + 1 < args.length) {
+        shape = args[i + 1];
+        i += 1;
+      } else if (args[i].equals("-size") && i + 1 < args.length) {
+        size = args[i + 1];
+        i += 1;
+      } else if (args[i].equals("-seed") && i + 1 < args.length) {
+        seed = Long.parseLong(args[i + 1]);
+        i += 1;
+      } else {
+        throw new IllegalArgumentException("Illegal option for analytics: " + args[i]);
+      }
+    }
+    String[] dims = size.split("x");
+    MazeGraph graph;
+    if (shape.equals("rectangle")) {
+      graph = MazeGraph.rectangle(Integer.parseInt(dims[0]), Integer.parseInt(dims[1]));
+    } else if (shape.equals("torus")) {
+      graph = MazeGraph.torus(Integer.parseInt(dims[0]), Integer.parseInt(dims[1]));
+    } else if (shape.equals("hex")) {
+      graph = MazeGraph.hex(Integer.parseInt(dims[0]), Integer.parseInt(dims[1]));
+    } else if (shape.equals("layered")) {
+      graph = MazeGraph.layered(Integer.parseInt(dims[0]), Integer.parseInt(dims[1]),
+              Integer.parseInt(dims[2]));
+    } else {
+      throw new IllegalArgumentException("Illegal shape for analytics: " + shape);
+    }
+    BitSet open = new MazeGenerator(new Random(seed), 1).carve(graph);
+    long began = System.nanoTime();
+    MazeAnalytics analytics = new MazeAnalytics(graph, open, 0, graph.nodes - 1, reanchor);
+    System.out.println(analytics.toJson());
+    System.err.printf("analyzed %d cells in %.1f ms%n", graph.nodes,
+            (System.nanoTime() - began) / 1e6);
+  }
+}
@@ -0,0 +1,191 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// what happened when one maze of a batch was made and solved
+class BatchResult {
+  final int index;
+  final long seed;
+  final long generateNanos;
+  final long solveNanos;
+  final int explored;
+  final int solutionLength;
+  final int wrongMoves;
+
+  BatchResult(int index, long seed, long generateNanos, long solveNanos, int explored,
+              int solutionLength, int wrongMoves) {
+    this.index = index;
+    this.seed = seed;
+    this.generateNanos = generateNanos;
+    this.solveNanos = solveNanos;
+    this.explored = explored;
+    this.solutionLength = solutionLength;
+    this.wrongMoves = wrongMoves;
+  }
+
+  // this result as a line of tab separated values, in the order of MazeBatch.HEADER
+  String toLine() {
+    return String.format("%d\t%d\t%.3f\t%.3f\t%d\t%d\t%d", this.index, this.seed,
+            this.generateNanos / 1e6, this.solveNanos / 1e6, this.explored, this.solutionLength,
+            this.wrongMoves);
+  }
+}
+
+// makes and solves one maze of a batch, so the batch can run many of them at once
+class BatchJob implements Callable<BatchResult> {
+  private final int index;
+  private final long seed;
+  private final int height;
+  private final int width;
+  private final MazeType type;
+  private final String strategy;
+
+  BatchJob(int index, long seed, int height, int width, MazeType type, String strategy) {
+    if (!strategy.equals("bfs") && !strategy.equals("dfs")) {
+      throw new IllegalArgumentException("Illegal strategy for search");
+    }
+    this.index = index;
+    this.seed = seed;
+    this.height = height;
+    this.width = width;
+    this.type = type;
+    this.strategy = strategy;
+  }
+
+  // makes the maze from this job's seed and solves it, timing both
+  public BatchResult call() {
+    long began = System.nanoTime();
+    // the cells are never drawn, so their size doesn't matter
+    ArrayList<ArrayList<Cell>> grid = new MazeGenerator(new Random(this.seed), 1)
+            .generate(this.height, this.width, this.type);
+    long generated = System.nanoTime();
+    IIntCollection worklist;
+    if (this.strategy.equals("bfs")) {
+      worklist = new IntQueue();
+    } else {
+      worklist = new IntStack();
+    }
+    Search search = new Search(worklist, grid, grid.get(0).get(0),
+            grid.get(this.height - 1).get(this.width - 1));
+    long solved = System.nanoTime();
+    return new BatchResult(this.index, this.seed, generated - began, solved - generated,
+            search.seen.size(), search.solution.size(), search.numWrongMoves());
+  }
+}
+
+// makes and solves many mazes without a window, printing how long each took and how
+// well the search did, for capacity runs on machines with no display
+// usage: MazeBatch [-count 10] [-size 100x100] [-seed 2510] [-type NORMAL] [-strategy bfs]
+//                  [-threads <cores>] [-out results.tsv] [-metrics phases.json]
+// maze i is made from seed + i, so a batch gives the same mazes however many threads it uses
+class MazeBatch {
+
+  static final String HEADER = "maze\tseed\tgenerate ms\tsolve ms\texplored\tsolution\twrong moves";
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int count = 10;
+    int height = 100;
+    int width = 100;
+    long seed = 2510;
+    MazeType type = MazeType.NORMAL;
+    String strategy = "bfs";
+    int threads = Runtime.getRuntime().availableProcessors();
+    PrintStream out = System.out;
+    String metrics = null;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (args[i].equals("-count")) {
+        count = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("-size")) {
+        String[] dims = args[i + 1].split("x");
+        height = Integer.parseInt(dims[0]);
+        width = Integer.parseInt(dims[1]);
+      } else if (args[i].equals("-seed")) {
+        seed = Long.parseLong(args[i + 1]);
+      } else if (args[i].equals("-type")) {
+        type = MazeType.valueOf(args[i + 1]);
+      } else if (args[i].equals("-strategy")) {
+        strategy = args[i + 1];
+      } else if (args[i].equals("-threads")) {
+        threads = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("-metrics")) {
+        metrics = args[i + 1];
+      } else if (args[i].equals("-out")) {
+        out = new PrintStream(args[i + 1], "UTF-8");
+      } else {
+        throw new IllegalArgumentException("Illegal option for batch: " + args[i]);
+      }
+    }
+
+    long began = System.nanoTime();
+    List<BatchResult> results = MazeBatch.run(count, height, width, seed, type, strategy,
+            threads);
+    long took = System.nanoTime() - began;
+    out.println(HEADER);
+    for (BatchResult r : results) {
+      out.println(r.toLine());
+    }
+    out.flush();
+    System.err.println(MazeBatch.summarize(results, took));
+    if (out != System.out) {
+      out.close();
+    }
+    if (metrics != null) {
+      Files.write(Paths.get(metrics),
+              MazeMetrics.SHARED.toJson().getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  // makes and solves count mazes on the given number of threads, returning their results
+  // in order
+  static List<BatchResult> run(int count, int height, int width, long seed, MazeType type,
+                               String strategy, int threads) throws InterruptedException {
+    if (count < 0 || threads <= 0) {
+      throw new IllegalArgumentException("Illegal count/threads for batch");
+    }
+    ArrayList<BatchJob> jobs = new ArrayList<BatchJob>();
+    for (int i = 0; i < count; i += 1) {
+      jobs.add(new BatchJob(i, seed + i, height, width, type, strategy));
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      ArrayList<BatchResult> results = new ArrayList<BatchResult>();
+      for (Future<BatchResult> f : pool.invokeAll(jobs)) {
+        results.add(f.get());
+      }
+      return results;
+    } catch (ExecutionException e) {
+      throw new RuntimeException("a maze in the batch failed", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  // one line totalling up a batch that took the given time
+  static String summarize(List<BatchResult> results, long nanos) {
+    long generate = 0;
+    long solve = 0;
+    long worstSolve = 0;
+    long explored = 0;
+    for (BatchResult r : results) {
+      generate += r.generateNanos;
+      solve += r.solveNanos;
+      worstSolve = Math.max(worstSolve, r.solveNanos);
+      explored += r.explored;
+    }
+    int n = Math.max(1, results.size());
+    return String.format("%d mazes in %.1f ms (%.1f mazes/s), generate avg %.3f ms, "
+                    + "solve avg %.3f ms max %.3f ms, explored avg %d cells",
+            results.size(), nanos / 1e6, results.size() * 1e9 / Math.max(1, nanos),
+            generate / 1e6 / n, solve / 1e6 / n, worstSolve / 1e6, explored / n);
+  }
+}
@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+// one operation to time, with the work it needs done beforehand kept out of the timing
+interface IBenchmark {
+
+  // EFFECT: prepares a fresh input for the next run
+  void setUp();
+
+  // runs the operation once, returning a number from its result so it can't be skipped
+  int run();
+}
+
+// times one part of making, solving or drawing a maze of a given size and type
+// the part is picked by name, like the maze's keys pick what they do
+class MazeBenchmark implements IBenchmark {
+
+  // every part we know how to time
+  static final String[] NAMES = {"constructGrid", "connectGrid", "quicksort", "kruskal",
+    "removeWall", "bfs", "dfs", "howFarFromCell", "renderCell", "makeScene"};
+
+  final String name;
+  final int height;
+  final int width;
+  final MazeType type;
+
+  // a maze of the size we're timing, used for its grid making methods and its scenes
+  private final Maze maze;
+
+  // a finished maze the searches and drawing are timed on, made once since they don't change it
+  private final ArrayList<ArrayList<Cell>> built;
+
+  // the input for the next run, made fresh by setUp when the run changes it
+  // not final because setUp replaces them
+  private ArrayList<ArrayList<Cell>> grid;
+  private ArrayList<Path> paths;
+  private Kruskal kruskal;
+  private Search search;
+
+  MazeBenchmark(String name, int height, int width, MazeType type) {
+    if (!this.isKnown(name)) {
+      throw new IllegalArgumentException("Illegal name for benchmark");
+    }
+    if (height <= 0 || width <= 0) {
+      throw new IllegalArgumentException("Illegal width/height for benchmark");
+    }
+    this.name = name;
+    this.height = height;
+    this.width = width;
+    this.type = type;
+    // the same seed every time, so runs of the benchmark can be compared
+    this.maze = new Maze(height, width, new Random(2510));
+    this.built = this.maze.constructGrid(height, width);
+    for (Path p : new Kruskal(this.maze.connectGrid(this.built, type), this.built).createMST()) {
+      p.removeWall();
+    }
+  }
+
+  // is the given name one of the parts we know how to time
+  private boolean isKnown(String name) {
+    for (String known : NAMES) {
+      if (known.equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // EFFECT: prepares a fresh input for the next run
+  public void setUp() {
+    if (this.name.equals("connectGrid")) {
+      this.grid = this.maze.constructGrid(this.height, this.width);
+    } else if (this.name.equals("quicksort")) {
+      this.grid = this.maze.constructGrid(this.height, this.width);
+      this.paths = this.maze.connectGrid(this.grid, this.type);
+    } else if (this.name.equals("kruskal")) {
+      this.grid = this.maze.constructGrid(this.height, this.width);
+      // making the kruskal sorts the paths, which is timed on its own as quicksort
+      this.kruskal = new Kruskal(this.maze.connectGrid(this.grid, this.type), this.grid);
+    } else if (this.name.equals("removeWall")) {
+      this.grid = this.maze.constructGrid(this.height, this.width);
+      this.paths = new Kruskal(this.maze.connectGrid(this.grid, this.type), this.grid)
+              .createMST();
+    } else if (this.name.equals("howFarFromCell")) {
+      this.search = new Search(new IntQueue(), this.built, this.built.get(0).get(0),
+              this.built.get(this.height - 1).get(this.width - 1));
+    } else if (this.name.equals("makeScene")) {
+      // toggling the painting mode twice leaves it as it was but makes every cell dirty,
+      // so each run draws a whole frame
+      this.maze.onKeyEvent("g");
+      this.maze.onKeyEvent("g");
+    }
+  }
+
+  // runs the operation once, returning a number from its result so it can't be skipped
+  public int run() {
+    Cell start = this.built.get(0).get(0);
+    Cell end = this.built.get(this.height - 1).get(this.width - 1);
+    if (this.name.equals("constructGrid")) {
+      return this.maze.constructGrid(this.height, this.width).size();
+    } else if (this.name.equals("connectGrid")) {
+      return this.maze.connectGrid(this.grid, this.type).size();
+    } else if (this.name.equals("quicksort")) {
+      return new Quicksort<Path>(this.paths).arr.size();
+    } else if (this.name.equals("kruskal")) {
+      return this.kruskal.createMST().size();
+    } else if (this.name.equals("removeWall")) {
+      for (Path p : this.paths) {
+        p.removeWall();
+      }
+      return this.paths.size();
+    } else if (this.name.equals("bfs")) {
+      return new Search(new IntQueue(), this.built, start, end).seen.size();
+    } else if (this.name.equals("dfs")) {
+      return new Search(new IntStack(), this.built, start, end).seen.size();
+    } else if (this.name.equals("howFarFromCell")) {
+      this.search.howFarFromCell(this.height * this.width, start);
+      return end.clr;
+    } else if (this.name.equals("renderCell")) {
+      int hash = 0;
+      for (ArrayList<Cell> row : this.built) {
+        for (Cell c : row) {
+          hash += System.identityHashCode(c.renderCell());
+        }
+      }
+      return hash;
+    } else {
+      return System.identityHashCode(this.maze.makeScene());
+    }
+  }
+}
@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+// how fast one benchmark ran: its throughput and how much it allocated per run
+class BenchmarkResult {
+  final String key;
+  final double opsPerSecond;
+  final double bytesPerOp;
+
+  BenchmarkResult(String key, double opsPerSecond, double bytesPerOp) {
+    this.key = key;
+    this.opsPerSecond = opsPerSecond;
+    this.bytesPerOp = bytesPerOp;
+  }
+
+  // this result as a line of tab separated values, which can be read back as a baseline
+  // numbers are written with a '.' whatever the locale, so a baseline from another machine
+  // reads back
+  String toLine() {
+    return String.format(Locale.ROOT, "%s\t%.3f\t%.4f\t%.0f", this.key, this.opsPerSecond,
+            1000 / this.opsPerSecond, this.bytesPerOp);
+  }
+}
+
+// runs every MazeBenchmark at a set of maze sizes and types, printing how fast each was
+// usage: MazeBenchmarks [-sizes 20x20,100x100] [-types NORMAL,VERTICAL] [-only bfs,dfs]
+//                       [-iterations 5] [-baseline results.tsv]
+// the output can be saved and given back as the baseline to see how much a change helped
+class MazeBenchmarks {
+
+  // warm up runs are thrown away so the jit has compiled the code before we time it
+  private static final int WARMUP = 3;
+
+  // each iteration keeps running the benchmark until it's taken at least this long
+  private static final long ITERATION_NANOS = 200000000L;
+
+  public static void main(String[] args) throws IOException {
+    String sizes = "20x20,100x100";
+    String types = "NORMAL";
+    String only = String.join(",", MazeBenchmark.NAMES);
+    int iterations = 5;
+    HashMap<String, BenchmarkResult> baseline = new HashMap<String, BenchmarkResult>();
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (args[i].equals("-sizes")) {
+        sizes = args[i + 1];
+      } else if (args[i].equals("-types")) {
+        types = args[i + 1];
+      } else if (args[i].equals("-only")) {
+        only = args[i + 1];
+      } else if (args[i].equals("-iterations")) {
+        iterations = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("-baseline")) {
+        baseline = MazeBenchmarks.readBaseline(Files.readAllLines(Paths.get(args[i + 1])));
+      } else {
+        throw new IllegalArgumentException("Illegal option for benchmarks: " + args[i]);
+      }
+    }
+
+    System.out.println("benchmark\tsize\ttype\tops/s\tms/op\tbytes/op"
+            + (baseline.isEmpty() ? "" : "\tvs baseline"));
+    for (String size : sizes.split(",")) {
+      String[] dims = size.split("x");
+      for (String type : types.split(",")) {
+        for (String name : only.split(",")) {
+          MazeBenchmark bench = new MazeBenchmark(name, Integer.parseInt(dims[0]),
+                  Integer.parseInt(dims[1]), MazeType.valueOf(type));
+          BenchmarkResult result = MazeBenchmarks.measure(bench, iterations,
+                  name + "\t" + size + "\t" + type);
+          String line = result.toLine();
+          BenchmarkResult before = baseline.get(result.key);
+          if (before != null) {
+            line += String.format(Locale.ROOT, "\t%.2fx",
+                    result.opsPerSecond / before.opsPerSecond);
+          }
+          System.out.println(line);
+        }
+      }
+    }
+  }
+
+  // times the given benchmark over the given number of iterations (after warming it up),
+  // counting only the time and memory its runs take, not its set up
+  static BenchmarkResult measure(IBenchmark bench, int iterations, String key) {
+    if (iterations <= 0) {
+      throw new IllegalArgumentException("Illegal iterations for benchmark");
+    }
+    long nanos = 0;
+    long bytes = 0;
+    long ops = 0;
+    for (int i = 0; i < WARMUP + iterations; i += 1) {
+      long iterationNanos = 0;
+      while (iterationNanos < ITERATION_NANOS) {
+        bench.setUp();
+        long allocatedBefore = FrameStats.allocatedBytes();
+        long before = System.nanoTime();
+        MazeBenchmarks.consume(bench.run());
+        long took = System.nanoTime() - before;
+        long allocated = FrameStats.allocatedBytes() - allocatedBefore;
+        iterationNanos += took;
+        if (i >= WARMUP) {
+          nanos += took;
+          bytes += allocated;
+          ops += 1;
+        }
+      }
+    }
+    return new BenchmarkResult(key, ops * 1e9 / Math.max(1, nanos), (double) bytes / ops);
+  }
+
+  // the results of an earlier run, printed by main, by their benchmark, size and type
+  static HashMap<String, BenchmarkResult> readBaseline(List<String> lines) {
+    HashMap<String, BenchmarkResult> results = new HashMap<String, BenchmarkResult>();
+    for (String line : lines) {
+      String[] fields = line.split("\t");
+      if (fields.length < 6 || fields[0].equals("benchmark")) {
+        continue;
+      }
+      String key = fields[0] + "\t" + fields[1] + "\t" + fields[2];
+      results.put(key, new BenchmarkResult(key, Double.parseDouble(fields[3]),
+              Double.parseDouble(fields[5])));
+    }
+    return results;
+  }
+
+  // the results of benchmarks, kept so the jit can't tell they're unused and skip the work
+  private static final ArrayList<Integer> SINK = new ArrayList<Integer>();
+
+  // EFFECT: keeps hold of a result, a few at a time
+  private static void consume(int result) {
+    if (SINK.size() > 16) {
+      SINK.clear();
+    }
+    SINK.add(result);
+  }
+}
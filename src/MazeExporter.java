@@ -0,0 +1,313 @@
+import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+// the cells of a maze to save, read one row at a time, so the exporter never needs the whole
+// maze drawn at once, or even made of Cells
+interface IMazeRows {
+  // how many rows of cells there are
+  int height();
+
+  // how many cells are in each row
+  int width();
+
+  // EFFECT: fills open with the ways out of each cell of row y that are open, as MazeTopology
+  // bits (e.g. 1 << MazeTopology.LEFT), and colors with the packed rgb color of each cell
+  // only the ways up and left are drawn, since those are the walls each cell's square has
+  void readRow(int y, byte[] open, int[] colors);
+}
+
+// the rows of a maze made of Cells, each cell in its own color
+class GridRows implements IMazeRows {
+  private final ArrayList<ArrayList<Cell>> grid;
+
+  GridRows(ArrayList<ArrayList<Cell>> grid) {
+    if (grid.isEmpty() || grid.get(0).isEmpty()) {
+      throw new IllegalArgumentException("Illegal grid for image");
+    }
+    this.grid = grid;
+  }
+
+  public int height() {
+    return this.grid.size();
+  }
+
+  public int width() {
+    return this.grid.get(0).size();
+  }
+
+  // EFFECT: fills open and colors from the walls and colors of the cells of row y
+  public void readRow(int y, byte[] open, int[] colors) {
+    ArrayList<Cell> row = this.grid.get(y);
+    for (int x = 0; x < row.size(); x += 1) {
+      Cell c = row.get(x);
+      open[x] = (byte) ((c.showTop ? 0 : 1 << MazeTopology.UP)
+              | (c.showLeft ? 0 : 1 << MazeTopology.LEFT));
+      colors[x] = Palette.rgb(c.clr);
+    }
+  }
+}
+
+// the rows of a maze carved out of a MazeGraph.rectangle, like MazeGenerator.carve makes, with
+// every cell unvisited
+// only the graph and which of its edges are open are kept, so a maze far too big to make out
+// of Cells can still be saved
+class GraphRows implements IMazeRows {
+  private final MazeGraph graph;
+  private final BitSet open;
+  private final int height;
+  private final int width;
+
+  GraphRows(MazeGraph graph, BitSet open, int height, int width) {
+    if (height <= 0 || width <= 0 || (long) height * width != graph.nodes) {
+      throw new IllegalArgumentException("Illegal width/height for graph");
+    }
+    this.graph = graph;
+    this.open = open;
+    this.height = height;
+    this.width = width;
+  }
+
+  public int height() {
+    return this.height;
+  }
+
+  public int width() {
+    return this.width;
+  }
+
+  // EFFECT: fills open from the open edges out of each node of row y, and colors with the
+  // unvisited color
+  public void readRow(int y, byte[] open, int[] colors) {
+    int unvisited = Palette.rgb(Palette.UNVISITED);
+    for (int x = 0; x < this.width; x += 1) {
+      int node = y * this.width + x;
+      int ways = 0;
+      for (int slot = this.graph.first(node); slot < this.graph.last(node); slot += 1) {
+        if (!this.open.get(this.graph.targetEdge(slot))) {
+          continue;
+        }
+        // up and down are checked first, since with one column they're also a step of one
+        int to = this.graph.target(slot);
+        if (to == node - this.width) {
+          ways |= 1 << MazeTopology.UP;
+        } else if (to == node + this.width) {
+          ways |= 1 << MazeTopology.DOWN;
+        } else if (to == node + 1 && x + 1 < this.width) {
+          ways |= 1 << MazeTopology.RIGHT;
+        } else if (to == node - 1 && x > 0) {
+          ways |= 1 << MazeTopology.LEFT;
+        }
+      }
+      open[x] = (byte) ways;
+      colors[x] = unvisited;
+    }
+  }
+}
+
+// saves a maze, and optionally the paths a search took through it, as a png
+// the image is drawn one row of cells at a time and streamed out, so only one strip of
+// pixels is ever in memory no matter how big the maze is
+// usage: MazeExporter [-size 1000x1000] [-seed 2510] [-cell 4] [-overlay none] [-out maze.png]
+// the maze is carved out of a MazeGraph rather than made of Cells, so big ones fit in memory
+// overlay is none, bfs or dfs: the cells the search explored from the top left corner to the
+// bottom right one, and its solution
+class MazeExporter {
+
+  private static final int WALL = 0x000000;
+  private static final int BORDER = Color.GRAY.getRGB() & 0xFFFFFF;
+
+  // the maze to save
+  private final IMazeRows rows;
+
+  // side length of a cell in pixels
+  private final int cellSize;
+
+  // not final because they are set when a search is overlaid
+  // the indices (y * width + x) of the cells a search explored and of its solution, drawn
+  // in the explored and solution colors, or null if they aren't being shown
+  private BitSet explored;
+  private BitSet solution;
+
+  // not final because it is a toggle
+  // if cells are drawn in their own colors (e.g. a gradient) or all left unvisited
+  private boolean useCellColors;
+
+  MazeExporter(ArrayList<ArrayList<Cell>> grid, int cellSize) {
+    this(new GridRows(grid), cellSize);
+  }
+
+  MazeExporter(IMazeRows rows, int cellSize) {
+    if (cellSize <= 0) {
+      throw new IllegalArgumentException("Illegal cell size for image");
+    }
+    this.rows = rows;
+    this.cellSize = cellSize;
+    this.useCellColors = true;
+  }
+
+  public static void main(String[] args) throws IOException {
+    int height = 1000;
+    int width = 1000;
+    long seed = 2510;
+    int cellSize = 4;
+    String overlay = "none";
+    String fileName = "maze.png";
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (args[i].equals("-size")) {
+        String[] dims = args[i + 1].split("x");
+        height = Integer.parseInt(dims[0]);
+        width = Integer.parseInt(dims[1]);
+      } else if (args[i].equals("-seed")) {
+        seed = Long.parseLong(args[i + 1]);
+      } else if (args[i].equals("-cell")) {
+        cellSize = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("-overlay")) {
+        overlay = args[i + 1];
+      } else if (args[i].equals("-out")) {
+        fileName = args[i + 1];
+      } else {
+        throw new IllegalArgumentException("Illegal option for image: " + args[i]);
+      }
+    }
+    if (!overlay.equals("none") && !overlay.equals("bfs") && !overlay.equals("dfs")) {
+      throw new IllegalArgumentException("Illegal overlay for image: " + overlay);
+    }
+    // checked before the maze is made, which can take a while
+    if (cellSize <= 0) {
+      throw new IllegalArgumentException("Illegal cell size for image");
+    }
+    // nodes, pixels and strips are numbered with ints
+    if ((long) height * width > Integer.MAX_VALUE || (long) height * cellSize > Integer.MAX_VALUE
+            || (long) width * cellSize * cellSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Illegal size for image");
+    }
+
+    MazeGraph graph = MazeGraph.rectangle(height, width);
+    // the cells are never made, so their size doesn't matter
+    BitSet open = new MazeGenerator(new Random(seed), 1).carve(graph);
+    MazeExporter exporter = new MazeExporter(new GraphRows(graph, open, height, width),
+            cellSize);
+    if (!overlay.equals("none")) {
+      IIntCollection worklist = new IntQueue();
+      if (overlay.equals("dfs")) {
+        worklist = new IntStack();
+      }
+      GraphSearch search = new GraphSearch(worklist, graph, open, 0, graph.nodes - 1);
+      exporter.showCells(MazeExporter.indicesOf(search.seen, search.seenCount),
+              MazeExporter.indicesOf(search.solution, search.solution.length));
+    }
+    exporter.write(fileName);
+    System.err.println("saved a " + height + "x" + width + " maze to " + fileName);
+  }
+
+  // the first count of the given cell indices, as a set
+  static BitSet indicesOf(int[] cells, int count) {
+    BitSet set = new BitSet();
+    for (int i = 0; i < count; i += 1) {
+      set.set(cells[i]);
+    }
+    return set;
+  }
+
+  // EFFECT: draws the cells the search explored and/or its solution over the cells' colors
+  void showSearch(Search search, boolean exploration, boolean solutionPath) {
+    int width = this.rows.width();
+    if (exploration) {
+      this.explored = new BitSet();
+      for (Cell c : search.seen) {
+        this.explored.set(c.pos.y * width + c.pos.x);
+      }
+    }
+    if (solutionPath) {
+      this.solution = new BitSet();
+      for (Cell c : search.solution) {
+        this.solution.set(c.pos.y * width + c.pos.x);
+      }
+    }
+  }
+
+  // EFFECT: draws the cells with the given indices (y * width + x) in the explored and the
+  // solution colors over the cells' colors, leaving either off if it's null
+  void showCells(BitSet explored, BitSet solution) {
+    this.explored = explored;
+    this.solution = solution;
+  }
+
+  // EFFECT: sets whether cells are drawn in their own colors or all left unvisited
+  void useCellColors(boolean use) {
+    this.useCellColors = use;
+  }
+
+  // EFFECT: saves the maze as a png in the given file
+  void write(String fileName) throws IOException {
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(fileName))) {
+      this.write(out);
+    }
+  }
+
+  // EFFECT: writes the maze as a png to out
+  void write(OutputStream out) throws IOException {
+    int width = this.rows.width();
+    int height = this.rows.height();
+    int rowLength = width * this.cellSize;
+    PngStripWriter png = new PngStripWriter(out, rowLength, height * this.cellSize);
+    int[] strip = new int[rowLength * this.cellSize];
+    byte[] open = new byte[width];
+    int[] colors = new int[width];
+    for (int y = 0; y < height; y += 1) {
+      this.rows.readRow(y, open, colors);
+      for (int x = 0; x < width; x += 1) {
+        this.paintCell(x, y, open[x], colors[x], strip, rowLength);
+      }
+      for (int row = 0; row < this.cellSize; row += 1) {
+        png.writeRow(strip, row * rowLength);
+      }
+    }
+    png.finish();
+  }
+
+  // EFFECT: paints the cell at x, y with the given open ways and color into its square of the
+  // strip of its row
+  private void paintCell(int x, int y, byte open, int color, int[] strip, int rowLength) {
+    int x0 = x * this.cellSize;
+    int fill = this.colorOf(y * this.rows.width() + x, color) & 0xFFFFFF;
+    boolean leftWall = (open & (1 << MazeTopology.LEFT)) == 0;
+    boolean rightBorder = x == this.rows.width() - 1;
+    for (int row = 0; row < this.cellSize; row += 1) {
+      int start = row * rowLength + x0;
+      Arrays.fill(strip, start, start + this.cellSize, fill);
+      if (leftWall) {
+        strip[start] = WALL;
+      }
+      if (rightBorder) {
+        strip[start + this.cellSize - 1] = BORDER;
+      }
+    }
+    if ((open & (1 << MazeTopology.UP)) == 0) {
+      Arrays.fill(strip, x0, x0 + this.cellSize, WALL);
+    }
+    if (y == this.rows.height() - 1) {
+      int last = (this.cellSize - 1) * rowLength + x0;
+      Arrays.fill(strip, last, last + this.cellSize, BORDER);
+    }
+  }
+
+  // the packed rgb color to draw the cell with the given index and color in
+  private int colorOf(int index, int color) {
+    if (this.solution != null && this.solution.get(index)) {
+      return Palette.rgb(Palette.SOLUTION);
+    } else if (this.explored != null && this.explored.get(index)) {
+      return Palette.rgb(Palette.EXPLORED);
+    } else if (this.useCellColors) {
+      return color;
+    }
+    return Palette.rgb(Palette.UNVISITED);
+  }
+}
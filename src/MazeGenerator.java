@@ -0,0 +1,207 @@
+import javalib.worldimages.Posn;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Random;
+
+// a grid made into a maze, with what it was made from: the paths between its cells in the
+// order connectGrid made them, a copy of them to be sorted, the representatives kruskal's used
+// and the paths of the maze
+// kept with the grid, wherever it goes, so it can be made into new mazes without making any
+// of them again
+class RebuiltGrid {
+  final ArrayList<ArrayList<Cell>> grid;
+  final ArrayList<Path> paths;
+  final ArrayList<Path> sorted;
+  final int[] representatives;
+  final ArrayList<Path> tree;
+
+  RebuiltGrid(ArrayList<ArrayList<Cell>> grid, ArrayList<Path> paths) {
+    this.grid = grid;
+    this.paths = paths;
+    this.sorted = new ArrayList<Path>(paths);
+    this.representatives = new int[grid.size() * grid.get(0).size()];
+    this.tree = new ArrayList<Path>();
+  }
+}
+
+// makes the grids of cells and the random paths between them that mazes are built from
+// kept apart from Maze so mazes can be made without opening a window
+class MazeGenerator {
+
+  // random for generating path weights
+  private final Random rand;
+
+  // side length of the cells it makes
+  private final int cellSize;
+
+  MazeGenerator(Random rand, int cellSize) {
+    if (cellSize <= 0) {
+      throw new IllegalArgumentException("Illegal cell size for generator");
+    }
+    this.rand = rand;
+    this.cellSize = cellSize;
+  }
+
+  // creates a grid with each cell having a posn of its location
+  ArrayList<ArrayList<Cell>> constructGrid(int height, int width) {
+    MazePhase phase = new MazePhase("constructGrid");
+    ArrayList<ArrayList<Cell>> temp = new ArrayList<ArrayList<Cell>>();
+
+    // adds each row to the grid
+    for (int i = 0; i < height; i += 1) {
+      ArrayList<Cell> row = new ArrayList<Cell>();
+
+      // adds a cell with a position to a row
+      for (int j = 0; j < width; j += 1) {
+        row.add(new Cell(new Posn(j, i), this.cellSize));
+      }
+      temp.add(row);
+    }
+    phase.end(MazeMetrics.SHARED, (long) height * width, 0, 0, 0);
+    return temp;
+  }
+
+  // EFFECT: updates the grid's cells to have the correct paths with random weights
+  // and returns all paths created
+  ArrayList<Path> connectGrid(ArrayList<ArrayList<Cell>> grid, MazeType type) {
+    MazePhase phase = new MazePhase("connectGrid");
+    ArrayList<Path> paths = new ArrayList<Path>();
+
+    // loops through the rows of a grid
+    for (int i = 0; i < grid.size(); i += 1) {
+      ArrayList<Cell> row = grid.get(i);
+
+      // loops through the cells in a row
+      for (int j = 0; j < row.size(); j += 1) {
+        Cell currCell = row.get(j);
+
+        // extra credit (bell 4)
+        // if we wanted to only have a bias in a certain direction, we would just change the
+        // bound to be something like 200, instead of adding 100 directly after the random
+        // number was generated. Currently, if we chose a vertical maze it would be impossible for
+        // a horizontal edge to remain, but if we make a bound of 200, it would just be weighted
+        // differently, since a random number below 100 could still appear.
+
+        // if there is a cell on the right adds it to the path and updates the cell
+        if (j + 1 < row.size()) {
+          Path newPath = new Path(currCell, row.get(j + 1), this.randomWeight(true, type));
+          paths.add(newPath);
+        }
+
+        // if there is a cell below adds it to the path and updates the cell
+        if (i + 1 < grid.size()) {
+          Path newPath = new Path(currCell, grid.get(i + 1).get(j), this.randomWeight(false, type));
+          paths.add(newPath);
+        }
+      }
+    }
+    phase.end(MazeMetrics.SHARED, (long) grid.size() * grid.get(0).size(), paths.size(), 0, 0);
+    return paths;
+  }
+
+  // a random weight for a path going across (to the right) or down
+  // the bias of the maze type is added to the paths going the other way
+  private int randomWeight(boolean isAcross, MazeType type) {
+    int valToAdd = 0;
+    if ((isAcross && type == MazeType.VERTICAL) || (!isAcross && type == MazeType.HORIZONTAL)) {
+      valToAdd = 101;
+    }
+    return rand.nextInt(100) + valToAdd;
+  }
+
+  // the paths whose walls are knocked down to make a perfect maze out of the grid
+  // EFFECT: connects the grid's cells with random weights, as connectGrid does
+  ArrayList<Path> spanningTree(ArrayList<ArrayList<Cell>> grid, MazeType type) {
+    ArrayList<Path> paths = this.connectGrid(grid, type);
+    return this.treeOf(paths, grid, new int[grid.size() * grid.get(0).size()],
+            new ArrayList<Path>());
+  }
+
+  // a perfect maze made out of the grid, kept with the paths between its cells and the buffers
+  // kruskal's used, so it can be made into new mazes in place with rebuild
+  // EFFECT: connects the grid's cells with random weights, putting them back to how they were
+  // made first if they were connected before
+  RebuiltGrid build(ArrayList<ArrayList<Cell>> grid, MazeType type) {
+    // the grid may have been a maze before
+    for (ArrayList<Cell> row : grid) {
+      for (Cell c : row) {
+        c.reset();
+      }
+    }
+    RebuiltGrid built = new RebuiltGrid(grid, this.connectGrid(grid, type));
+    this.treeOf(built.sorted, grid, built.representatives, built.tree);
+    return built;
+  }
+
+  // the paths whose walls are knocked down to make a new perfect maze out of the built grid
+  // its cells and the paths between them are reused with new weights, as are the buffers
+  // kruskal's uses, so nothing new is made, and any generator can remake any built grid
+  // the weights are drawn in the same order connectGrid draws them, so the maze is the one
+  // connectGrid and spanningTree would make with the same random
+  // EFFECT: puts the grid's cells back to how they were made, gives its paths new weights,
+  // sorts its list of paths to be sorted and fills its tree with the new maze's paths
+  ArrayList<Path> rebuild(RebuiltGrid built, MazeType type) {
+    MazePhase phase = new MazePhase("resetGrid");
+    for (ArrayList<Cell> row : built.grid) {
+      for (Cell c : row) {
+        c.reset();
+      }
+    }
+    for (Path p : built.paths) {
+      p.reweigh(this.randomWeight(p.from.pos.y == p.to.pos.y, type));
+    }
+    // the last sort left them in the last maze's weight order
+    built.sorted.clear();
+    built.sorted.addAll(built.paths);
+    phase.end(MazeMetrics.SHARED, built.representatives.length, built.paths.size(), 0, 0);
+    return this.treeOf(built.sorted, built.grid, built.representatives, built.tree);
+  }
+
+  // the minimum spanning tree of the given paths, using the given buffers
+  // EFFECT: sorts the paths by weight and fills tree with the paths of the tree
+  private ArrayList<Path> treeOf(ArrayList<Path> paths, ArrayList<ArrayList<Cell>> grid,
+                                 int[] representatives, ArrayList<Path> tree) {
+    long cells = (long) grid.size() * grid.get(0).size();
+    // making the kruskal sorts the paths
+    MazePhase sorting = new MazePhase("quicksort");
+    Kruskal kruskal = new Kruskal(paths, grid, representatives);
+    sorting.end(MazeMetrics.SHARED, cells, paths.size(), 0, 0);
+    MazePhase building = new MazePhase("kruskal");
+    kruskal.createMST(tree);
+    building.end(MazeMetrics.SHARED, cells, tree.size(), 0, 0);
+    return tree;
+  }
+
+  // EFFECT: knocks down the walls of the given paths, recording the time it takes
+  static void removeWalls(ArrayList<Path> tree, long cells) {
+    MazePhase phase = new MazePhase("removeWalls");
+    for (Path p : tree) {
+      p.removeWall();
+    }
+    phase.end(MazeMetrics.SHARED, cells, tree.size(), 0, 0);
+  }
+
+  // a finished maze of the given size and type, with the walls of its spanning tree removed
+  ArrayList<ArrayList<Cell>> generate(int height, int width, MazeType type) {
+    if (height <= 0 || width <= 0) {
+      throw new IllegalArgumentException("Illegal width/height for maze");
+    }
+    ArrayList<ArrayList<Cell>> grid = this.constructGrid(height, width);
+    MazeGenerator.removeWalls(this.spanningTree(grid, type), (long) height * width);
+    // only checked when assertions are on (java -ea)
+    assert MazeValidator.check(grid);
+    return grid;
+  }
+
+  // the open edges of a random perfect maze carved out of the given graph, of any shape
+  // the weights are drawn from a wide range rather than 0 to 100 like a grid's paths, since
+  // ties would be broken by edge number and big graphs would have a lot of them
+  BitSet carve(MazeGraph graph) {
+    int[] weights = new int[graph.edges];
+    for (int e = 0; e < weights.length; e += 1) {
+      weights[e] = this.rand.nextInt(1 << 30);
+    }
+    return Kruskal.spanningTree(graph, weights);
+  }
+}
@@ -0,0 +1,323 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+// collects the edges of a graph one at a time, then packs them into a MazeGraph
+class GraphBuilder {
+  private final int nodes;
+
+  // the two ends of each edge added so far
+  // not final because they grow as edges are added
+  private int[] from;
+  private int[] to;
+  private int edges;
+
+  GraphBuilder(int nodes) {
+    if (nodes <= 0) {
+      throw new IllegalArgumentException("Illegal node count for graph");
+    }
+    this.nodes = nodes;
+    this.from = new int[16];
+    this.to = new int[16];
+    this.edges = 0;
+  }
+
+  // EFFECT: adds an edge between two different nodes
+  void addEdge(int a, int b) {
+    if (a < 0 || a >= this.nodes || b < 0 || b >= this.nodes || a == b) {
+      throw new IllegalArgumentException("Illegal nodes for edge");
+    }
+    if (this.edges == this.from.length) {
+      this.from = Arrays.copyOf(this.from, this.edges * 2);
+      this.to = Arrays.copyOf(this.to, this.edges * 2);
+    }
+    this.from[this.edges] = a;
+    this.to[this.edges] = b;
+    this.edges += 1;
+  }
+
+  // the graph of the edges added so far
+  MazeGraph build() {
+    return new MazeGraph(this.nodes, Arrays.copyOf(this.from, this.edges),
+            Arrays.copyOf(this.to, this.edges));
+  }
+}
+
+// an undirected graph of numbered nodes, with its neighbors packed in compressed sparse row
+// form: node n's neighbors are targets[offsets[n]] up to targets[offsets[n + 1]], so walking a
+// node's neighbors reads one run of an array instead of following references
+// any shape of maze can be described this way (a torus, layers, hexagons, or a rectangle with
+// cells cut out), and the Kruskal and search over it don't need to know which one it is
+class MazeGraph {
+
+  // how many nodes and edges there are
+  final int nodes;
+  final int edges;
+
+  // where each node's neighbors start in targets, with one more at the end
+  private final int[] offsets;
+
+  // each node's neighbors, and the edge leading to each of them
+  private final int[] targets;
+  private final int[] targetEdges;
+
+  // the two ends of each edge
+  private final int[] from;
+  private final int[] to;
+
+  MazeGraph(int nodes, int[] from, int[] to) {
+    if (from.length != to.length) {
+      throw new IllegalArgumentException("Illegal edges for graph");
+    }
+    this.nodes = nodes;
+    this.edges = from.length;
+    this.from = from;
+    this.to = to;
+    // counts the neighbors of each node, then adds up the counts to find where each starts
+    this.offsets = new int[nodes + 1];
+    for (int e = 0; e < this.edges; e += 1) {
+      this.offsets[from[e] + 1] += 1;
+      this.offsets[to[e] + 1] += 1;
+    }
+    for (int n = 0; n < nodes; n += 1) {
+      this.offsets[n + 1] += this.offsets[n];
+    }
+    this.targets = new int[2 * this.edges];
+    this.targetEdges = new int[2 * this.edges];
+    int[] filled = Arrays.copyOf(this.offsets, nodes);
+    for (int e = 0; e < this.edges; e += 1) {
+      this.targets[filled[from[e]]] = to[e];
+      this.targetEdges[filled[from[e]]] = e;
+      filled[from[e]] += 1;
+      this.targets[filled[to[e]]] = from[e];
+      this.targetEdges[filled[to[e]]] = e;
+      filled[to[e]] += 1;
+    }
+  }
+
+  // where the given node's neighbors start
+  int first(int node) {
+    return this.offsets[node];
+  }
+
+  // where the given node's neighbors stop
+  int last(int node) {
+    return this.offsets[node + 1];
+  }
+
+  // how many neighbors the given node has
+  int degree(int node) {
+    return this.offsets[node + 1] - this.offsets[node];
+  }
+
+  // the neighbor at the given place, between some node's first and last
+  int target(int slot) {
+    return this.targets[slot];
+  }
+
+  // the edge to the neighbor at the given place, between some node's first and last
+  int targetEdge(int slot) {
+    return this.targetEdges[slot];
+  }
+
+  // one end of the given edge
+  int from(int edge) {
+    return this.from[edge];
+  }
+
+  // the other end of the given edge
+  int to(int edge) {
+    return this.to[edge];
+  }
+
+  // a height by width rectangle, each cell joined to the ones beside, above and below it
+  // cell (x, y) is node y * width + x
+  static MazeGraph rectangle(int height, int width) {
+    return MazeGraph.masked(MazeGraph.fullMask(1, height, width)[0]);
+  }
+
+  // a height by width rectangle whose edges wrap around to the other side, so every cell has
+  // four neighbors
+  // cell (x, y) is node y * width + x
+  static MazeGraph torus(int height, int width) {
+    // any smaller and a cell would be its own neighbor, or joined to another twice
+    if (height < 3 || width < 3) {
+      throw new IllegalArgumentException("Illegal width/height for torus");
+    }
+    GraphBuilder graph = new GraphBuilder(height * width);
+    for (int y = 0; y < height; y += 1) {
+      for (int x = 0; x < width; x += 1) {
+        graph.addEdge(y * width + x, y * width + (x + 1) % width);
+        graph.addEdge(y * width + x, ((y + 1) % height) * width + x);
+      }
+    }
+    return graph.build();
+  }
+
+  // layers of height by width rectangles stacked on each other, each cell also joined to the
+  // ones right above and below it in the next layers
+  // cell (x, y) of layer z is node (z * height + y) * width + x
+  static MazeGraph layered(int layers, int height, int width) {
+    return MazeGraph.masked(MazeGraph.fullMask(layers, height, width));
+  }
+
+  // a height by width grid of hexagons, with every other row shifted half a hexagon right, so
+  // each cell is joined to the two beside it and two in each of the rows above and below
+  // cell (x, y) is node y * width + x
+  static MazeGraph hex(int height, int width) {
+    if (height <= 0 || width <= 0) {
+      throw new IllegalArgumentException("Illegal width/height for maze");
+    }
+    GraphBuilder graph = new GraphBuilder(height * width);
+    for (int y = 0; y < height; y += 1) {
+      // the row below starts half a hexagon to the left of an odd row, and right of an even one
+      int shift = y % 2;
+      for (int x = 0; x < width; x += 1) {
+        int node = y * width + x;
+        if (x + 1 < width) {
+          graph.addEdge(node, node + 1);
+        }
+        if (y + 1 < height) {
+          for (int below = x - 1 + shift; below <= x + shift; below += 1) {
+            if (below >= 0 && below < width) {
+              graph.addEdge(node, (y + 1) * width + below);
+            }
+          }
+        }
+      }
+    }
+    return graph.build();
+  }
+
+  // the cells of a rectangle that are in the given mask (mask[y][x]), each joined to those
+  // beside, above and below it that are also in it
+  // the cells in the mask are numbered row by row, skipping the ones that aren't
+  static MazeGraph masked(boolean[][] mask) {
+    return MazeGraph.masked(new boolean[][][] {mask});
+  }
+
+  // the cells of layered rectangles that are in the given mask (mask[z][y][x]), each joined to
+  // those beside, above and below it, and in the layers next to it, that are also in it
+  // the cells in the mask are numbered layer by layer and row by row, skipping the ones that
+  // aren't
+  static MazeGraph masked(boolean[][][] mask) {
+    if (mask.length == 0 || mask[0].length == 0 || mask[0][0].length == 0) {
+      throw new IllegalArgumentException("Illegal width/height for maze");
+    }
+    int layers = mask.length;
+    int height = mask[0].length;
+    int width = mask[0][0].length;
+    // the node of each cell, or -1 if it isn't in the mask
+    int[][][] nodes = new int[layers][height][width];
+    int count = 0;
+    for (int z = 0; z < layers; z += 1) {
+      for (int y = 0; y < height; y += 1) {
+        for (int x = 0; x < width; x += 1) {
+          nodes[z][y][x] = mask[z][y][x] ? count : -1;
+          count += mask[z][y][x] ? 1 : 0;
+        }
+      }
+    }
+    GraphBuilder graph = new GraphBuilder(count);
+    for (int z = 0; z < layers; z += 1) {
+      for (int y = 0; y < height; y += 1) {
+        for (int x = 0; x < width; x += 1) {
+          int node = nodes[z][y][x];
+          if (node < 0) {
+            continue;
+          }
+          if (x + 1 < width && nodes[z][y][x + 1] >= 0) {
+            graph.addEdge(node, nodes[z][y][x + 1]);
+          }
+          if (y + 1 < height && nodes[z][y + 1][x] >= 0) {
+            graph.addEdge(node, nodes[z][y + 1][x]);
+          }
+          if (z + 1 < layers && nodes[z + 1][y][x] >= 0) {
+            graph.addEdge(node, nodes[z + 1][y][x]);
+          }
+        }
+      }
+    }
+    return graph.build();
+  }
+
+  // a mask of the given size with every cell in it
+  private static boolean[][][] fullMask(int layers, int height, int width) {
+    if (layers <= 0 || height <= 0 || width <= 0) {
+      throw new IllegalArgumentException("Illegal width/height for maze");
+    }
+    boolean[][][] mask = new boolean[layers][height][width];
+    for (boolean[][] layer : mask) {
+      for (boolean[] row : layer) {
+        Arrays.fill(row, true);
+      }
+    }
+    return mask;
+  }
+}
+
+// searches a maze carved out of a MazeGraph (the edges that are open) from one node to
+// another, with either bfs or dfs depending on the worklist, like Search does on a grid
+class GraphSearch {
+
+  // the nodes in the order they were seen, and how many there are
+  final int[] seen;
+  final int seenCount;
+
+  // the nodes from the start to the end, both included, or none if the end can't be reached
+  final int[] solution;
+
+  GraphSearch(IIntCollection worklist, MazeGraph graph, BitSet open, int start, int end) {
+    if (start < 0 || start >= graph.nodes || end < 0 || end >= graph.nodes) {
+      throw new IllegalArgumentException("Illegal start/end for search");
+    }
+    MazePhase phase = new MazePhase("search");
+    int[] cameFrom = new int[graph.nodes];
+    boolean[] discovered = new boolean[graph.nodes];
+    this.seen = new int[graph.nodes];
+    int count = 0;
+    int onWorklist = 1;
+    int peak = 1;
+    cameFrom[start] = -1;
+    discovered[start] = true;
+    worklist.add(start);
+    boolean found = false;
+    while (!worklist.isEmpty()) {
+      int next = worklist.remove();
+      onWorklist -= 1;
+      this.seen[count] = next;
+      count += 1;
+      if (next == end) {
+        found = true;
+        break;
+      }
+      for (int slot = graph.first(next); slot < graph.last(next); slot += 1) {
+        int to = graph.target(slot);
+        if (!discovered[to] && open.get(graph.targetEdge(slot))) {
+          discovered[to] = true;
+          cameFrom[to] = next;
+          worklist.add(to);
+          onWorklist += 1;
+          peak = Math.max(peak, onWorklist);
+        }
+      }
+    }
+    this.seenCount = count;
+    this.solution = found ? GraphSearch.walkBack(cameFrom, end) : new int[0];
+    phase.end(MazeMetrics.SHARED, graph.nodes, graph.edges, count, peak);
+  }
+
+  // the nodes from the start up to the given end, going back through where each came from
+  private static int[] walkBack(int[] cameFrom, int end) {
+    int length = 0;
+    for (int cur = end; cur != -1; cur = cameFrom[cur]) {
+      length += 1;
+    }
+    int[] route = new int[length];
+    int at = length - 1;
+    for (int cur = end; cur != -1; cur = cameFrom[cur]) {
+      route[at] = cur;
+      at -= 1;
+    }
+    return route;
+  }
+}
@@ -0,0 +1,161 @@
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// a flight recorder event for one phase of making or solving a maze, so phases show up on
+// the timeline in JDK Mission Control
+// only costs anything when a recording with it enabled is running
+@Name("maze.Phase")
+@Label("Maze Phase")
+@Category("Maze")
+@Description("One phase of generating or solving a maze")
+class PhaseEvent extends Event {
+  @Label("Phase")
+  String phase;
+
+  @Label("Cells")
+  long cells;
+
+  @Label("Edges")
+  long edges;
+
+  @Label("Nodes Expanded")
+  long nodesExpanded;
+
+  @Label("Worklist Peak")
+  long worklistPeak;
+
+  @Label("Bytes Allocated")
+  long bytesAllocated;
+}
+
+// one phase of making or solving a maze, timed from when it's made until end is called
+class MazePhase {
+
+  // the phase being timed, e.g. "kruskal"
+  final String name;
+
+  // when the phase started, and how many bytes this thread had allocated by then
+  private final long startNanos;
+  private final long startBytes;
+
+  // the flight recorder event for this phase
+  private final PhaseEvent event;
+
+  MazePhase(String name) {
+    this.name = name;
+    this.event = new PhaseEvent();
+    this.startBytes = FrameStats.allocatedBytes();
+    this.event.begin();
+    this.startNanos = System.nanoTime();
+  }
+
+  // EFFECT: ends the phase, recording what it worked on in the metrics and the flight recorder
+  void end(MazeMetrics metrics, long cells, long edges, long nodesExpanded, long worklistPeak) {
+    long nanos = System.nanoTime() - this.startNanos;
+    long bytes = 0;
+    if (this.startBytes >= 0) {
+      bytes = FrameStats.allocatedBytes() - this.startBytes;
+    }
+    this.event.end();
+    if (this.event.shouldCommit()) {
+      this.event.phase = this.name;
+      this.event.cells = cells;
+      this.event.edges = edges;
+      this.event.nodesExpanded = nodesExpanded;
+      this.event.worklistPeak = worklistPeak;
+      this.event.bytesAllocated = bytes;
+      this.event.commit();
+    }
+    metrics.record(this.name, nanos, bytes, cells, edges, nodesExpanded, worklistPeak);
+  }
+}
+
+// totals for every time one phase has happened
+class PhaseTotals {
+  long count;
+  long totalNanos;
+  long maxNanos;
+  long totalBytes;
+  long cells;
+  long edges;
+  long nodesExpanded;
+  long worklistPeak;
+
+  // this phase's totals as a json object, with times in milliseconds written with a '.'
+  // whatever the locale
+  String toJson() {
+    return String.format(Locale.ROOT,
+            "{\"count\": %d, \"totalMs\": %.3f, \"maxMs\": %.3f, \"bytes\": %d, "
+                    + "\"cells\": %d, \"edges\": %d, \"nodesExpanded\": %d, \"worklistPeak\": %d}",
+            this.count, this.totalNanos / 1e6, this.maxNanos / 1e6, this.totalBytes, this.cells,
+            this.edges, this.nodesExpanded, this.worklistPeak);
+  }
+}
+
+// keeps totals for every phase of making and solving mazes, so we can tell which phase
+// made a reset slow
+// phases can be recorded from any thread (e.g. MazeBatch's)
+class MazeMetrics {
+
+  // the metrics every maze, generator and search records into
+  static final MazeMetrics SHARED = new MazeMetrics();
+
+  // the totals for each phase, in the order the phases first happened
+  private final LinkedHashMap<String, PhaseTotals> phases;
+
+  MazeMetrics() {
+    this.phases = new LinkedHashMap<String, PhaseTotals>();
+  }
+
+  // EFFECT: adds one run of the given phase to its totals
+  // the counts of what it worked on are added up, except the worklist peak which is the most
+  synchronized void record(String phase, long nanos, long bytes, long cells, long edges,
+                           long nodesExpanded, long worklistPeak) {
+    PhaseTotals totals = this.phases.get(phase);
+    if (totals == null) {
+      totals = new PhaseTotals();
+      this.phases.put(phase, totals);
+    }
+    totals.count += 1;
+    totals.totalNanos += nanos;
+    totals.maxNanos = Math.max(totals.maxNanos, nanos);
+    totals.totalBytes += bytes;
+    totals.cells += cells;
+    totals.edges += edges;
+    totals.nodesExpanded += nodesExpanded;
+    totals.worklistPeak = Math.max(totals.worklistPeak, worklistPeak);
+  }
+
+  // how many times the given phase has been recorded
+  synchronized long count(String phase) {
+    PhaseTotals totals = this.phases.get(phase);
+    if (totals == null) {
+      return 0;
+    }
+    return totals.count;
+  }
+
+  // EFFECT: forgets every phase recorded so far
+  synchronized void clear() {
+    this.phases.clear();
+  }
+
+  // every phase's totals as one json object, keyed by phase
+  synchronized String toJson() {
+    StringBuilder json = new StringBuilder("{");
+    for (Map.Entry<String, PhaseTotals> e : this.phases.entrySet()) {
+      if (json.length() > 1) {
+        json.append(", ");
+      }
+      json.append("\"").append(e.getKey()).append("\": ").append(e.getValue().toJson());
+    }
+    return json.append("}").toString();
+  }
+}
@@ -0,0 +1,148 @@
+import java.util.ArrayList;
+
+// a pyramid of smaller and smaller pictures of a maze, for drawing it zoomed out
+// level k has one block for every 2^k by 2^k square of cells, holding the most common color
+// and how much of the square is wall, so a zoomed out frame reads one block per pixel instead
+// of walking every cell that pixel covers
+class MazeMipmap {
+
+  // width and height of the maze in cells
+  private final int width;
+  private final int height;
+
+  // the cells of the maze, which are level 0 of the pyramid
+  // not final because a new maze brings a new grid
+  private ArrayList<ArrayList<Cell>> grid;
+
+  // for each level above 0: the most common palette color of each block, row by row
+  private final byte[][] colors;
+
+  // for each level above 0: the fraction of each block's possible walls that are up,
+  // scaled to 0 - 255, row by row
+  private final byte[][] walls;
+
+  // room for the colors of the four blocks below the block being computed, reused for
+  // every block so updates don't allocate
+  private final byte[] childColors;
+
+  // builds every level needed to fit the maze in a screen of the given size
+  MazeMipmap(ArrayList<ArrayList<Cell>> grid, int screenWidth, int screenHeight) {
+    this.height = grid.size();
+    this.width = grid.get(0).size();
+    int levels = 0;
+    while (((this.width - 1) >> levels) + 1 > screenWidth
+            || ((this.height - 1) >> levels) + 1 > screenHeight) {
+      levels += 1;
+    }
+    this.childColors = new byte[4];
+    this.colors = new byte[levels + 1][];
+    this.walls = new byte[levels + 1][];
+    for (int k = 1; k <= levels; k += 1) {
+      this.colors[k] = new byte[this.columnsAt(k) * this.rowsAt(k)];
+      this.walls[k] = new byte[this.columnsAt(k) * this.rowsAt(k)];
+    }
+    this.rebuild(grid);
+  }
+
+  // the highest level, where the whole maze fits on screen
+  int levels() {
+    return this.colors.length - 1;
+  }
+
+  // the number of blocks across at the given level
+  int columnsAt(int level) {
+    return ((this.width - 1) >> level) + 1;
+  }
+
+  // the number of blocks down at the given level
+  int rowsAt(int level) {
+    return ((this.height - 1) >> level) + 1;
+  }
+
+  // the most common palette color in the given block
+  byte colorAt(int level, int column, int row) {
+    return this.colors[level][row * this.columnsAt(level) + column];
+  }
+
+  // how much of the given block is wall, from 0 (none) to 255 (every wall is up)
+  int wallsAt(int level, int column, int row) {
+    return this.walls[level][row * this.columnsAt(level) + column] & 0xFF;
+  }
+
+  // the packed rgb color to draw for the given block: its color, darker the more walls it has
+  int shadeAt(int level, int column, int row) {
+    int rgb = Palette.rgb(this.colorAt(level, column, row));
+    // a block that is all wall is drawn at a quarter brightness
+    int scale = 256 - this.wallsAt(level, column, row) * 3 / 4;
+    int r = ((rgb >> 16) & 0xFF) * scale >> 8;
+    int g = ((rgb >> 8) & 0xFF) * scale >> 8;
+    int b = (rgb & 0xFF) * scale >> 8;
+    return (r << 16) | (g << 8) | b;
+  }
+
+  // EFFECT: recomputes every level from the given grid (e.g. when a new maze is made)
+  void rebuild(ArrayList<ArrayList<Cell>> grid) {
+    this.grid = grid;
+    for (int k = 1; k <= this.levels(); k += 1) {
+      for (int row = 0; row < this.rowsAt(k); row += 1) {
+        for (int column = 0; column < this.columnsAt(k); column += 1) {
+          this.computeBlock(k, column, row);
+        }
+      }
+    }
+  }
+
+  // EFFECT: recomputes the one block on each level that covers the given cell, after its
+  // color or walls changed
+  void update(Cell c) {
+    for (int k = 1; k <= this.levels(); k += 1) {
+      this.computeBlock(k, c.pos.x >> k, c.pos.y >> k);
+    }
+  }
+
+  // EFFECT: recomputes the given block from the (up to) four blocks below it
+  private void computeBlock(int level, int column, int row) {
+    byte[] childColors = this.childColors;
+    int count = 0;
+    int wallTotal = 0;
+    for (int dy = 0; dy < 2; dy += 1) {
+      for (int dx = 0; dx < 2; dx += 1) {
+        int x = column * 2 + dx;
+        int y = row * 2 + dy;
+        if (level == 1 && x < this.width && y < this.height) {
+          Cell c = this.grid.get(y).get(x);
+          childColors[count] = c.clr;
+          wallTotal += ((c.showTop ? 1 : 0) + (c.showLeft ? 1 : 0)) * 255 / 2;
+          count += 1;
+        } else if (level > 1 && x < this.columnsAt(level - 1) && y < this.rowsAt(level - 1)) {
+          childColors[count] = this.colorAt(level - 1, x, y);
+          wallTotal += this.wallsAt(level - 1, x, y);
+          count += 1;
+        }
+      }
+    }
+    int index = row * this.columnsAt(level) + column;
+    this.colors[level][index] = this.mostCommon(childColors, count);
+    this.walls[level][index] = (byte) (wallTotal / count);
+  }
+
+  // the color that appears most in the first count colors
+  // ties go to a color that isn't the background, so explored paths stay visible
+  private byte mostCommon(byte[] clrs, int count) {
+    byte best = clrs[0];
+    int bestCount = 0;
+    for (int i = 0; i < count; i += 1) {
+      int matches = 0;
+      for (int j = 0; j < count; j += 1) {
+        if (clrs[j] == clrs[i]) {
+          matches += 1;
+        }
+      }
+      if (matches > bestCount || (matches == bestCount && best == Palette.UNVISITED)) {
+        best = clrs[i];
+        bestCount = matches;
+      }
+    }
+    return best;
+  }
+}
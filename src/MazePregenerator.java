@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+// a maze built ahead of time: its grid with every wall still up, and the paths whose walls
+// come down to finish it, with what they were made from so the grid can be handed back and
+// remade in place
+class PregeneratedMaze {
+  final RebuiltGrid built;
+  final ArrayList<ArrayList<Cell>> grid;
+  final ArrayList<Path> mst;
+
+  PregeneratedMaze(RebuiltGrid built) {
+    this.built = built;
+    this.grid = built.grid;
+    this.mst = built.tree;
+  }
+}
+
+// makes the daemon threads that mazes are built and solved on in the background, so the game
+// can close without waiting for work no one needs anymore
+class DaemonThreads implements ThreadFactory {
+  private final String name;
+
+  DaemonThreads(String name) {
+    this.name = name;
+  }
+
+  // a daemon thread that runs the given work
+  public Thread newThread(Runnable work) {
+    Thread t = new Thread(work, this.name);
+    t.setDaemon(true);
+    return t;
+  }
+}
+
+// builds one maze ahead of time with the given generator, remaking the given built grid in
+// place if there is one
+class PregenerationJob implements Callable<PregeneratedMaze> {
+  private final MazeGenerator generator;
+  private final RebuiltGrid recycled;
+  private final int height;
+  private final int width;
+  private final MazeType type;
+
+  PregenerationJob(MazeGenerator generator, RebuiltGrid recycled, int height, int width,
+                   MazeType type) {
+    this.generator = generator;
+    this.recycled = recycled;
+    this.height = height;
+    this.width = width;
+    this.type = type;
+  }
+
+  // builds the maze, leaving its walls up
+  public PregeneratedMaze call() {
+    if (this.recycled == null) {
+      return new PregeneratedMaze(this.generator.build(
+              this.generator.constructGrid(this.height, this.width), this.type));
+    }
+    this.generator.rebuild(this.recycled, this.type);
+    return new PregeneratedMaze(this.recycled);
+  }
+}
+
+// builds the next maze of each type on a background thread while the current one is played,
+// so asking for a new maze only has to swap in the one that's ready
+// the grid of the maze being swapped out is handed back, with its paths and buffers, and
+// remade in place as the next maze of that type, so after the first of each type is built
+// nothing new is made
+class MazePregenerator {
+
+  // about how much memory a built maze takes per cell, with its cells, paths and buffers
+  static final long BYTES_PER_CELL = 300;
+
+  private final int height;
+  private final int width;
+  private final int cellSize;
+
+  // where the seeds for each type's generator come from
+  private final Random seeds;
+
+  // the generator for each type, each with its own random so they can run on the worker
+  // without sharing one
+  private final EnumMap<MazeType, MazeGenerator> generators;
+
+  // the maze being built (or already built) for each type
+  private final EnumMap<MazeType, Future<PregeneratedMaze>> next;
+
+  // the thread the mazes are built on
+  // not final because it is only started when the first maze is asked for, so a maze that is
+  // never played (like the ones in our tests) doesn't start a thread
+  private ExecutorService worker;
+
+  MazePregenerator(int height, int width, int cellSize, Random seeds) {
+    if (height <= 0 || width <= 0) {
+      throw new IllegalArgumentException("Illegal width/height for maze");
+    }
+    this.height = height;
+    this.width = width;
+    this.cellSize = cellSize;
+    this.seeds = seeds;
+    this.generators = new EnumMap<MazeType, MazeGenerator>(MazeType.class);
+    this.next = new EnumMap<MazeType, Future<PregeneratedMaze>>(MazeType.class);
+  }
+
+  // is there room in memory for a maze of each type on top of the one being played
+  boolean fits() {
+    long cells = (long) this.height * this.width;
+    return cells * BYTES_PER_CELL * (MazeType.values().length + 1)
+            < Runtime.getRuntime().maxMemory();
+  }
+
+  // EFFECT: starts building a maze of every type that isn't already being built
+  void prepareAll() {
+    for (MazeType type : MazeType.values()) {
+      if (!this.next.containsKey(type)) {
+        this.prepare(type, null);
+      }
+    }
+  }
+
+  // EFFECT: starts building the next maze of the given type, remaking the given built grid in
+  // place if it isn't null
+  // the grid must not be used by anything else once it's handed over
+  void prepare(MazeType type, RebuiltGrid recycled) {
+    if (this.worker == null) {
+      this.worker = Executors.newSingleThreadExecutor(new DaemonThreads("maze-pregenerator"));
+    }
+    MazeGenerator generator = this.generators.get(type);
+    if (generator == null) {
+      generator = new MazeGenerator(new Random(this.seeds.nextLong()), this.cellSize);
+      this.generators.put(type, generator);
+    }
+    this.next.put(type, this.worker.submit(
+            new PregenerationJob(generator, recycled, this.height, this.width, type)));
+  }
+
+  // is a maze of the given type being built or ready
+  boolean isPreparing(MazeType type) {
+    return this.next.containsKey(type);
+  }
+
+  // returns the maze of the given type, waiting for it to finish if it's still being built
+  // EFFECT: forgets it, so the caller should prepare the next one
+  PregeneratedMaze take(MazeType type) {
+    Future<PregeneratedMaze> ready = this.next.remove(type);
+    if (ready == null) {
+      throw new IllegalArgumentException("Illegal type for pregenerator");
+    }
+    try {
+      return ready.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("interrupted while waiting for the next maze", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("building the next maze failed", e.getCause());
+    }
+  }
+}
@@ -0,0 +1,449 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+// what picks out one maze: its size, the seed it was made from and its type
+// the same key always makes the same maze, so a maze can be shared by every request for it
+class MazeKey {
+  final int height;
+  final int width;
+  final long seed;
+  final MazeType type;
+
+  MazeKey(int height, int width, long seed, MazeType type) {
+    if (height <= 0 || width <= 0) {
+      throw new IllegalArgumentException("Illegal width/height for maze");
+    }
+    this.height = height;
+    this.width = width;
+    this.seed = seed;
+    this.type = type;
+  }
+
+  // is the given object a key for the same maze
+  public boolean equals(Object other) {
+    if (!(other instanceof MazeKey)) {
+      return false;
+    }
+    MazeKey that = (MazeKey) other;
+    return this.height == that.height && this.width == that.width && this.seed == that.seed
+            && this.type == that.type;
+  }
+
+  // the same for keys of the same maze
+  public int hashCode() {
+    return Arrays.hashCode(new Object[] {this.height, this.width, this.seed, this.type});
+  }
+
+  // e.g. 100x100/2510/NORMAL
+  public String toString() {
+    return this.height + "x" + this.width + "/" + this.seed + "/" + this.type;
+  }
+}
+
+// a maze made for the service, along with what it needs to answer routes quickly
+// the maze is a tree, so it's hung from its first cell once: the route between any two cells
+// then goes up from both to where they meet, which only looks at the cells on the route
+// nothing changes after it's made, so any number of requests can use it at once
+class ServedMaze {
+  final MazeKey key;
+  final MazeTopology maze;
+
+  // how long making the maze took
+  final long generateNanos;
+
+  // each cell's parent, the cell next to it one step closer to the first cell (or -1 for the
+  // first cell), and how many steps from the first cell it is
+  private final int[] parents;
+  private final int[] depths;
+
+  ServedMaze(MazeKey key, ArrayList<ArrayList<Cell>> grid, long generateNanos) {
+    this.key = key;
+    this.maze = new MazeTopology(grid);
+    this.generateNanos = generateNanos;
+    this.parents = new int[this.maze.cells()];
+    this.depths = new int[this.maze.cells()];
+    Arrays.fill(this.depths, -1);
+    this.hang();
+  }
+
+  // EFFECT: works out every cell's parent and depth with a bfs from the first cell
+  private void hang() {
+    MazePhase phase = new MazePhase("preprocess");
+    IntQueue worklist = new IntQueue();
+    this.parents[0] = -1;
+    this.depths[0] = 0;
+    worklist.add(0);
+    int expanded = 0;
+    while (!worklist.isEmpty()) {
+      int next = worklist.remove();
+      expanded += 1;
+      for (int dir = MazeTopology.UP; dir <= MazeTopology.LEFT; dir += 1) {
+        if (this.maze.isOpen(next, dir)) {
+          int to = this.maze.neighbor(next, dir);
+          if (this.depths[to] < 0) {
+            this.depths[to] = this.depths[next] + 1;
+            this.parents[to] = next;
+            worklist.add(to);
+          }
+        }
+      }
+    }
+    phase.end(MazeMetrics.SHARED, this.maze.cells(), 0, expanded, 0);
+  }
+
+  // the cell indices from one cell to another, both included, or an empty route if there's
+  // no way between them
+  int[] route(int from, int to) {
+    if (from < 0 || from >= this.maze.cells() || to < 0 || to >= this.maze.cells()) {
+      throw new IllegalArgumentException("Illegal cell for route");
+    }
+    if (this.depths[from] < 0 || this.depths[to] < 0) {
+      return new int[0];
+    }
+    // climbs from both ends until they meet, keeping the steps from each end
+    int[] up = new int[this.depths[from] + 1];
+    int[] down = new int[this.depths[to] + 1];
+    int ups = 0;
+    int downs = 0;
+    int a = from;
+    int b = to;
+    while (a != b) {
+      if (this.depths[a] >= this.depths[b]) {
+        up[ups] = a;
+        ups += 1;
+        a = this.parents[a];
+      } else {
+        down[downs] = b;
+        downs += 1;
+        b = this.parents[b];
+      }
+    }
+    int[] route = new int[ups + 1 + downs];
+    System.arraycopy(up, 0, route, 0, ups);
+    route[ups] = a;
+    for (int i = 0; i < downs; i += 1) {
+      route[route.length - 1 - i] = down[i];
+    }
+    return route;
+  }
+}
+
+// makes the maze for a key, which only the first request for it does
+class ServedMazeJob implements Callable<ServedMaze> {
+  private final MazeKey key;
+
+  ServedMazeJob(MazeKey key) {
+    this.key = key;
+  }
+
+  // makes the maze and hangs it ready for routes
+  public ServedMaze call() {
+    long began = System.nanoTime();
+    // the cells are never drawn, so their size doesn't matter
+    ArrayList<ArrayList<Cell>> grid = new MazeGenerator(new Random(this.key.seed), 1)
+            .generate(this.key.height, this.key.width, this.key.type);
+    return new ServedMaze(this.key, grid, System.nanoTime() - began);
+  }
+}
+
+// makes and solves mazes for other programs over http on this machine, so they don't have to
+// start a jvm for every maze
+// usage: MazeService [-port 8510] [-threads <cores>] [-cache 16] [-maxCells 4000000]
+//   GET /generate?size=100x100&seed=2510&type=NORMAL
+//   GET /solve?size=100x100&seed=2510&type=NORMAL&routes=0,0:99,99;5,3:0,42
+//   GET /metrics
+// requests for a maze that's being made wait for it rather than making it again, and every
+// route of a solve (and every solve of a maze) is answered from the same hung up tree
+// every answer is a json object with how long the request took in ms
+// mazes with more than maxCells cells are turned away before anything is made for them
+class MazeService {
+
+  // the most cells a maze may have unless the service is told otherwise, about 1.6 GB of heap
+  // while it's being made
+  static final long MAX_CELLS = 4000000;
+
+  // the mazes made so far, most recently used last, each made by whoever asked first
+  // requests for a maze that's still being made wait on the same task
+  private final LinkedHashMap<MazeKey, FutureTask<ServedMaze>> mazes;
+
+  // how many mazes to keep before the one used longest ago is forgotten
+  private final int capacity;
+
+  // the most cells a maze asked for may have, so one request can't run the heap out
+  private final long maxCells;
+
+  // how many mazes have been made, which is less than how many were asked for
+  private final AtomicInteger built;
+
+  MazeService(int capacity) {
+    this(capacity, MAX_CELLS);
+  }
+
+  MazeService(int capacity, long maxCells) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Illegal capacity for service");
+    }
+    if (maxCells <= 0) {
+      throw new IllegalArgumentException("Illegal max cells for service");
+    }
+    this.capacity = capacity;
+    this.maxCells = maxCells;
+    this.mazes = new LinkedHashMap<MazeKey, FutureTask<ServedMaze>>(16, 0.75f, true);
+    this.built = new AtomicInteger();
+  }
+
+  // how many mazes this service has made
+  int built() {
+    return this.built.get();
+  }
+
+  // the maze for the given key, making it if no one has yet, or waiting for it if someone is
+  // EFFECT: remembers the maze, forgetting the one used longest ago if there are too many
+  ServedMaze maze(MazeKey key) {
+    FutureTask<ServedMaze> task;
+    boolean isMine = false;
+    synchronized (this.mazes) {
+      task = this.mazes.get(key);
+      if (task == null) {
+        task = new FutureTask<ServedMaze>(new ServedMazeJob(key));
+        this.mazes.put(key, task);
+        isMine = true;
+        if (this.mazes.size() > this.capacity) {
+          this.mazes.remove(this.mazes.keySet().iterator().next());
+        }
+      }
+    }
+    // the maze is made outside the lock, so requests for other mazes don't wait for it
+    if (isMine) {
+      this.built.incrementAndGet();
+      task.run();
+    }
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("interrupted while waiting for a maze", e);
+    } catch (ExecutionException e) {
+      synchronized (this.mazes) {
+        this.mazes.remove(key, task);
+      }
+      throw new RuntimeException("making a maze failed", e.getCause());
+    }
+  }
+
+  // the json answer to a request for the given path with the given query string
+  // throws IllegalArgumentException for requests that don't make sense
+  String handle(String path, String query) {
+    long began = System.nanoTime();
+    HashMap<String, String> params = MazeService.parse(query);
+    String answer;
+    if (path.equals("/generate")) {
+      MazePhase phase = new MazePhase("serveGenerate");
+      ServedMaze served = this.maze(this.keyOf(params));
+      phase.end(MazeMetrics.SHARED, served.maze.cells(), 0, 0, 0);
+      answer = String.format(Locale.ROOT, "\"maze\": \"%s\", \"cells\": %d, \"generateMs\": %.3f",
+              served.key, served.maze.cells(), served.generateNanos / 1e6);
+    } else if (path.equals("/solve")) {
+      MazePhase phase = new MazePhase("serveSolve");
+      ServedMaze served = this.maze(this.keyOf(params));
+      String routes = params.get("routes");
+      if (routes == null) {
+        routes = "0,0:" + (served.maze.width - 1) + "," + (served.maze.height - 1);
+      }
+      StringBuilder json = new StringBuilder();
+      int walked = 0;
+      for (String pair : routes.split(";")) {
+        String[] ends = pair.split(":");
+        if (ends.length != 2) {
+          throw new IllegalArgumentException("Illegal route for solve: " + pair);
+        }
+        int[] route = served.route(MazeService.cellOf(ends[0], served.maze),
+                MazeService.cellOf(ends[1], served.maze));
+        walked += route.length;
+        if (json.length() > 0) {
+          json.append(", ");
+        }
+        json.append(MazeService.routeJson(route, served.maze));
+      }
+      phase.end(MazeMetrics.SHARED, served.maze.cells(), 0, walked, 0);
+      answer = String.format("\"maze\": \"%s\", \"routes\": [%s]", served.key, json);
+    } else if (path.equals("/metrics")) {
+      answer = "\"built\": " + this.built() + ", \"phases\": " + MazeMetrics.SHARED.toJson();
+    } else {
+      throw new IllegalArgumentException("Illegal path for service: " + path);
+    }
+    // json numbers always use a '.', whatever the locale
+    return String.format(Locale.ROOT, "{%s, \"ms\": %.3f}", answer,
+            (System.nanoTime() - began) / 1e6);
+  }
+
+  // the key of the maze the given parameters ask for
+  // throws IllegalArgumentException for mazes with more cells than this service makes, so the
+  // client gets told so before any of it is made
+  private MazeKey keyOf(HashMap<String, String> params) {
+    String[] dims = params.getOrDefault("size", "100x100").split("x");
+    if (dims.length != 2) {
+      throw new IllegalArgumentException("Illegal size for maze");
+    }
+    int height = Integer.parseInt(dims[0]);
+    int width = Integer.parseInt(dims[1]);
+    // multiplied as longs, since the cells of a big enough maze don't fit in an int
+    if ((long) height * width > this.maxCells) {
+      throw new IllegalArgumentException("Illegal size for service: more than " + this.maxCells
+              + " cells");
+    }
+    return new MazeKey(height, width,
+            Long.parseLong(params.getOrDefault("seed", "2510")),
+            MazeType.valueOf(params.getOrDefault("type", "NORMAL")));
+  }
+
+  // the index of the cell at the given "x,y" in the given maze
+  private static int cellOf(String xy, MazeTopology maze) {
+    String[] coords = xy.split(",");
+    if (coords.length != 2) {
+      throw new IllegalArgumentException("Illegal cell for route: " + xy);
+    }
+    int x = Integer.parseInt(coords[0].trim());
+    int y = Integer.parseInt(coords[1].trim());
+    if (x < 0 || x >= maze.width || y < 0 || y >= maze.height) {
+      throw new IllegalArgumentException("Illegal cell for route: " + xy);
+    }
+    return y * maze.width + x;
+  }
+
+  // the given route as a json object with its length and its cells as [x, y] pairs
+  private static String routeJson(int[] route, MazeTopology maze) {
+    StringBuilder cells = new StringBuilder();
+    for (int i = 0; i < route.length; i += 1) {
+      if (i > 0) {
+        cells.append(", ");
+      }
+      cells.append("[").append(route[i] % maze.width).append(", ")
+              .append(route[i] / maze.width).append("]");
+    }
+    return "{\"length\": " + route.length + ", \"cells\": [" + cells + "]}";
+  }
+
+  // the parameters of the given query string, e.g. a=1&b=2
+  static HashMap<String, String> parse(String query) {
+    HashMap<String, String> params = new HashMap<String, String>();
+    if (query == null || query.isEmpty()) {
+      return params;
+    }
+    for (String param : query.split("&")) {
+      int eq = param.indexOf('=');
+      if (eq < 0) {
+        throw new IllegalArgumentException("Illegal parameter for service: " + param);
+      }
+      params.put(URLDecoder.decode(param.substring(0, eq), StandardCharsets.UTF_8),
+              URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8));
+    }
+    return params;
+  }
+
+  public static void main(String[] args) throws IOException {
+    int port = 8510;
+    int threads = Runtime.getRuntime().availableProcessors();
+    int capacity = 16;
+    long maxCells = MAX_CELLS;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (args[i].equals("-port")) {
+        port = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("-threads")) {
+        threads = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("-cache")) {
+        capacity = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("-maxCells")) {
+        maxCells = Long.parseLong(args[i + 1]);
+      } else {
+        throw new IllegalArgumentException("Illegal option for service: " + args[i]);
+      }
+    }
+    // only other programs on this machine can reach it
+    HttpServer server = HttpServer.create(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/", new ServiceHandler(new MazeService(capacity, maxCells)));
+    server.setExecutor(Executors.newFixedThreadPool(threads));
+    server.start();
+    System.err.println("serving mazes on http://localhost:" + port);
+  }
+}
+
+// answers each http request with the service, on the server's threads
+class ServiceHandler implements HttpHandler {
+  private final MazeService service;
+
+  ServiceHandler(MazeService service) {
+    this.service = service;
+  }
+
+  // sends back the service's answer, or the error if the request didn't make sense
+  public void handle(HttpExchange exchange) throws IOException {
+    int status = 200;
+    String body;
+    try {
+      body = this.service.handle(exchange.getRequestURI().getPath(),
+              exchange.getRequestURI().getRawQuery());
+    } catch (IllegalArgumentException e) {
+      status = 400;
+      body = "{\"error\": " + ServiceHandler.quote(e.getMessage()) + "}";
+    } catch (RuntimeException e) {
+      status = 500;
+      body = "{\"error\": " + ServiceHandler.quote(e.toString()) + "}";
+    }
+    byte[] bytes = (body + "\n").getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    OutputStream out = exchange.getResponseBody();
+    try {
+      out.write(bytes);
+    } finally {
+      out.close();
+    }
+  }
+
+  // the given text as a json string, in quotes, with quotes, backslashes and control characters
+  // escaped, or null if there isn't any
+  static String quote(String text) {
+    if (text == null) {
+      return "null";
+    }
+    StringBuilder json = new StringBuilder("\"");
+    for (int i = 0; i < text.length(); i += 1) {
+      char c = text.charAt(i);
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c == '\n') {
+        json.append("\\n");
+      } else if (c == '\t') {
+        json.append("\\t");
+      } else if (c == '\r') {
+        json.append("\\r");
+      } else if (c < 0x20) {
+        json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    return json.append('"').toString();
+  }
+}
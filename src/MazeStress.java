@@ -0,0 +1,327 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// how long a maze of some size and type may take to make, solve and check, and how much heap
+// it may use while doing it
+class StressBudget {
+
+  // the side length of the maze, and the type, or null for every type
+  final int size;
+  final MazeType type;
+
+  final double maxMillis;
+  final double maxHeapMb;
+
+  StressBudget(int size, MazeType type, double maxMillis, double maxHeapMb) {
+    if (size <= 0 || maxMillis <= 0 || maxHeapMb <= 0) {
+      throw new IllegalArgumentException("Illegal budget for stress test");
+    }
+    this.size = size;
+    this.type = type;
+    this.maxMillis = maxMillis;
+    this.maxHeapMb = maxHeapMb;
+  }
+
+  // is this the budget for mazes of the given size and type
+  boolean covers(int size, MazeType type) {
+    return this.size == size && (this.type == null || this.type == type);
+  }
+}
+
+// how long one maze took to make, solve both ways and check, and the most heap it used
+class StressResult {
+  final int size;
+  final MazeType type;
+  final long generateNanos;
+  final long solveNanos;
+  final long validateNanos;
+  final long peakHeapBytes;
+
+  // what went over its budget or got slower, empty if nothing did
+  final ArrayList<String> failures;
+
+  StressResult(int size, MazeType type, long generateNanos, long solveNanos, long validateNanos,
+               long peakHeapBytes) {
+    this.size = size;
+    this.type = type;
+    this.generateNanos = generateNanos;
+    this.solveNanos = solveNanos;
+    this.validateNanos = validateNanos;
+    this.peakHeapBytes = peakHeapBytes;
+    this.failures = new ArrayList<String>();
+  }
+
+  // how long it all took, in milliseconds
+  double totalMillis() {
+    return (this.generateNanos + this.solveNanos + this.validateNanos) / 1e6;
+  }
+
+  // the most heap used, in megabytes
+  double peakHeapMb() {
+    return this.peakHeapBytes / 1e6;
+  }
+
+  // did it stay in its budget without getting slower
+  boolean passed() {
+    return this.failures.isEmpty();
+  }
+
+  // the key results are grouped by in the history, e.g. "1000\tNORMAL"
+  String key() {
+    return this.size + "\t" + this.type;
+  }
+
+  // this result as a line of the history, in the order of MazeStress.HEADER
+  String toLine(long when, String label) {
+    return String.format(Locale.ROOT, "%d\t%s\t%s\t%.1f\t%.1f\t%.1f\t%.1f\t%.1f\t%s", when,
+            label, this.key(), this.generateNanos / 1e6, this.solveNanos / 1e6,
+            this.validateNanos / 1e6, this.totalMillis(), this.peakHeapMb(),
+            this.passed() ? "pass" : "FAIL " + String.join("; ", this.failures));
+  }
+}
+
+// makes, solves (with bfs and dfs) and validates mazes of every type at sizes much bigger than
+// our examples, failing if any takes longer or uses more heap than its budget allows, or got
+// much slower than it has been
+// usage: MazeStress [-sizes 100,1000,5000] [-types NORMAL,VERTICAL,HORIZONTAL] [-seed 2510]
+//                   [-budgets budgets.tsv] [-history history.tsv] [-label my-change]
+//                   [-tolerance 1.5]
+// a budgets file has lines of: size, type (or *), total ms and peak heap MB, tab separated
+// sizes without a budget get a default one that grows with their cells
+// each run's results are added to the end of the history file, and a result more than
+// tolerance times the median of the last few runs of its size and type is a failure
+// exits with status 1 if anything failed
+// big sizes need a big heap: about 400 MB per million cells, e.g. java -Xmx12g for 5000
+// a size that needs more heap than there is fails without being made, rather than running out
+// numbers are written and read with a '.' whatever the locale, so histories can be shared
+class MazeStress {
+
+  static final String HEADER = "when\tlabel\tsize\ttype\tgenerate ms\tsolve ms\tvalidate ms"
+          + "\ttotal ms\tpeak heap MB\tresult";
+
+  // the default budget for a size: this much time and heap for every cell, plus some to start
+  static final double MILLIS_PER_CELL = 0.02;
+  static final double BASE_MILLIS = 500;
+  static final double MB_PER_CELL = 0.001;
+  static final double BASE_HEAP_MB = 64;
+
+  // about how much heap making, solving and validating a maze takes per cell
+  static final long HEAP_BYTES_PER_CELL = 400;
+
+  // how many of the latest runs of a size and type in the history a result is compared with
+  private static final int HISTORY_RUNS = 5;
+
+  public static void main(String[] args) throws IOException {
+    String sizes = "100,1000,5000";
+    String types = "NORMAL,VERTICAL,HORIZONTAL";
+    long seed = 2510;
+    ArrayList<StressBudget> budgets = new ArrayList<StressBudget>();
+    java.nio.file.Path history = null;
+    String label = "run";
+    double tolerance = 1.5;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (args[i].equals("-sizes")) {
+        sizes = args[i + 1];
+      } else if (args[i].equals("-types")) {
+        types = args[i + 1];
+      } else if (args[i].equals("-seed")) {
+        seed = Long.parseLong(args[i + 1]);
+      } else if (args[i].equals("-budgets")) {
+        budgets = MazeStress.readBudgets(Files.readAllLines(Paths.get(args[i + 1])));
+      } else if (args[i].equals("-history")) {
+        history = Paths.get(args[i + 1]);
+      } else if (args[i].equals("-label")) {
+        label = args[i + 1];
+      } else if (args[i].equals("-tolerance")) {
+        tolerance = Double.parseDouble(args[i + 1]);
+      } else {
+        throw new IllegalArgumentException("Illegal option for stress test: " + args[i]);
+      }
+    }
+
+    HashMap<String, ArrayList<Double>> past = new HashMap<String, ArrayList<Double>>();
+    if (history != null && Files.exists(history)) {
+      past = MazeStress.readHistory(Files.readAllLines(history));
+    }
+    ArrayList<String> lines = new ArrayList<String>();
+    if (history == null || !Files.exists(history)) {
+      lines.add(HEADER);
+    }
+    System.out.println(HEADER);
+    // a small maze of each type first, so the first real one isn't timed while still compiling
+    for (String type : types.split(",")) {
+      MazeStress.measure(50, MazeType.valueOf(type), seed);
+    }
+    boolean passed = true;
+    long when = System.currentTimeMillis() / 1000;
+    for (String size : sizes.split(",")) {
+      for (String type : types.split(",")) {
+        StressResult result = MazeStress.measureIfFits(Integer.parseInt(size),
+                MazeType.valueOf(type), seed, Runtime.getRuntime().maxMemory());
+        if (result.passed()) {
+          MazeStress.check(result, budgets, past, tolerance);
+        }
+        passed = passed && result.passed();
+        String line = result.toLine(when, label);
+        System.out.println(line);
+        lines.add(line);
+      }
+    }
+    if (history != null) {
+      Files.write(history, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+              StandardOpenOption.APPEND);
+    }
+    if (!passed) {
+      System.exit(1);
+    }
+  }
+
+  // measures a maze as measure does if one of its size fits in the given bytes of heap,
+  // otherwise a result that failed for needing more, without making anything
+  static StressResult measureIfFits(int size, MazeType type, long seed, long maxHeap) {
+    long needed = (long) size * size * HEAP_BYTES_PER_CELL;
+    if (needed <= maxHeap) {
+      return MazeStress.measure(size, type, seed);
+    }
+    StressResult result = new StressResult(size, type, 0, 0, 0, 0);
+    result.failures.add(String.format(Locale.ROOT,
+            "needs about %d MB of heap, only %d MB available (run with a bigger -Xmx)",
+            needed / 1000000, maxHeap / 1000000));
+    return result;
+  }
+
+  // makes a size by size maze of the given type from the given seed, solves it with bfs and
+  // dfs and validates it, timing each and recording the most heap used
+  static StressResult measure(int size, MazeType type, long seed) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Illegal size for stress test");
+    }
+    // starts from as empty a heap as we can, so the peak is this maze's
+    System.gc();
+    List<MemoryPoolMXBean> pools = MazeStress.heapPools();
+    for (MemoryPoolMXBean pool : pools) {
+      pool.resetPeakUsage();
+    }
+    long began = System.nanoTime();
+    // the cells are never drawn, so their size doesn't matter
+    ArrayList<ArrayList<Cell>> grid = new MazeGenerator(new Random(seed), 1)
+            .generate(size, size, type);
+    long generated = System.nanoTime();
+    Cell start = grid.get(0).get(0);
+    Cell end = grid.get(size - 1).get(size - 1);
+    int solved = new Search(new IntQueue(), grid, start, end).solution.size()
+            + new Search(new IntStack(), grid, start, end).solution.size();
+    long searched = System.nanoTime();
+    ValidationReport report = MazeValidator.SHARED.validate(grid);
+    long validated = System.nanoTime();
+    long peak = 0;
+    for (MemoryPoolMXBean pool : pools) {
+      peak += pool.getPeakUsage().getUsed();
+    }
+    StressResult result = new StressResult(size, type, generated - began, searched - generated,
+            validated - searched, peak);
+    if (!report.isPerfect()) {
+      result.failures.add("maze is not perfect: " + report);
+    }
+    if (solved == 0 && size > 1) {
+      result.failures.add("no solution found");
+    }
+    return result;
+  }
+
+  // the memory pools the heap is made of
+  private static List<MemoryPoolMXBean> heapPools() {
+    ArrayList<MemoryPoolMXBean> heap = new ArrayList<MemoryPoolMXBean>();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        heap.add(pool);
+      }
+    }
+    return heap;
+  }
+
+  // EFFECT: adds a failure to the result for going over its budget (the default one if none
+  // of the given budgets covers it), or for being more than tolerance times slower than the
+  // median of its latest runs in the history
+  static void check(StressResult result, List<StressBudget> budgets,
+                    HashMap<String, ArrayList<Double>> history, double tolerance) {
+    double cells = (double) result.size * result.size;
+    StressBudget budget = new StressBudget(result.size, null,
+            BASE_MILLIS + cells * MILLIS_PER_CELL, BASE_HEAP_MB + cells * MB_PER_CELL);
+    for (StressBudget b : budgets) {
+      if (b.covers(result.size, result.type)) {
+        budget = b;
+      }
+    }
+    if (result.totalMillis() > budget.maxMillis) {
+      result.failures.add(String.format(Locale.ROOT, "took %.1f ms, over the budget of %.1f ms",
+              result.totalMillis(), budget.maxMillis));
+    }
+    if (result.peakHeapMb() > budget.maxHeapMb) {
+      result.failures.add(String.format(Locale.ROOT,
+              "used %.1f MB of heap, over the budget of %.1f MB", result.peakHeapMb(),
+              budget.maxHeapMb));
+    }
+    ArrayList<Double> runs = history.get(result.key());
+    if (runs != null && !runs.isEmpty()) {
+      List<Double> latest = new ArrayList<Double>(
+              runs.subList(Math.max(0, runs.size() - HISTORY_RUNS), runs.size()));
+      Collections.sort(latest);
+      double median = latest.get(latest.size() / 2);
+      if (result.totalMillis() > median * tolerance) {
+        result.failures.add(String.format(Locale.ROOT,
+                "took %.1f ms, %.2fx the median of the last %d runs", result.totalMillis(),
+                result.totalMillis() / median, latest.size()));
+      }
+    }
+  }
+
+  // the budgets in the given lines of a budgets file, skipping blank lines and # comments
+  static ArrayList<StressBudget> readBudgets(List<String> lines) {
+    ArrayList<StressBudget> budgets = new ArrayList<StressBudget>();
+    for (String line : lines) {
+      if (line.trim().isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.trim().split("\\s+");
+      if (fields.length != 4) {
+        throw new IllegalArgumentException("Illegal budget line: " + line);
+      }
+      budgets.add(new StressBudget(Integer.parseInt(fields[0]),
+              fields[1].equals("*") ? null : MazeType.valueOf(fields[1]),
+              Double.parseDouble(fields[2]), Double.parseDouble(fields[3])));
+    }
+    return budgets;
+  }
+
+  // the total milliseconds of every passing run in the given lines of a history file, oldest
+  // first, by size and type
+  // failed runs are left out, so one bad change doesn't make the next look fine
+  static HashMap<String, ArrayList<Double>> readHistory(List<String> lines) {
+    HashMap<String, ArrayList<Double>> runs = new HashMap<String, ArrayList<Double>>();
+    for (String line : lines) {
+      String[] fields = line.split("\t");
+      if (fields.length < 10 || fields[0].equals("when") || !fields[9].equals("pass")) {
+        continue;
+      }
+      String key = fields[2] + "\t" + fields[3];
+      if (!runs.containsKey(key)) {
+        runs.put(key, new ArrayList<Double>());
+      }
+      runs.get(key).add(Double.parseDouble(fields[7]));
+    }
+    return runs;
+  }
+}
@@ -0,0 +1,119 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// which ways are open out of each cell of a finished maze, by cell index (y * width + x)
+// made once from the maze's cells and never changed after, so any number of threads can read
+// it at the same time without locking
+// the maze it was made from can keep changing, this won't see it
+class MazeTopology {
+
+  // the directions out of a cell, in clockwise order so turning right is adding one
+  static final int UP = 0;
+  static final int RIGHT = 1;
+  static final int DOWN = 2;
+  static final int LEFT = 3;
+
+  final int height;
+  final int width;
+
+  // how far the cell index moves going each way, worked out from the width
+  private final int[] steps;
+
+  // a bit for each direction that's open out of each cell, e.g. 1 << DOWN
+  private final byte[] open;
+
+  MazeTopology(ArrayList<ArrayList<Cell>> grid) {
+    if (grid.isEmpty() || grid.get(0).isEmpty()) {
+      throw new IllegalArgumentException("Illegal grid for topology");
+    }
+    this.height = grid.size();
+    this.width = grid.get(0).size();
+    this.steps = new int[] {-this.width, 1, this.width, -1};
+    this.open = new byte[this.height * this.width];
+    for (ArrayList<Cell> row : grid) {
+      for (Cell c : row) {
+        for (Path p : c.outPaths) {
+          this.open[this.indexOf(c)] |= 1 << this.directionOf(c, p.to);
+        }
+      }
+    }
+  }
+
+  // how many cells the maze has
+  int cells() {
+    return this.open.length;
+  }
+
+  // the index of the given cell
+  int indexOf(Cell c) {
+    return c.pos.y * this.width + c.pos.x;
+  }
+
+  // the direction the given neighbor is in from the given cell
+  private int directionOf(Cell from, Cell to) {
+    String dir = from.direction(to.pos);
+    if (dir.equals("u")) {
+      return UP;
+    } else if (dir.equals("r")) {
+      return RIGHT;
+    } else if (dir.equals("d")) {
+      return DOWN;
+    } else {
+      return LEFT;
+    }
+  }
+
+  // can we go the given way out of the given cell
+  boolean isOpen(int cell, int dir) {
+    return (this.open[cell] & (1 << dir)) != 0;
+  }
+
+  // how many ways are open out of the given cell
+  int degree(int cell) {
+    return Integer.bitCount(this.open[cell]);
+  }
+
+  // the cell the given way out of the given cell, which must be open
+  int neighbor(int cell, int dir) {
+    return cell + this.steps[dir];
+  }
+
+  // is there a cell the given way out of the given cell, open or not
+  private boolean hasNeighbor(int cell, int dir) {
+    if (dir == UP) {
+      return cell >= this.width;
+    } else if (dir == RIGHT) {
+      return cell % this.width < this.width - 1;
+    } else if (dir == DOWN) {
+      return cell + this.width < this.cells();
+    } else {
+      return cell % this.width > 0;
+    }
+  }
+
+  // the cell to go to next from each cell to reach the given one the shortest way, by cell
+  // index, found with one breadth first search out from it
+  // the given cell leads to itself, and cells that can't reach it lead to -1
+  int[] towards(int target) {
+    int[] next = new int[this.cells()];
+    Arrays.fill(next, -1);
+    next[target] = target;
+    IntQueue worklist = new IntQueue();
+    worklist.add(target);
+    while (!worklist.isEmpty()) {
+      int cell = worklist.remove();
+      for (int dir = UP; dir <= LEFT; dir += 1) {
+        // the neighbor that comes to this cell by going dir, if that way is open
+        int back = (dir + 2) % 4;
+        if (this.hasNeighbor(cell, back)) {
+          int from = this.neighbor(cell, back);
+          if (next[from] == -1 && this.isOpen(from, dir)) {
+            next[from] = cell;
+            worklist.add(from);
+          }
+        }
+      }
+    }
+    return next;
+  }
+}
@@ -0,0 +1,258 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// what a MazeValidator found in a maze, or in some rows of one
+class ValidationReport {
+
+  // how many cells were checked
+  final long cells;
+
+  // how many ways between neighboring cells are open, each counted once
+  final long openPassages;
+
+  // how many open passages joined cells that were already joined, each one makes a loop
+  final long cycles;
+
+  // how many cells' walls or paths don't agree with each other
+  final long inconsistencies;
+
+  // what the first inconsistency was, or "" if there weren't any
+  final String firstProblem;
+
+  ValidationReport(long cells, long openPassages, long cycles, long inconsistencies,
+                   String firstProblem) {
+    this.cells = cells;
+    this.openPassages = openPassages;
+    this.cycles = cycles;
+    this.inconsistencies = inconsistencies;
+    this.firstProblem = firstProblem;
+  }
+
+  // how many separate pieces the maze is in, if this is the report of a whole maze
+  // every passage that didn't make a loop joined two pieces into one
+  long components() {
+    return this.cells - (this.openPassages - this.cycles);
+  }
+
+  // is the maze connected and without loops, with every wall agreeing with the paths
+  boolean isPerfect() {
+    return this.inconsistencies == 0 && this.cycles == 0 && this.openPassages == this.cells - 1;
+  }
+
+  // this report added to another one, for rows of the same maze
+  ValidationReport plus(ValidationReport other) {
+    String problem = this.firstProblem.isEmpty() ? other.firstProblem : this.firstProblem;
+    return new ValidationReport(this.cells + other.cells, this.openPassages + other.openPassages,
+            this.cycles + other.cycles, this.inconsistencies + other.inconsistencies, problem);
+  }
+
+  // e.g. "600 cells, 599 passages, 0 cycles, 1 pieces, 0 inconsistencies"
+  public String toString() {
+    return this.cells + " cells, " + this.openPassages + " passages, " + this.cycles
+            + " cycles, " + this.components() + " pieces, " + this.inconsistencies
+            + " inconsistencies" + (this.firstProblem.isEmpty() ? "" : " (" + this.firstProblem
+            + ")");
+  }
+}
+
+// checks some rows of a maze, joining the cells of each open passage in the shared
+// representatives and checking every cell's walls agree with its paths
+class ValidationJob implements Callable<ValidationReport> {
+  private final ArrayList<ArrayList<Cell>> grid;
+  private final AtomicIntegerArray representatives;
+  private final int fromRow;
+  private final int toRow;
+
+  ValidationJob(ArrayList<ArrayList<Cell>> grid, AtomicIntegerArray representatives,
+                int fromRow, int toRow) {
+    this.grid = grid;
+    this.representatives = representatives;
+    this.fromRow = fromRow;
+    this.toRow = toRow;
+  }
+
+  // checks the rows from fromRow up to (not including) toRow
+  public ValidationReport call() {
+    int height = this.grid.size();
+    int width = this.grid.get(0).size();
+    long passages = 0;
+    long cycles = 0;
+    long inconsistencies = 0;
+    String problem = "";
+    for (int y = this.fromRow; y < this.toRow; y += 1) {
+      for (int x = 0; x < width; x += 1) {
+        Cell c = this.grid.get(y).get(x);
+        String found = this.problemWith(c, x, y, width, height);
+        if (!found.isEmpty()) {
+          inconsistencies += 1;
+          if (problem.isEmpty()) {
+            problem = found;
+          }
+        }
+        // each passage is counted from the cell on its left or above it
+        if (x + 1 < width && c.canMove(this.grid.get(y).get(x + 1))) {
+          passages += 1;
+          cycles += this.union(y * width + x, y * width + x + 1) ? 0 : 1;
+        }
+        if (y + 1 < height && c.canMove(this.grid.get(y + 1).get(x))) {
+          passages += 1;
+          cycles += this.union(y * width + x, (y + 1) * width + x) ? 0 : 1;
+        }
+      }
+    }
+    return new ValidationReport((long) (this.toRow - this.fromRow) * width, passages, cycles,
+            inconsistencies, problem);
+  }
+
+  // what's wrong with the given cell at (x, y), or "" if nothing is: its paths must start at
+  // it and go to a neighbor in the grid, once, with a path back, and its top and left walls
+  // must be down exactly when there's a path through them
+  private String problemWith(Cell c, int x, int y, int width, int height) {
+    if (c.pos.x != x || c.pos.y != y) {
+      return "cell at " + x + "," + y + " thinks it's somewhere else";
+    }
+    for (int i = 0; i < c.outPaths.size(); i += 1) {
+      Path p = c.outPaths.get(i);
+      int toX = p.to.pos.x;
+      int toY = p.to.pos.y;
+      // cell equality is intentional
+      if (!p.from.equals(c) || toX < 0 || toX >= width || toY < 0 || toY >= height
+              || !this.grid.get(toY).get(toX).equals(p.to)
+              || Math.abs(toX - x) + Math.abs(toY - y) != 1) {
+        return "cell at " + x + "," + y + " has a path that isn't to a neighbor";
+      }
+      if (!p.to.canMove(c)) {
+        return "cell at " + x + "," + y + " has a path with no way back";
+      }
+      for (int j = 0; j < i; j += 1) {
+        if (c.outPaths.get(j).to.equals(p.to)) {
+          return "cell at " + x + "," + y + " has two paths to the same neighbor";
+        }
+      }
+    }
+    boolean topOpen = y > 0 && c.canMove(this.grid.get(y - 1).get(x));
+    boolean leftOpen = x > 0 && c.canMove(this.grid.get(y).get(x - 1));
+    if (c.showTop == topOpen) {
+      return "cell at " + x + "," + y + " shows its top wall wrong";
+    }
+    if (c.showLeft == leftOpen) {
+      return "cell at " + x + "," + y + " shows its left wall wrong";
+    }
+    return "";
+  }
+
+  // returns whether the two cells were in different pieces
+  // EFFECT: joins their pieces, by pointing the bigger representative at the smaller one so
+  // threads joining at the same time can never make a loop of representatives
+  private boolean union(int a, int b) {
+    while (true) {
+      int rootA = this.find(a);
+      int rootB = this.find(b);
+      if (rootA == rootB) {
+        return false;
+      }
+      int big = Math.max(rootA, rootB);
+      int small = Math.min(rootA, rootB);
+      // fails if another thread joined big to something first, then we look again
+      if (this.representatives.compareAndSet(big, big, small)) {
+        return true;
+      }
+    }
+  }
+
+  // the representative of the given cell
+  // EFFECT: points cells on the way at their grandparents, if no other thread has moved them
+  private int find(int cell) {
+    int parent = this.representatives.get(cell);
+    while (parent != cell) {
+      int grandparent = this.representatives.get(parent);
+      this.representatives.compareAndSet(cell, parent, grandparent);
+      cell = parent;
+      parent = grandparent;
+    }
+    return cell;
+  }
+}
+
+// checks that a maze is perfect: connected, without loops, with exactly one fewer open passage
+// than it has cells, and with its walls (showTop and showLeft) agreeing with its paths
+// the rows are split between threads, which join the cells of every open passage in one
+// union find they all share without locking
+// runs after every maze is made when assertions are on (java -ea), see check
+class MazeValidator {
+
+  // the validator the mazes are checked with when assertions are on
+  static final MazeValidator SHARED =
+          new MazeValidator(Runtime.getRuntime().availableProcessors());
+
+  // grids with fewer cells than this are checked on the calling thread, which is faster
+  private static final int PARALLEL_THRESHOLD = 65536;
+
+  private final int threads;
+
+  // the threads the rows are checked on
+  // not final because they're only started when the first big maze is checked
+  private ExecutorService workers;
+
+  MazeValidator(int threads) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Illegal threads for validator");
+    }
+    this.threads = threads;
+    this.workers = null;
+  }
+
+  // returns true if the given maze is perfect, for use in an assert
+  // throws a RuntimeException saying what's wrong with it if it isn't
+  static boolean check(ArrayList<ArrayList<Cell>> grid) {
+    ValidationReport report = SHARED.validate(grid);
+    if (!report.isPerfect()) {
+      throw new RuntimeException("maze is not perfect: " + report);
+    }
+    return true;
+  }
+
+  // what's right and wrong with the given maze
+  ValidationReport validate(ArrayList<ArrayList<Cell>> grid) {
+    int height = grid.size();
+    int width = grid.get(0).size();
+    AtomicIntegerArray representatives = new AtomicIntegerArray(height * width);
+    for (int i = 0; i < height * width; i += 1) {
+      representatives.set(i, i);
+    }
+    if (this.threads == 1 || (long) height * width < PARALLEL_THRESHOLD) {
+      return new ValidationJob(grid, representatives, 0, height).call();
+    }
+    // a few pieces per thread, so one slow piece doesn't hold the others up
+    int pieces = Math.min(height, this.threads * 4);
+    List<ValidationJob> jobs = new ArrayList<ValidationJob>();
+    for (int i = 0; i < pieces; i += 1) {
+      jobs.add(new ValidationJob(grid, representatives, height * i / pieces,
+              height * (i + 1) / pieces));
+    }
+    synchronized (this) {
+      if (this.workers == null) {
+        this.workers = Executors.newFixedThreadPool(this.threads,
+                new DaemonThreads("maze-validator"));
+      }
+    }
+    try {
+      ValidationReport total = new ValidationReport(0, 0, 0, 0, "");
+      for (Future<ValidationReport> f : this.workers.invokeAll(jobs)) {
+        total = total.plus(f.get());
+      }
+      return total;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("interrupted while validating a maze", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("validating a maze failed", e.getCause());
+    }
+  }
+}
@@ -0,0 +1,517 @@
+import javalib.impworld.*;
+import javalib.worldimages.*;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+// one square piece of a MazeWorld: which ways are open out of each of its cells
+// a perfect maze inside, with one door through each of its four sides into the chunks next to it
+class MazeChunk {
+
+  // where this chunk is among the others, in chunks, and its side length in cells
+  final int chunkX;
+  final int chunkY;
+  final int size;
+
+  // a bit for each direction that's open out of each cell, e.g. 1 << MazeTopology.DOWN, by
+  // the cell's index in the chunk (y * size + x)
+  private final byte[] open;
+
+  MazeChunk(int chunkX, int chunkY, int size, byte[] open) {
+    if (open.length != size * size) {
+      throw new IllegalArgumentException("Illegal cells for chunk");
+    }
+    this.chunkX = chunkX;
+    this.chunkY = chunkY;
+    this.size = size;
+    this.open = open;
+  }
+
+  // is the way out of the cell at (x, y) in this chunk in the given direction open
+  boolean isOpen(int x, int y, int dir) {
+    return (this.open[y * this.size + x] & (1 << dir)) != 0;
+  }
+
+  // how many bytes this chunk's cells take
+  int bytes() {
+    return this.open.length;
+  }
+}
+
+// a maze that goes on as far as anyone cares to go, in every direction, split into square
+// chunks that are only made when something looks at them
+// each chunk is made from the seed and where it is, so it comes out the same every time it's
+// made, and it can be forgotten and made again later
+// the door between two chunks is also picked from the seed and where the chunks are, so both
+// chunks agree on it without looking at each other, and every chunk can reach every other
+// the chunks used most recently are kept, up to a number of bytes, so the memory used grows
+// with the part of the world in use rather than the size of the world
+// cells are at (x, y) for any ints, except about a chunk at each end
+// not safe to use from more than one thread
+class MazeWorld {
+
+  final long seed;
+  final int chunkSize;
+
+  // how many chunks there are on each side of the middle, in each direction, so every cell's
+  // coordinates fit in an int
+  private final int limit;
+
+  // the most bytes of chunks kept at once
+  private final long cacheBytes;
+
+  // a chunk's cells and the ways between them, which are the same for every chunk
+  private final MazeGraph layout;
+
+  // the chunks kept, by packed position, the one used longest ago first
+  private final LinkedHashMap<Long, MazeChunk> chunks;
+
+  // the chunk used last, looked at before the others since a cell's neighbors are usually in
+  // the same chunk
+  // not final because it changes as other chunks are used
+  private MazeChunk recent;
+
+  // how many bytes the chunks kept take, how many chunks have been made, and how many
+  // have been forgotten
+  // not final because they change as chunks are made and forgotten
+  private long cachedBytes;
+  private int generated;
+  private int evicted;
+
+  MazeWorld(long seed, int chunkSize, long cacheBytes) {
+    if (chunkSize <= 0 || chunkSize > 4096) {
+      throw new IllegalArgumentException("Illegal chunk size for world");
+    }
+    if (cacheBytes < (long) chunkSize * chunkSize) {
+      throw new IllegalArgumentException("Illegal cache size for world");
+    }
+    this.seed = seed;
+    this.chunkSize = chunkSize;
+    this.limit = Integer.MAX_VALUE / chunkSize;
+    this.cacheBytes = cacheBytes;
+    this.layout = MazeGraph.rectangle(chunkSize, chunkSize);
+    this.chunks = new LinkedHashMap<Long, MazeChunk>(16, 0.75f, true);
+    this.recent = null;
+    this.cachedBytes = 0;
+    this.generated = 0;
+    this.evicted = 0;
+  }
+
+  // how many chunks are kept now
+  int cachedChunks() {
+    return this.chunks.size();
+  }
+
+  // how many bytes the chunks kept now take
+  long cachedBytes() {
+    return this.cachedBytes;
+  }
+
+  // the most bytes of chunks kept at once, a byte for each cell
+  long maxCachedBytes() {
+    return this.cacheBytes;
+  }
+
+  // how many chunks have been made, counting ones made again after being forgotten
+  int generated() {
+    return this.generated;
+  }
+
+  // how many chunks have been forgotten to make room for others
+  int evicted() {
+    return this.evicted;
+  }
+
+  // is there a cell at (x, y)
+  boolean contains(int x, int y) {
+    return this.containsChunk(Math.floorDiv(x, this.chunkSize),
+            Math.floorDiv(y, this.chunkSize));
+  }
+
+  // is there a chunk at (chunkX, chunkY)
+  private boolean containsChunk(int chunkX, int chunkY) {
+    return chunkX >= -this.limit && chunkX < this.limit && chunkY >= -this.limit
+            && chunkY < this.limit;
+  }
+
+  // is the way out of the cell at (x, y) in the given direction (see MazeTopology) open
+  // EFFECT: makes the cell's chunk if it isn't kept, and remembers it was used
+  boolean isOpen(int x, int y, int dir) {
+    MazeChunk chunk = this.chunkAt(Math.floorDiv(x, this.chunkSize),
+            Math.floorDiv(y, this.chunkSize));
+    return chunk.isOpen(Math.floorMod(x, this.chunkSize), Math.floorMod(y, this.chunkSize),
+            dir);
+  }
+
+  // the chunk at (chunkX, chunkY)
+  // EFFECT: makes it if it isn't kept, forgetting the ones used longest ago if there isn't
+  // room for it, and remembers it was used
+  MazeChunk chunkAt(int chunkX, int chunkY) {
+    if (this.recent != null && this.recent.chunkX == chunkX && this.recent.chunkY == chunkY) {
+      return this.recent;
+    }
+    if (!this.containsChunk(chunkX, chunkY)) {
+      throw new IllegalArgumentException("Illegal chunk for world");
+    }
+    Long key = ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    MazeChunk chunk = this.chunks.get(key);
+    if (chunk == null) {
+      chunk = this.generate(chunkX, chunkY);
+      this.generated += 1;
+      this.chunks.put(key, chunk);
+      this.cachedBytes += chunk.bytes();
+      // never forgets the chunk just made, so there's always one
+      Iterator<MazeChunk> oldest = this.chunks.values().iterator();
+      while (this.cachedBytes > this.cacheBytes && this.chunks.size() > 1) {
+        MazeChunk forgotten = oldest.next();
+        oldest.remove();
+        this.cachedBytes -= forgotten.bytes();
+        this.evicted += 1;
+      }
+    }
+    this.recent = chunk;
+    return chunk;
+  }
+
+  // the chunk at (chunkX, chunkY), made from the seed and where it is
+  MazeChunk generate(int chunkX, int chunkY) {
+    MazePhase phase = new MazePhase("chunk");
+    int size = this.chunkSize;
+    MazeGenerator generator = new MazeGenerator(
+            new Random(MazeWorld.mix(this.seed, chunkX, chunkY, 0)), 1);
+    BitSet tree = generator.carve(this.layout);
+    byte[] open = new byte[size * size];
+    for (int e = tree.nextSetBit(0); e >= 0; e = tree.nextSetBit(e + 1)) {
+      int from = this.layout.from(e);
+      int to = this.layout.to(e);
+      // a rectangle's edges go right or down from their first end
+      boolean isRight = to == from + 1;
+      open[from] |= 1 << (isRight ? MazeTopology.RIGHT : MazeTopology.DOWN);
+      open[to] |= 1 << (isRight ? MazeTopology.LEFT : MazeTopology.UP);
+    }
+    // the door through each side, which the chunk on the other side picks the same way
+    if (chunkY > -this.limit) {
+      open[this.door(chunkX, chunkY - 1, 2)] |= 1 << MazeTopology.UP;
+    }
+    if (chunkX + 1 < this.limit) {
+      open[this.door(chunkX, chunkY, 1) * size + size - 1] |= 1 << MazeTopology.RIGHT;
+    }
+    if (chunkY + 1 < this.limit) {
+      open[(size - 1) * size + this.door(chunkX, chunkY, 2)] |= 1 << MazeTopology.DOWN;
+    }
+    if (chunkX > -this.limit) {
+      open[this.door(chunkX - 1, chunkY, 1) * size] |= 1 << MazeTopology.LEFT;
+    }
+    phase.end(MazeMetrics.SHARED, size * size, this.layout.edges, 0, 0);
+    return new MazeChunk(chunkX, chunkY, size, open);
+  }
+
+  // where along its side the door out of the chunk at (chunkX, chunkY) is, on its right side
+  // (side 1) or its bottom (side 2)
+  private int door(int chunkX, int chunkY, int side) {
+    return (int) Math.floorMod(MazeWorld.mix(this.seed, chunkX, chunkY, side),
+            (long) this.chunkSize);
+  }
+
+  // a well mixed number made from the seed, a position and which number it is for, so nearby
+  // positions get unrelated numbers
+  static long mix(long seed, int x, int y, int which) {
+    long z = seed + 0x9E3779B97F4A7C15L * (((long) x << 32) ^ (y & 0xFFFFFFFFL))
+            + 0xD1B54A32D192ED03L * which;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
+
+// searches a MazeWorld from one cell to another, with either bfs or dfs depending on the
+// worklist, without leaving the chunks between them (the smallest rectangle of chunks holding
+// both), which always has a way through since every pair of chunks next to each other has a
+// door between them
+class WorldSearch {
+
+  // the most cells a search can cover, so its arrays stay a sensible size
+  static final long MAX_CELLS = 1 << 24;
+
+  // how many cells the search looked at
+  final int explored;
+
+  // the cells from the start to the end, both included
+  final ArrayList<Posn> solution;
+
+  WorldSearch(IIntCollection worklist, MazeWorld world, Posn start, Posn end) {
+    if (!world.contains(start.x, start.y) || !world.contains(end.x, end.y)) {
+      throw new IllegalArgumentException("Illegal start/end for search");
+    }
+    if (!WorldSearch.fits(world, start, end)) {
+      throw new IllegalArgumentException("Illegal distance for search");
+    }
+    MazePhase phase = new MazePhase("world search");
+    int size = world.chunkSize;
+    // the rectangle searched, which starts at (left, top) and is in cells (y * width + x)
+    long left = Math.floorDiv(Math.min(start.x, end.x), size) * (long) size;
+    long top = Math.floorDiv(Math.min(start.y, end.y), size) * (long) size;
+    int width = (int) (Math.floorDiv(Math.max(start.x, end.x), size) * (long) size + size - left);
+    int height = (int) (Math.floorDiv(Math.max(start.y, end.y), size) * (long) size + size
+            - top);
+    int[] cameFrom = new int[width * height];
+    boolean[] discovered = new boolean[width * height];
+    int startIndex = (int) ((start.y - top) * width + (start.x - left));
+    int endIndex = (int) ((end.y - top) * width + (end.x - left));
+    int[] steps = new int[] {-width, 1, width, -1};
+    cameFrom[startIndex] = -1;
+    discovered[startIndex] = true;
+    worklist.add(startIndex);
+    int count = 0;
+    int onWorklist = 1;
+    int peak = 1;
+    while (!worklist.isEmpty()) {
+      int next = worklist.remove();
+      onWorklist -= 1;
+      count += 1;
+      if (next == endIndex) {
+        break;
+      }
+      int x = next % width;
+      int y = next / width;
+      for (int dir = 0; dir < 4; dir += 1) {
+        // ways out of the rectangle aren't followed
+        boolean inside = (dir == MazeTopology.UP && y > 0)
+                || (dir == MazeTopology.RIGHT && x + 1 < width)
+                || (dir == MazeTopology.DOWN && y + 1 < height)
+                || (dir == MazeTopology.LEFT && x > 0);
+        int to = next + steps[dir];
+        if (inside && !discovered[to] && world.isOpen((int) (left + x), (int) (top + y), dir)) {
+          discovered[to] = true;
+          cameFrom[to] = next;
+          worklist.add(to);
+          onWorklist += 1;
+          peak = Math.max(peak, onWorklist);
+        }
+      }
+    }
+    this.explored = count;
+    this.solution = new ArrayList<Posn>();
+    for (int cur = endIndex; cur != -1; cur = cameFrom[cur]) {
+      this.solution.add(new Posn((int) (left + cur % width), (int) (top + cur / width)));
+    }
+    Collections.reverse(this.solution);
+    phase.end(MazeMetrics.SHARED, (long) width * height, 0, count, peak);
+  }
+
+  // are the chunks between the given cells few enough to search
+  static boolean fits(MazeWorld world, Posn start, Posn end) {
+    return WorldSearch.fits(world, start, end, MAX_CELLS);
+  }
+
+  // do the chunks between the given cells have at most maxCells cells, and few enough to search
+  static boolean fits(MazeWorld world, Posn start, Posn end, long maxCells) {
+    int size = world.chunkSize;
+    long columns = Math.abs(Math.floorDiv(start.x, size) - (long) Math.floorDiv(end.x, size)) + 1;
+    long rows = Math.abs(Math.floorDiv(start.y, size) - (long) Math.floorDiv(end.y, size)) + 1;
+    return columns * rows * size * size <= Math.min(maxCells, MAX_CELLS);
+  }
+}
+
+// walks a player through a MazeWorld, which goes on forever, with the screen following them
+// only the cells on screen are drawn, and only the chunks near the player are kept
+// usage: WorldExplorer [-seed 2510] [-chunk 32] [-cache 4]
+//   where the cache is in megabytes
+// the arrow keys move, "s" shows or hides the way back to where the player started, and "r"
+// goes back there
+// the way back is the shortest one when it's shown, if the chunks in between fit in the
+// cache, and follows the player's moves after that
+class WorldExplorer extends World {
+
+  // how many cells are on screen across and down, and their side length in pixels
+  static final int COLUMNS = 45;
+  static final int ROWS = 40;
+  static final int CELL_SIZE = 16;
+
+  private final MazeWorld world;
+
+  // the cells on screen, remade from the world every frame, so they never hold more than what's
+  // on screen
+  private final ArrayList<ArrayList<Cell>> screen;
+
+  // not final because the player moves
+  private int playerX;
+  private int playerY;
+
+  // the way back to where the player started, from there to the player, kept up to date a
+  // move at a time whether or not it's shown, so moving never has to search
+  private final ArrayList<Posn> route;
+
+  // how far along the route each cell on it is
+  private final HashMap<Posn, Integer> along;
+
+  // not final because the user can toggle it
+  private boolean isShowingRoute;
+
+  WorldExplorer(MazeWorld world) {
+    this.world = world;
+    this.screen = new ArrayList<ArrayList<Cell>>();
+    for (int y = 0; y < ROWS; y += 1) {
+      ArrayList<Cell> row = new ArrayList<Cell>();
+      for (int x = 0; x < COLUMNS; x += 1) {
+        row.add(new Cell(new Posn(x, y), CELL_SIZE));
+      }
+      this.screen.add(row);
+    }
+    this.playerX = 0;
+    this.playerY = 0;
+    this.route = new ArrayList<Posn>();
+    this.along = new HashMap<Posn, Integer>();
+    this.restartRoute();
+    this.isShowingRoute = false;
+  }
+
+  // where the player is
+  Posn player() {
+    return new Posn(this.playerX, this.playerY);
+  }
+
+  // the world cell shown at the given place on screen, which is centered on the player
+  Posn cellAt(int column, int row) {
+    return new Posn(this.playerX - COLUMNS / 2 + column, this.playerY - ROWS / 2 + row);
+  }
+
+  // EFFECT: moves the player, shows or hides the way back, or goes back to the start
+  public void onKeyEvent(String key) {
+    int dir = -1;
+    if (key.equals("up")) {
+      dir = MazeTopology.UP;
+    } else if (key.equals("right")) {
+      dir = MazeTopology.RIGHT;
+    } else if (key.equals("down")) {
+      dir = MazeTopology.DOWN;
+    } else if (key.equals("left")) {
+      dir = MazeTopology.LEFT;
+    } else if (key.equals("s")) {
+      this.isShowingRoute = !this.isShowingRoute;
+      if (this.isShowingRoute) {
+        this.shortenRoute();
+      }
+    } else if (key.equals("r")) {
+      this.playerX = 0;
+      this.playerY = 0;
+      this.restartRoute();
+    }
+    if (dir >= 0 && this.world.isOpen(this.playerX, this.playerY, dir)) {
+      this.playerX += dir == MazeTopology.RIGHT ? 1 : dir == MazeTopology.LEFT ? -1 : 0;
+      this.playerY += dir == MazeTopology.DOWN ? 1 : dir == MazeTopology.UP ? -1 : 0;
+      this.extendRoute(this.player());
+    }
+  }
+
+  // EFFECT: starts the way back over from where the player started, where they are now
+  private void restartRoute() {
+    this.route.clear();
+    this.along.clear();
+    this.extendRoute(new Posn(0, 0));
+  }
+
+  // EFFECT: adds the cell the player just moved to onto the way back, or cuts the way back
+  // off there if it was already on it, so the way back never goes through a cell twice
+  private void extendRoute(Posn to) {
+    Integer at = this.along.get(to);
+    if (at == null) {
+      this.along.put(to, this.route.size());
+      this.route.add(to);
+      return;
+    }
+    while (this.route.size() > at + 1) {
+      this.along.remove(this.route.remove(this.route.size() - 1));
+    }
+  }
+
+  // EFFECT: replaces the way back with the shortest one, if the chunks between the player and
+  // the start all fit in the world's cache at once
+  // a search over more chunks than are kept would make the same chunks over and over
+  private void shortenRoute() {
+    Posn home = new Posn(0, 0);
+    if (!WorldSearch.fits(this.world, home, this.player(), this.world.maxCachedBytes())) {
+      return;
+    }
+    this.route.clear();
+    this.along.clear();
+    for (Posn p : new WorldSearch(new IntQueue(), this.world, home, this.player()).solution) {
+      this.extendRoute(p);
+    }
+  }
+
+  // EFFECT: sets the walls and colors of the cells on screen from the world around the player
+  void updateScreen() {
+    for (int row = 0; row < ROWS; row += 1) {
+      for (int column = 0; column < COLUMNS; column += 1) {
+        Cell c = this.screen.get(row).get(column);
+        Posn at = this.cellAt(column, row);
+        if (!this.world.contains(at.x, at.y)) {
+          c.showTop = true;
+          c.showLeft = true;
+          c.clr = Palette.UNVISITED;
+          continue;
+        }
+        c.showTop = !this.world.isOpen(at.x, at.y, MazeTopology.UP);
+        c.showLeft = !this.world.isOpen(at.x, at.y, MazeTopology.LEFT);
+        if (at.x == this.playerX && at.y == this.playerY) {
+          c.clr = Palette.PLAYER;
+        } else if (at.x == 0 && at.y == 0) {
+          c.clr = Palette.START;
+        } else if (this.isShowingRoute && this.along.containsKey(at)) {
+          c.clr = Palette.SOLUTION;
+        } else {
+          c.clr = Palette.UNVISITED;
+        }
+      }
+    }
+  }
+
+  // the cell on screen at the given place
+  Cell screenCell(int column, int row) {
+    return this.screen.get(row).get(column);
+  }
+
+  // draws the cells around the player, and where they are
+  public WorldScene makeScene() {
+    this.updateScreen();
+    WorldScene scene = new WorldScene(COLUMNS * CELL_SIZE, ROWS * CELL_SIZE + 40);
+    for (ArrayList<Cell> row : this.screen) {
+      for (Cell c : row) {
+        scene.placeImageXY(c.renderCell(CELL_SIZE), c.pos.x * CELL_SIZE + CELL_SIZE / 2,
+                c.pos.y * CELL_SIZE + CELL_SIZE / 2);
+      }
+    }
+    String where = "at " + this.playerX + ", " + this.playerY + " - " + this.world.cachedChunks()
+            + " chunks kept (" + this.world.cachedBytes() / 1024 + " KB), "
+            + this.world.generated() + " made";
+    scene.placeImageXY(new TextImage(where, 12, Color.DARK_GRAY), COLUMNS * CELL_SIZE / 2,
+            ROWS * CELL_SIZE + 20);
+    return scene;
+  }
+
+  public static void main(String[] args) {
+    long seed = 2510;
+    int chunk = 32;
+    long cache = 4;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (args[i].equals("-seed")) {
+        seed = Long.parseLong(args[i + 1]);
+      } else if (args[i].equals("-chunk")) {
+        chunk = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("-cache")) {
+        cache = Long.parseLong(args[i + 1]);
+      } else {
+        throw new IllegalArgumentException("Illegal option for world: " + args[i]);
+      }
+    }
+    new WorldExplorer(new MazeWorld(seed, chunk, cache * 1024 * 1024))
+            .bigBang(COLUMNS * CELL_SIZE, ROWS * CELL_SIZE + 40, 0.05);
+  }
+}
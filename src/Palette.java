@@ -0,0 +1,60 @@
+import java.awt.Color;
+
+// the fixed set of colors a cell can be drawn in
+// a cell stores a one byte index into this palette instead of its own Color, so coloring a
+// cell never allocates and every cell with the same color shares one Color object
+class Palette {
+
+  // a cell nobody has visited yet
+  static final byte UNVISITED = 0;
+  // the start and end of the maze
+  static final byte START = 1;
+  static final byte END = 2;
+  // the player's current cell
+  static final byte PLAYER = 3;
+  // a cell a search or the player has visited
+  static final byte EXPLORED = 4;
+  // a cell on the solution
+  static final byte SOLUTION = 5;
+
+  // the rest of the palette is a gradient from blue (close) to red (far)
+  private static final int GRADIENT_START = 6;
+  private static final int GRADIENT_STEPS = 256 - GRADIENT_START;
+
+  // the color of each index, and the same as a packed rgb int for painting pixels
+  private static final Color[] COLORS = new Color[256];
+  private static final int[] RGB = new int[256];
+
+  static {
+    COLORS[UNVISITED] = Color.LIGHT_GRAY;
+    COLORS[START] = new Color(0, 100, 0);
+    COLORS[END] = new Color(128, 0, 128);
+    COLORS[PLAYER] = new Color(0, 255, 0);
+    COLORS[EXPLORED] = new Color(176, 224, 230);
+    COLORS[SOLUTION] = new Color(0, 51, 102);
+    for (int step = 0; step < GRADIENT_STEPS; step += 1) {
+      int red = step * 255 / (GRADIENT_STEPS - 1);
+      COLORS[GRADIENT_START + step] = new Color(red, 0, 255 - red);
+    }
+    for (int i = 0; i < 256; i += 1) {
+      RGB[i] = COLORS[i].getRGB();
+    }
+  }
+
+  // the color at the given index
+  static Color color(byte index) {
+    return COLORS[index & 0xFF];
+  }
+
+  // the color at the given index as a packed rgb int
+  static int rgb(byte index) {
+    return RGB[index & 0xFF];
+  }
+
+  // the index of the gradient color with about the given amount of red (0 - 255), and the
+  // rest blue
+  static byte gradient(int red) {
+    int clamped = Math.max(0, Math.min(255, red));
+    return (byte) (GRADIENT_START + clamped * (GRADIENT_STEPS - 1) / 255);
+  }
+}
@@ -7,7 +7,13 @@ class Path implements Comparable<Path> {
   final Cell from;
   final Cell to;
 
-  private final int weight;
+  // not final because a maze remade in place gives its paths new weights
+  private int weight;
+
+  // the path going the other way, made the first time this path's wall is removed and added
+  // again every time after, so remaking a maze in place doesn't make new paths
+  // not final because it is only made when it's first needed
+  private Path reverse;
 
   Path(Cell from, Cell to, int weight) {
     this.from = from;
@@ -25,6 +31,11 @@ class Path implements Comparable<Path> {
     return this.weight - o.weight;
   }
 
+  // EFFECT: gives this path a new weight, for a maze being remade in place
+  void reweigh(int weight) {
+    this.weight = weight;
+  }
+
   // (We start with a grid of cells with no connections, and as we remove a wall between two cells,
   // we add connections between those cells)
 
@@ -36,7 +47,10 @@ class Path implements Comparable<Path> {
     // connect cells to each other
     from.addPath(this);
     // and allow paths both ways between two cells
-    to.addPath(new Path(to, from));
+    if (this.reverse == null) {
+      this.reverse = new Path(to, from);
+    }
+    to.addPath(this.reverse);
     if (dir.equals("u")) {
       from.showTop = false;
     } else if (dir.equals("d")) {
@@ -47,5 +61,12 @@ class Path implements Comparable<Path> {
       to.showLeft = false;
     }
   }
-}
 
+  // removes a wall with this path and records both cells as needing to be redrawn
+  // EFFECT: adds the appropriate connections between cells and marks them dirty
+  void removeWall(DirtyCells dirty) {
+    this.removeWall();
+    dirty.mark(this.from);
+    dirty.mark(this.to);
+  }
+}
@@ -0,0 +1,125 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+// writes a PNG image one row of pixels at a time, so an image far bigger than memory can be
+// saved: rows are compressed as they arrive and flushed out in chunks of bounded size
+class PngStripWriter {
+
+  private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+
+  // compressed bytes are written out as a chunk once this many have built up
+  private static final int CHUNK_SIZE = 1 << 16;
+
+  // where the finished png goes
+  private final OutputStream out;
+
+  // width and height of the image in pixels
+  private final int width;
+  private final int height;
+
+  // compressed image data waiting to be written out as a chunk
+  private final ByteArrayOutputStream pending;
+
+  // compresses rows into pending
+  private final DeflaterOutputStream deflater;
+
+  // one row of pixels as the png expects it: a filter byte, then red, green, blue per pixel
+  private final byte[] rowBytes;
+
+  // not final because it counts up as rows are written
+  private int rowsWritten;
+
+  // EFFECT: writes the start of a png of the given size to out
+  PngStripWriter(OutputStream out, int width, int height) throws IOException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Illegal size for image");
+    }
+    this.out = out;
+    this.width = width;
+    this.height = height;
+    this.pending = new ByteArrayOutputStream(CHUNK_SIZE * 2);
+    this.deflater = new DeflaterOutputStream(this.pending, new Deflater(Deflater.BEST_SPEED),
+            CHUNK_SIZE);
+    this.rowBytes = new byte[1 + width * 3];
+    this.rowsWritten = 0;
+
+    this.out.write(SIGNATURE);
+    byte[] header = new byte[13];
+    this.putInt(header, 0, width);
+    this.putInt(header, 4, height);
+    header[8] = 8; // bits per channel
+    header[9] = 2; // truecolor rgb
+    // header[10 - 12] stay 0: deflate compression, adaptive filtering, no interlacing
+    this.writeChunk("IHDR", header, header.length);
+  }
+
+  // EFFECT: writes the next row of the image from width packed rgb ints in pixels, starting
+  // at offset
+  void writeRow(int[] pixels, int offset) throws IOException {
+    if (this.rowsWritten == this.height) {
+      throw new IllegalStateException("every row of the image is already written");
+    }
+    // rowBytes[0] stays 0, meaning this row is not filtered
+    for (int x = 0; x < this.width; x += 1) {
+      int rgb = pixels[offset + x];
+      this.rowBytes[1 + x * 3] = (byte) (rgb >> 16);
+      this.rowBytes[2 + x * 3] = (byte) (rgb >> 8);
+      this.rowBytes[3 + x * 3] = (byte) rgb;
+    }
+    this.deflater.write(this.rowBytes);
+    this.rowsWritten += 1;
+    if (this.pending.size() >= CHUNK_SIZE) {
+      this.flushData();
+    }
+  }
+
+  // EFFECT: writes the rest of the compressed rows and the end of the png
+  void finish() throws IOException {
+    if (this.rowsWritten != this.height) {
+      throw new IllegalStateException("only " + this.rowsWritten + " of " + this.height
+              + " rows were written");
+    }
+    this.deflater.finish();
+    this.flushData();
+    this.writeChunk("IEND", new byte[0], 0);
+    this.out.flush();
+  }
+
+  // EFFECT: writes the compressed data built up so far as one chunk
+  private void flushData() throws IOException {
+    if (this.pending.size() > 0) {
+      this.writeChunk("IDAT", this.pending.toByteArray(), this.pending.size());
+      this.pending.reset();
+    }
+  }
+
+  // EFFECT: writes a chunk of the given type holding the first length bytes of data
+  private void writeChunk(String type, byte[] data, int length) throws IOException {
+    byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+    byte[] lengthBytes = new byte[4];
+    this.putInt(lengthBytes, 0, length);
+    CRC32 crc = new CRC32();
+    crc.update(typeBytes);
+    crc.update(data, 0, length);
+    byte[] crcBytes = new byte[4];
+    this.putInt(crcBytes, 0, (int) crc.getValue());
+
+    this.out.write(lengthBytes);
+    this.out.write(typeBytes);
+    this.out.write(data, 0, length);
+    this.out.write(crcBytes);
+  }
+
+  // EFFECT: stores value big endian in the four bytes of dest starting at offset
+  private void putInt(byte[] dest, int offset, int value) {
+    dest[offset] = (byte) (value >>> 24);
+    dest[offset + 1] = (byte) (value >>> 16);
+    dest[offset + 2] = (byte) (value >>> 8);
+    dest[offset + 3] = (byte) value;
+  }
+}
@@ -17,43 +17,60 @@ class Quicksort<T extends Comparable<T>> {
   }
 
   // EFFECT: sorts the source array according to comp, in the range of indices [loIdx, hiIdx)
+  // recurses on the smaller side and loops on the bigger one, so even a badly split list
+  // can't recurse more than log n deep
   private void quicksortHelp(int loIdx, int hiIdx) {
-    // Step 0: check for completion
-    if (loIdx >= hiIdx) {
-      return; // There are no items to sort
-    }
-    // Step 1: select pivot
-    T pivot = arr.get(loIdx);
-
-    // Step 2: partition items to lower or upper portions of the temp list
-    int pivotIdx = partition(loIdx, hiIdx, pivot);
-    // Step 3: sort both halves of the list
-    quicksortHelp(loIdx, pivotIdx);
-    quicksortHelp(pivotIdx + 1, hiIdx);
-  }
+    while (hiIdx - loIdx > 1) {
+      // Step 1: select pivot
+      // the middle of three, so a list that's already sorted (or backwards) still splits evenly
+      T pivot = this.medianOfThree(loIdx, loIdx + (hiIdx - loIdx) / 2, hiIdx - 1);
 
-  // Returns the index where the pivot element ultimately ends up in the sorted source
-  // EFFECT: Modifies the source list in the range [loIdx, hiIdx) such that
-  // all values to the left of the pivot are less than (or equal to) the pivot
-  // and all values to the right of the pivot are greater than it
-  private int partition(int loIdx, int hiIdx, T pivot) {
-    int curLo = loIdx;
-    int curHi = hiIdx - 1;
-    while (curLo < curHi) {
-      // Advance curLo until we find a too-big value (or overshoot the end of the list)
-      while (curLo < hiIdx && arr.get(curLo).compareTo(pivot) <= 0) {
-        curLo = curLo + 1;
+      // Step 2: partition items into the ones less than, equal to and greater than the pivot
+      // keeping the equal ones together means lists with lots of the same weight (path weights
+      // are between 0 and 200) don't get split one item at a time
+      int lt = loIdx;
+      int i = loIdx;
+      int gt = hiIdx;
+      while (i < gt) {
+        int cmp = arr.get(i).compareTo(pivot);
+        if (cmp < 0) {
+          swap(lt, i);
+          lt = lt + 1;
+          i = i + 1;
+        } else if (cmp > 0) {
+          gt = gt - 1;
+          swap(i, gt);
+        } else {
+          i = i + 1;
+        }
       }
-      // Advance curHi until we find a too-small value (or undershoot the start of the list)
-      while (curHi >= loIdx && arr.get(curHi).compareTo(pivot) > 0) {
-        curHi = curHi - 1;
+
+      // Step 3: sort both sides of the equal items
+      if (lt - loIdx < hiIdx - gt) {
+        quicksortHelp(loIdx, lt);
+        loIdx = gt;
+      } else {
+        quicksortHelp(gt, hiIdx);
+        hiIdx = lt;
       }
-      if (curLo < curHi) {
-        swap(curLo, curHi);
+    }
+  }
+
+  // returns the middle of the values at the three given indices
+  private T medianOfThree(int a, int b, int c) {
+    T x = this.arr.get(a);
+    T y = this.arr.get(b);
+    T z = this.arr.get(c);
+    if (x.compareTo(y) < 0) {
+      if (y.compareTo(z) < 0) {
+        return y;
       }
+      return x.compareTo(z) < 0 ? z : x;
+    }
+    if (x.compareTo(z) < 0) {
+      return x;
     }
-    swap(loIdx, curHi); // place the pivot in the remaining spot
-    return curHi;
+    return y.compareTo(z) < 0 ? z : y;
   }
 
   // EFFECT: swaps two values in the arraylist at index1 and index2
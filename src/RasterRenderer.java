@@ -0,0 +1,168 @@
+import javalib.worldimages.ComputedPixelImage;
+import javalib.worldimages.WorldImage;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// draws the visible part of a maze into one screen sized image by painting its cells straight
+// into a pixel buffer, instead of building and composing a WorldImage for every cell
+class RasterRenderer {
+
+  private static final int WALL = Color.BLACK.getRGB();
+  private static final int BORDER = Color.GRAY.getRGB();
+  private static final int BACKGROUND = Color.WHITE.getRGB();
+
+  // width and height of the screen in pixels
+  private final int screenWidth;
+  private final int screenHeight;
+
+  // the screen painted so far, one packed rgb int per pixel, row by row
+  // not private so the screen's pixels can be read back (e.g. to save them)
+  final BufferedImage buffer;
+  private final int[] pixels;
+
+  // javalib can only draw its own images, so every pixel we paint is copied into this one
+  // image, which is what gets placed on the scene
+  private final ComputedPixelImage image;
+
+  // the last color copied into the image, since neighboring pixels are usually the same
+  // not final because it changes as we copy pixels of different colors
+  private Color lastColor;
+
+  RasterRenderer(int screenWidth, int screenHeight) {
+    if (screenWidth <= 0 || screenHeight <= 0) {
+      throw new IllegalArgumentException("Illegal screen size for raster");
+    }
+    this.screenWidth = screenWidth;
+    this.screenHeight = screenHeight;
+    this.buffer = new BufferedImage(screenWidth, screenHeight, BufferedImage.TYPE_INT_RGB);
+    this.pixels = ((DataBufferInt) this.buffer.getRaster().getDataBuffer()).getData();
+    this.image = new ComputedPixelImage(screenWidth, screenHeight);
+    this.lastColor = Color.BLACK;
+  }
+
+  // returns the image of the screen with every dirty cell in view repainted
+  // the whole screen is repainted when every cell is dirty (e.g. the camera moved), which
+  // costs the same no matter how big the maze is, since only the visible cells are painted
+  // when zoomed out past a pixel per cell, pixels are read from the mipmap's blocks instead
+  // EFFECT: paints the dirty cells into the buffer and empties dirty
+  WorldImage render(ArrayList<ArrayList<Cell>> grid, DirtyCells dirty, Viewport view,
+                    MazeMipmap mipmap) {
+    int width = grid.get(0).size();
+    if (dirty.isAllDirty()) {
+      dirty.clear();
+      Arrays.fill(this.pixels, BACKGROUND);
+      if (view.level() > 0) {
+        this.paintBlocks(mipmap, view);
+      } else {
+        for (int y = view.top(); y < view.top() + view.rows(); y += 1) {
+          ArrayList<Cell> row = grid.get(y);
+          for (int x = view.left(); x < view.left() + view.columns(); x += 1) {
+            this.paintCell(row.get(x), grid, view);
+          }
+        }
+      }
+      this.copyToImage(0, 0, this.screenWidth, this.screenHeight);
+    } else {
+      while (!dirty.isEmpty()) {
+        int index = dirty.next();
+        Cell c = grid.get(index / width).get(index % width);
+        if (!view.isVisible(c.pos)) {
+          continue;
+        }
+        int x0 = view.screenX(c.pos.x);
+        int y0 = view.screenY(c.pos.y);
+        if (view.level() > 0) {
+          this.pixels[y0 * this.screenWidth + x0] = mipmap.shadeAt(view.level(),
+                  c.pos.x >> view.level(), c.pos.y >> view.level());
+          this.copyToImage(x0, y0, x0 + 1, y0 + 1);
+        } else {
+          this.paintCell(c, grid, view);
+          this.copyToImage(x0, y0, x0 + view.cellSize(), y0 + view.cellSize());
+        }
+      }
+    }
+    return this.image;
+  }
+
+  // returns the image of the screen with every dirty cell in view repainted, for views that
+  // are never zoomed out past a pixel per cell
+  // EFFECT: paints the dirty cells into the buffer and empties dirty
+  WorldImage render(ArrayList<ArrayList<Cell>> grid, DirtyCells dirty, Viewport view) {
+    return this.render(grid, dirty, view, null);
+  }
+
+  // the packed rgb color of the pixel at the given position on screen
+  int pixelAt(int x, int y) {
+    return this.pixels[y * this.screenWidth + x] & 0xFFFFFF;
+  }
+
+  // EFFECT: paints one pixel for each visible block of the mipmap's level for the view
+  private void paintBlocks(MazeMipmap mipmap, Viewport view) {
+    int level = view.level();
+    int column0 = view.left() >> level;
+    int row0 = view.top() >> level;
+    for (int y = 0; y < view.pixelHeight(); y += 1) {
+      for (int x = 0; x < view.pixelWidth(); x += 1) {
+        this.pixels[y * this.screenWidth + x] = mipmap.shadeAt(level, column0 + x, row0 + y);
+      }
+    }
+  }
+
+  // EFFECT: paints the cell's color and walls into the buffer, cut off at the screen's edge
+  private void paintCell(Cell c, ArrayList<ArrayList<Cell>> grid, Viewport view) {
+    int size = view.cellSize();
+    int x0 = view.screenX(c.pos.x);
+    int y0 = view.screenY(c.pos.y);
+    int x1 = Math.min(x0 + size, this.screenWidth);
+    int y1 = Math.min(y0 + size, this.screenHeight);
+    // the border along the right and bottom of the maze belongs to the last cells
+    boolean rightBorder = c.pos.x == grid.get(0).size() - 1 && x0 + size <= this.screenWidth;
+    boolean bottomBorder = c.pos.y == grid.size() - 1 && y0 + size <= this.screenHeight;
+    int fill = Palette.rgb(c.clr);
+    for (int y = y0; y < y1; y += 1) {
+      int start = y * this.screenWidth;
+      Arrays.fill(this.pixels, start + x0, start + x1, fill);
+      if (c.showLeft) {
+        this.pixels[start + x0] = WALL;
+      }
+      if (rightBorder) {
+        this.pixels[start + x1 - 1] = BORDER;
+      }
+    }
+    if (c.showTop) {
+      Arrays.fill(this.pixels, y0 * this.screenWidth + x0, y0 * this.screenWidth + x1, WALL);
+    }
+    if (bottomBorder) {
+      Arrays.fill(this.pixels, (y1 - 1) * this.screenWidth + x0,
+              (y1 - 1) * this.screenWidth + x1, BORDER);
+    }
+  }
+
+  // EFFECT: copies the pixels in [x0, x1) by [y0, y1) from the buffer to the image
+  private void copyToImage(int x0, int y0, int x1, int y1) {
+    for (int y = y0; y < Math.min(y1, this.screenHeight); y += 1) {
+      for (int x = x0; x < Math.min(x1, this.screenWidth); x += 1) {
+        this.image.setPixel(x, y, this.colorOf(this.pixels[y * this.screenWidth + x] | 0xFF000000));
+      }
+    }
+  }
+
+  // the color of the given packed rgb int, reusing a color object where we can
+  private Color colorOf(int rgb) {
+    if (rgb == WALL) {
+      return Color.BLACK;
+    } else if (rgb == BORDER) {
+      return Color.GRAY;
+    } else if (rgb == BACKGROUND) {
+      return Color.WHITE;
+    }
+    if (this.lastColor.getRGB() != rgb) {
+      this.lastColor = new Color(rgb);
+    }
+    return this.lastColor;
+  }
+}
@@ -1,18 +1,32 @@
 import javalib.worldimages.Posn;
 
-import java.awt.*;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.ArrayList;
 
 
 // searches a graph to find a path between the start and end cells
-class Search {
+// a search by cell index can also be run on another thread, publishing the cells it has seen
+// as it goes so they can be drawn before it's done
+class Search implements Runnable {
 
   // not private because when we're animating our maze, we need the solution which is
   // contained in cameFromEdge
   final HashMap<Posn, Path> cameFromEdge;
 
+  // exactly one of worklist and indexWorklist is used, depending on which constructor
+  // built this search
   private final ICollection<Cell> worklist;
+  private final IIntCollection indexWorklist;
+
+  // the grid being searched, so cell indices (y * width + x) can be turned back into cells
+  // null when searching with a worklist of cells
+  private final ArrayList<ArrayList<Cell>> grid;
+
+  // the index of the cell each discovered cell was reached from, or -1 for the start
+  // null when searching with a worklist of cells (cameFromEdge is used instead)
+  private final int[] cameFromIndex;
 
   // not private because when we're animating our maze, we need the visited cells
   // which are contained in seen
@@ -27,21 +41,132 @@ class Search {
   // not private so maze can see the solution
   final ArrayList<Cell> solution;
 
+  // the cells whose color this search changes are recorded here so only they are redrawn
+  // null when nothing is drawing this search's cells
+  private final DirtyCells dirty;
+
+  // the index of each cell seen, in the order they were seen, for searches run on another
+  // thread, with the number of them that can be read so far
+  // seenOrder is null for searches run when they're made
+  // published is volatile so every index before it is visible to the thread drawing them
+  private final int[] seenOrder;
+  private volatile int published;
+
+  // where every cell pushed, visited and on the solution is recorded, null if nothing is
+  // for a search in the background, it can only be read once the search is finished
+  private final ExplorationLog log;
+
+  // volatile since they are set by one thread and read by another
+  // set to stop a search running on another thread, and set once a search is done
+  private volatile boolean cancelled;
+  private volatile boolean finished;
+
   Search(ICollection<Cell> worklist, Cell start, Cell end) {
     this.cameFromEdge = new HashMap<Posn, Path>();
     this.worklist = worklist;
+    this.indexWorklist = null;
+    this.grid = null;
+    this.cameFromIndex = null;
     this.seen = new ArrayList<Cell>();
     this.seenIndex = 0;
     this.start = start;
     this.end = end;
     this.solution = new ArrayList<Cell>();
+    this.dirty = null;
+    this.seenOrder = null;
+    this.log = null;
     this.search();
+    this.finished = true;
+  }
+
+  // searches the grid using cell indices instead of cells, so the worklist holds plain ints
+  // and each cell is added to it at most once
+  Search(IIntCollection worklist, ArrayList<ArrayList<Cell>> grid, Cell start, Cell end) {
+    this(worklist, grid, start, end, null);
+  }
+
+  // searches the grid by cell index, recording every cell it recolors in dirty
+  Search(IIntCollection worklist, ArrayList<ArrayList<Cell>> grid, Cell start, Cell end,
+         DirtyCells dirty) {
+    this(worklist, grid, start, end, dirty, false);
+  }
+
+  // searches the grid by cell index, recording every cell it recolors in dirty
+  // a search in the background doesn't search until it is run, which can be on another thread
+  // the grid mustn't change until it's finished or has been cancelled and stopped
+  Search(IIntCollection worklist, ArrayList<ArrayList<Cell>> grid, Cell start, Cell end,
+         DirtyCells dirty, boolean inBackground) {
+    this(worklist, grid, start, end, dirty, inBackground, null);
+  }
+
+  // searches the grid by cell index, recording every cell it recolors in dirty and everything
+  // it does in log (which must be for a maze the size of the grid), if they aren't null
+  Search(IIntCollection worklist, ArrayList<ArrayList<Cell>> grid, Cell start, Cell end,
+         DirtyCells dirty, boolean inBackground, ExplorationLog log) {
+    if (log != null && (log.height != grid.size() || log.width != grid.get(0).size())) {
+      throw new IllegalArgumentException("Illegal log for search");
+    }
+    this.cameFromEdge = new HashMap<Posn, Path>();
+    this.worklist = null;
+    this.indexWorklist = worklist;
+    this.grid = grid;
+    this.cameFromIndex = new int[grid.size() * grid.get(0).size()];
+    this.seen = new ArrayList<Cell>();
+    this.seenIndex = 0;
+    this.start = start;
+    this.end = end;
+    this.solution = new ArrayList<Cell>();
+    this.dirty = dirty;
+    this.log = log;
+    if (inBackground) {
+      this.seenOrder = new int[this.cameFromIndex.length];
+    } else {
+      this.seenOrder = null;
+      this.searchIndices();
+      this.finished = true;
+    }
+  }
+
+  // searches the grid, for a search made to run in the background
+  // public because the thread running it calls it
+  // EFFECT: updates our search paths and visited cells, publishing them as it goes
+  public void run() {
+    if (this.seenOrder == null || this.finished) {
+      throw new IllegalStateException("search has already run");
+    }
+    try {
+      this.searchIndices();
+    } finally {
+      this.finished = true;
+    }
+  }
+
+  // EFFECT: asks a search running in the background to stop, it is finished once it has
+  void cancel() {
+    this.cancelled = true;
+  }
+
+  // is this search done (or done being cancelled), so its seen cells and solution are complete
+  boolean isFinished() {
+    return this.finished;
+  }
+
+  // how many cells this search has seen so far
+  int explored() {
+    if (this.seenOrder == null) {
+      return this.seen.size();
+    }
+    return this.published;
   }
 
   // searches with either bfs or dfs, depending on collection
   // public because we want to search in the maze
   // EFFECT: updates our search paths and visited cells
   void search() {
+    if (this.indexWorklist != null) {
+      this.searchIndices();
+      return;
+    }
     this.worklist.add(start);
     while (!this.worklist.isEmpty()) {
       Cell next = this.worklist.remove();
@@ -65,12 +190,73 @@ class Search {
     }
   }
 
+  // searches the grid by cell index with either bfs or dfs, depending on collection
+  // a cell is marked as discovered when it is added, so it is never added twice
+  // EFFECT: updates our search paths and visited cells
+  private void searchIndices() {
+    MazePhase phase = new MazePhase("search");
+    // how many cells are on the worklist now, and the most there have been
+    int onWorklist = 1;
+    int peak = 1;
+    int width = this.grid.get(0).size();
+    boolean[] discovered = new boolean[this.cameFromIndex.length];
+    int startIndex = this.indexOf(this.start, width);
+    this.cameFromIndex[startIndex] = -1;
+    discovered[startIndex] = true;
+    this.indexWorklist.add(startIndex);
+    if (this.log != null) {
+      this.log.push(startIndex);
+    }
+    while (!this.indexWorklist.isEmpty() && !this.cancelled) {
+      int nextIndex = this.indexWorklist.remove();
+      onWorklist -= 1;
+      Cell next = this.grid.get(nextIndex / width).get(nextIndex % width);
+      // we are using intentional equality
+      if (next.equals(end)) {
+        this.createSolution();
+        if (this.log != null) {
+          for (Cell c : this.solution) {
+            this.log.solution(this.indexOf(c, width));
+          }
+        }
+        break;
+      }
+      // all of next's neighboring paths
+      for (Path n : next.outPaths) {
+        int toIndex = this.indexOf(n.to, width);
+        if (!discovered[toIndex]) {
+          discovered[toIndex] = true;
+          this.cameFromIndex[toIndex] = nextIndex;
+          this.indexWorklist.add(toIndex);
+          if (this.log != null) {
+            this.log.push(toIndex);
+          }
+          onWorklist += 1;
+          peak = Math.max(peak, onWorklist);
+        }
+      }
+      this.seen.add(next);
+      if (this.log != null) {
+        this.log.visit(nextIndex);
+      }
+      if (this.seenOrder != null) {
+        this.seenOrder[this.seen.size() - 1] = nextIndex;
+        this.published = this.seen.size();
+      }
+    }
+    phase.end(MazeMetrics.SHARED, this.cameFromIndex.length, 0, this.seen.size(), peak);
+  }
+
+  // the index of the given cell in a grid with the given width
+  private int indexOf(Cell c, int width) {
+    return c.pos.y * width + c.pos.x;
+  }
+
   // EFFECT: renders each cell to show how far away from the "away cell" it is
   // public so our maze can see how far cells are from the away ycell
   void howFarFromCell(double size, Cell away) {
     double diff = 255.0 / size;
     double red = 0;
-    double blue = 255;
     ICollection<Cell> newWorklist = new Queue<>();
     ArrayList<Cell> newSeen = new ArrayList<Cell>();
     newWorklist.add(away);
@@ -85,15 +271,14 @@ class Search {
           if (!newSeen.contains(n.to)) {
             newWorklist.add(n.to);
             // casting makes sense because it's essentially getting the floor of the value
-            // and we know that red/blue is a double, so it is a safe cast
+            // and we know that red is a double, so it is a safe cast
             // we did not use Math.floor because it returns a double, thus it is useless
-            n.to.clr = new Color((int) red, 0, (int) blue);
+            this.paint(n.to, Palette.gradient((int) red));
           }
         }
         newSeen.add(next);
       }
       red = red + diff;
-      blue = blue - diff;
     }
   }
 
@@ -103,19 +288,47 @@ class Search {
     // fields of search will contain the values we want
     // updates our seen nodes with a light blue color
     for (Cell c : seenCells) {
-      c.clr = new Color(176,224,230);
+      this.paint(c, Palette.EXPLORED);
     }
   }
 
 
+  // EFFECT: Changes the color of every cell seen so far, for searches that may still be
+  // running in the background
+  void renderExplored() {
+    if (this.seenOrder == null) {
+      this.renderExploration(this.seen);
+      return;
+    }
+    int width = this.grid.get(0).size();
+    int seenSoFar = this.published;
+    for (int i = 0; i < seenSoFar; i += 1) {
+      this.paint(this.grid.get(this.seenOrder[i] / width).get(this.seenOrder[i] % width),
+              Palette.EXPLORED);
+    }
+  }
+
   // searches the first in seen and removes it, for ontick (one at a time)
   // and returns true if it's still rendering exploration
+  // a search in the background that hasn't seen the next cell yet renders nothing, but
+  // is still rendering
   // public because we need to use it in maze for ontick
   // EFFECT: removes cell from seen list
   boolean renderExplorationSingle() {
+    if (this.seenOrder != null) {
+      boolean done = this.finished;
+      if (this.seenIndex < this.published) {
+        int width = this.grid.get(0).size();
+        int index = this.seenOrder[this.seenIndex];
+        this.paint(this.grid.get(index / width).get(index % width), Palette.EXPLORED);
+        this.seenIndex += 1;
+        return true;
+      }
+      return !done;
+    }
     if (this.seenIndex < this.seen.size()) {
       Cell c = this.seen.get(this.seenIndex);
-      c.clr = new Color(176, 224, 230);
+      this.paint(c, Palette.EXPLORED);
       this.seenIndex += 1;
       return true;
     }
@@ -125,7 +338,11 @@ class Search {
   // creates the solution from our search's hashmap
   // public because we render solution during ontick
   void createSolution() {
-    this.createSolutionHelp(end);
+    if (this.cameFromIndex != null) {
+      this.createSolutionFromIndices();
+    } else {
+      this.createSolutionHelp(end);
+    }
   }
 
   // creates the solution from our search's hashmap
@@ -138,11 +355,35 @@ class Search {
     }
   }
 
+  // creates the solution by walking the came-from indices back from the end
+  // walks in a loop rather than recursing because the solution of a large maze is long
+  // EFFECT: fills the solution from the start up to (but not including) the end
+  private void createSolutionFromIndices() {
+    int width = this.grid.get(0).size();
+    int cur = this.cameFromIndex[this.indexOf(this.end, width)];
+    while (cur != -1) {
+      this.solution.add(this.grid.get(cur / width).get(cur % width));
+      cur = this.cameFromIndex[cur];
+    }
+    Collections.reverse(this.solution);
+  }
+
   // creates the solution from our search's hashmap
+  // does nothing until the search is finished, since the solution is made last
   // public because we render solution during ontick
   void renderSolution() {
+    if (!this.finished) {
+      return;
+    }
     for (Cell solCell : this.solution) {
-      solCell.clr = new Color(0, 51, 102);
+      this.paint(solCell, Palette.SOLUTION);
+    }
+  }
+
+  // EFFECT: colors the cell, recording it as dirty if its color changed
+  private void paint(Cell c, byte clr) {
+    if (c.recolor(clr) && this.dirty != null) {
+      this.dirty.mark(c);
     }
   }
 
@@ -150,8 +391,10 @@ class Search {
   // public because we need to use this to display the number of wrong moves of a search
   int numWrongMoves() {
     int numWrongMoves = 0;
+    // a set, so checking each seen cell doesn't mean walking the whole solution
+    HashSet<Cell> onSolution = new HashSet<Cell>(this.solution);
     for (Cell c : this.seen) {
-      if (!this.solution.contains(c)) {
+      if (!onSolution.contains(c)) {
         numWrongMoves += 1;
       }
     }
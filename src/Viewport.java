@@ -0,0 +1,218 @@
+import javalib.worldimages.Posn;
+
+// the part of a maze that is on screen: which cells are visible and how big they are drawn
+// the maze can be bigger than the screen, so only the cells in view ever need to be drawn
+class Viewport {
+
+  // width and height of the maze in cells
+  private final int mazeWidth;
+  private final int mazeHeight;
+
+  // width and height of the screen in pixels
+  private final int screenWidth;
+  private final int screenHeight;
+
+  // not final because the user can zoom in and out
+  // side length in pixels of a cell on screen, 1 when zoomed out past a pixel per cell
+  private int cellSize;
+
+  // not final because the user can zoom in and out
+  // 0 when a cell is at least a pixel, otherwise each pixel covers 2^level by 2^level cells
+  private int level;
+
+  // the level where the whole maze fits on screen, so there is no need to zoom out further
+  private final int maxLevel;
+
+  // not final because the camera pans and follows the player
+  // the column and row of the top left visible cell
+  private int left;
+  private int top;
+
+  // not final because it is set whenever the camera moves and cleared once drawn
+  // if the visible cells changed since the last frame
+  private boolean moved;
+
+  // a view of the top left of the maze, zoomed so the whole maze fits on screen if it can
+  Viewport(int mazeHeight, int mazeWidth, int screenWidth, int screenHeight) {
+    this.mazeWidth = mazeWidth;
+    this.mazeHeight = mazeHeight;
+    this.screenWidth = screenWidth;
+    this.screenHeight = screenHeight;
+    this.cellSize = Math.max(1, Math.min(screenWidth / mazeWidth, screenHeight / mazeHeight));
+    this.level = 0;
+    int fits = 0;
+    while (((mazeWidth - 1) >> fits) + 1 > screenWidth
+            || ((mazeHeight - 1) >> fits) + 1 > screenHeight) {
+      fits += 1;
+    }
+    this.maxLevel = fits;
+    this.left = 0;
+    this.top = 0;
+    this.moved = true;
+  }
+
+  // side length in pixels of a cell on screen
+  int cellSize() {
+    return this.cellSize;
+  }
+
+  // how zoomed out past a pixel per cell we are: each pixel covers 2^level by 2^level cells
+  int level() {
+    return this.level;
+  }
+
+  // the column of the leftmost visible cell
+  int left() {
+    return this.left;
+  }
+
+  // the row of the topmost visible cell
+  int top() {
+    return this.top;
+  }
+
+  // the number of columns that are at least partly on screen
+  int columns() {
+    return Math.min(this.mazeWidth - this.left, this.span(this.screenWidth));
+  }
+
+  // the number of rows that are at least partly on screen
+  int rows() {
+    return Math.min(this.mazeHeight - this.top, this.span(this.screenHeight));
+  }
+
+  // width in pixels of the part of the screen covered by the maze
+  int pixelWidth() {
+    return Math.min(this.screenWidth, this.toPixels(this.columns()));
+  }
+
+  // height in pixels of the part of the screen covered by the maze
+  int pixelHeight() {
+    return Math.min(this.screenHeight, this.toPixels(this.rows()));
+  }
+
+  // is the cell at the given position at least partly on screen
+  boolean isVisible(Posn pos) {
+    return pos.x >= this.left && pos.x < this.left + this.columns()
+            && pos.y >= this.top && pos.y < this.top + this.rows();
+  }
+
+  // the x pixel on screen of the left edge of the given column
+  int screenX(int column) {
+    return this.toPixels(column - this.left + 1) - this.toPixels(1);
+  }
+
+  // the y pixel on screen of the top edge of the given row
+  int screenY(int row) {
+    return this.toPixels(row - this.top + 1) - this.toPixels(1);
+  }
+
+  // EFFECT: moves the camera by a quarter screen in the given direction of columns and rows
+  void pan(int dx, int dy) {
+    this.moveTo(this.left + dx * Math.max(1, this.columns() / 4),
+            this.top + dy * Math.max(1, this.rows() / 4));
+  }
+
+  // EFFECT: doubles the size of cells, keeping the middle of the screen in place
+  void zoomIn() {
+    if (this.level > 0) {
+      this.zoomTo(this.level - 1, 1);
+    } else if (this.cellSize * 2 <= Math.min(this.screenWidth, this.screenHeight) / 2) {
+      this.zoomTo(0, this.cellSize * 2);
+    }
+  }
+
+  // once cells are a pixel, each pixel covers twice as many cells across instead, until the
+  // whole maze fits on screen
+  // EFFECT: halves the size of cells, keeping the middle of the screen in place
+  void zoomOut() {
+    if (this.cellSize > 1) {
+      this.zoomTo(0, this.cellSize / 2);
+    } else if (this.level < this.maxLevel) {
+      this.zoomTo(this.level + 1, 1);
+    }
+  }
+
+  // EFFECT: recenters the camera on the player if they are near the edge of the screen
+  void follow(Posn player) {
+    int marginX = this.columns() / 8;
+    int marginY = this.rows() / 8;
+    int x = this.left;
+    int y = this.top;
+    if (player.x < this.left + marginX || player.x >= this.left + this.columns() - marginX) {
+      x = player.x - this.span(this.screenWidth) / 2;
+    }
+    if (player.y < this.top + marginY || player.y >= this.top + this.rows() - marginY) {
+      y = player.y - this.span(this.screenHeight) / 2;
+    }
+    this.moveTo(x, y);
+  }
+
+  // returns if the visible cells changed since this was last asked
+  // EFFECT: forgets that the camera moved
+  boolean takeMoved() {
+    boolean wasMoved = this.moved;
+    this.moved = false;
+    return wasMoved;
+  }
+
+  // the number of cells it takes to cover the given number of pixels at the current zoom
+  private int span(int pixels) {
+    if (this.level > 0) {
+      return pixels << this.level;
+    }
+    return (pixels + this.cellSize - 1) / this.cellSize;
+  }
+
+  // the number of whole cells that fit in the given number of pixels at the current zoom
+  private int fullSpan(int pixels) {
+    if (this.level > 0) {
+      return pixels << this.level;
+    }
+    return pixels / this.cellSize;
+  }
+
+  // the start of the block of cells that make up the pixel the given cell is in
+  private int alignDown(int cell) {
+    return (cell >> this.level) << this.level;
+  }
+
+  // the start of the first block of cells that starts at or after the given cell
+  private int alignUp(int cell) {
+    return this.alignDown(cell + (1 << this.level) - 1);
+  }
+
+  // the number of pixels it takes to cover the given number of cells at the current zoom
+  private int toPixels(int cells) {
+    if (this.level > 0) {
+      return ((cells - 1) >> this.level) + 1;
+    }
+    return cells * this.cellSize;
+  }
+
+  // EFFECT: changes the zoom, keeping the middle of the screen in place
+  private void zoomTo(int newLevel, int newSize) {
+    int middleX = this.left + this.span(this.screenWidth) / 2;
+    int middleY = this.top + this.span(this.screenHeight) / 2;
+    this.level = newLevel;
+    this.cellSize = newSize;
+    this.moved = true;
+    this.moveTo(middleX - this.span(this.screenWidth) / 2,
+            middleY - this.span(this.screenHeight) / 2);
+  }
+
+  // when zoomed out past a pixel per cell, the camera lines up with the blocks of cells
+  // that make up a pixel
+  // EFFECT: moves the top left of the camera as close to the given cell as the maze allows
+  private void moveTo(int x, int y) {
+    int newLeft = Math.max(0, Math.min(this.alignDown(x),
+            this.alignUp(this.mazeWidth - this.fullSpan(this.screenWidth))));
+    int newTop = Math.max(0, Math.min(this.alignDown(y),
+            this.alignUp(this.mazeHeight - this.fullSpan(this.screenHeight))));
+    if (newLeft != this.left || newTop != this.top) {
+      this.left = newLeft;
+      this.top = newTop;
+      this.moved = true;
+    }
+  }
+}